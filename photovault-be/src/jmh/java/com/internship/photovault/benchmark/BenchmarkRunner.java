@@ -0,0 +1,35 @@
+package com.internship.photovault.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Runs the selected benchmarks once per thread count in JMH_THREADS (default "1,4") and writes one
+// JSON result file per count to target/jmh, so baselines from before and after a change can be diffed.
+// Any other argument is passed to JMH as usual, e.g. a benchmark regex or -f/-wi/-i overrides.
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        String threads = System.getenv().getOrDefault("JMH_THREADS", "1,4");
+
+        Path resultDir = Path.of("target", "jmh");
+        Files.createDirectories(resultDir);
+
+        for (String count : threads.split(",")) {
+            int threadCount = Integer.parseInt(count.trim());
+            Options options = new OptionsBuilder()
+                    .parent(commandLine)
+                    .threads(threadCount)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(resultDir.resolve("results-t" + threadCount + ".json").toString())
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
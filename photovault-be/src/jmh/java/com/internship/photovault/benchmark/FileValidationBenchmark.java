@@ -0,0 +1,41 @@
+package com.internship.photovault.benchmark;
+
+import com.internship.photovault.config.FileValidationConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Content type check done for every uploaded file
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileValidationBenchmark {
+
+    @Param({"image/jpeg", "image/webp", "application/pdf"})
+    public String contentType;
+
+    private FileValidationConfig fileValidationConfig;
+
+    @Setup
+    public void setUp() {
+        fileValidationConfig = new FileValidationConfig();
+    }
+
+    @Benchmark
+    public boolean isValidImageType() {
+        return fileValidationConfig.isValidImageType(contentType);
+    }
+}
@@ -0,0 +1,83 @@
+package com.internship.photovault.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.internship.photovault.dto.ImageSummary;
+import com.internship.photovault.entity.Image;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// JSON rendering of a gallery page, as the entity the old endpoints returned and as the ImageSummary
+// projection the list endpoints return now. pageSize plays the role of the response size.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageSerializationBenchmark {
+
+    @Param({"20", "200"})
+    public int pageSize;
+
+    private ObjectMapper objectMapper;
+    private Page<Image> imagePage;
+    private Page<ImageSummary> summaryPage;
+
+    @Setup
+    public void setUp() {
+        // same modules and defaults as the MVC message converter
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        List<Image> images = new ArrayList<>(pageSize);
+        List<ImageSummary> summaries = new ArrayList<>(pageSize);
+        LocalDateTime uploaded = LocalDateTime.of(2024, 1, 1, 12, 0);
+        for (long id = 1; id <= pageSize; id++) {
+            Image image = new Image();
+            image.setId(id);
+            image.setFilename("IMG_" + id + ".jpg");
+            image.setOriginalFilename("IMG_" + id + ".jpg");
+            image.setStoredFilename("3f786850e387550fdab836ed7e6dc881de23001b" + id + ".jpg");
+            image.setFilePath("/var/photovault/3f786850e387550fdab836ed7e6dc881de23001b" + id + ".jpg");
+            image.setFileSize(2_500_000L + id);
+            image.setContentType("image/jpeg");
+            image.setUploadDate(uploaded.plusMinutes(id));
+            image.setCreatedAt(uploaded.plusMinutes(id));
+            image.setUpdatedAt(uploaded.plusMinutes(id));
+            image.setChecksumSha256("3f786850e387550fdab836ed7e6dc881de23001b3f786850e387550fdab8" + id);
+            images.add(image);
+            summaries.add(new ImageSummary(id, image.getOriginalFilename(), image.getFileSize(),
+                    image.getContentType(), image.getUploadDate(), false, false, false, 4032, 3024, 1));
+        }
+        PageRequest pageable = PageRequest.of(0, pageSize);
+        imagePage = new PageImpl<>(images, pageable, 10_000);
+        summaryPage = new PageImpl<>(summaries, pageable, 10_000);
+    }
+
+    @Benchmark
+    public byte[] imagePage() throws Exception {
+        return objectMapper.writeValueAsBytes(imagePage);
+    }
+
+    @Benchmark
+    public byte[] summaryPage() throws Exception {
+        return objectMapper.writeValueAsBytes(summaryPage);
+    }
+}
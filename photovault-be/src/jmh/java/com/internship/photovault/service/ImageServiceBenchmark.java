@@ -0,0 +1,216 @@
+package com.internship.photovault.service;
+
+import com.internship.photovault.config.FileValidationConfig;
+import com.internship.photovault.entity.FileBlob;
+import com.internship.photovault.entity.Image;
+import com.internship.photovault.entity.User;
+import com.internship.photovault.repository.CollectionRepository;
+import com.internship.photovault.repository.FileBlobRepository;
+import com.internship.photovault.repository.ImageRepository;
+import com.internship.photovault.repository.UserRepository;
+import com.internship.photovault.storage.FileSystemStorageBackend;
+import com.internship.photovault.storage.StorageLayout;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.Resource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+// Upload and serving hot paths of ImageService against a temp directory. The database is replaced by
+// stub repositories, so the numbers cover hashing, file I/O and path handling only.
+// fileSize is swept by @Param, thread counts by BenchmarkRunner.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImageServiceBenchmark {
+
+    private static final String STORED_FILENAME = "stored-original.jpg";
+
+    // SOI, SOF0 for a 4032x3024 3-component frame
+    private static final byte[] JPEG_HEADER = {
+            (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xC0, 0x00, 0x11, 0x08, 0x0B, (byte) 0xD0, 0x0F, (byte) 0xC0,
+            0x03, 0x01, 0x22, 0x00, 0x02, 0x11, 0x01, 0x03, 0x11, 0x01};
+
+    @Param({"4096", "1048576", "16777216"})
+    public int fileSize;
+
+    private Path storageLocation;
+    private FileSystemStorageBackend storageBackend;
+    private ImageService imageService;
+    private User user;
+    private final AtomicInteger threadIds = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        storageLocation = Files.createTempDirectory("photovault-bench-");
+        Files.write(storageLocation.resolve(STORED_FILENAME), new byte[fileSize]);
+
+        // stubOnly: no invocation recording, the mocks stay flat over millions of calls
+        ImageRepository imageRepository = stub(ImageRepository.class);
+        when(imageRepository.save(any(Image.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // the blob row for each upsert is handed back by the following findById, as the database would
+        FileBlobRepository fileBlobRepository = stub(FileBlobRepository.class);
+        AtomicLong blobIds = new AtomicLong();
+        Map<Long, FileBlob> blobs = new ConcurrentHashMap<>();
+        when(fileBlobRepository.upsertReference(anyString(), anyString(), anyString(), anyLong(), anyString(), anyLong()))
+                .thenAnswer(invocation -> {
+                    FileBlob blob = new FileBlob();
+                    blob.setId(blobIds.incrementAndGet());
+                    blob.setChecksumSha256(invocation.getArgument(0));
+                    blob.setStoredFilename(invocation.getArgument(1));
+                    blob.setFilePath(invocation.getArgument(2));
+                    blob.setFileSize(invocation.getArgument(3));
+                    blob.setContentType(invocation.getArgument(4));
+                    blob.setRefCount(1L);
+                    blobs.put(blob.getId(), blob);
+                    return blob.getId();
+                });
+        when(fileBlobRepository.findById(anyLong()))
+                .thenAnswer(invocation -> Optional.ofNullable(blobs.remove((Long) invocation.getArgument(0))));
+
+        ThumbnailService thumbnailService = stub(ThumbnailService.class);
+        storageBackend = new FileSystemStorageBackend(storageLocation.toString());
+        BlobStorageService blobStorageService = new BlobStorageService(storageBackend, fileBlobRepository,
+                thumbnailService, stub(PlatformTransactionManager.class));
+
+        imageService = new ImageService(storageLocation.toString(), imageRepository, new FileValidationConfig(),
+                stub(UserRepository.class), thumbnailService, blobStorageService, stub(ExecutorService.class),
+                stub(PlatformTransactionManager.class), stub(UserImageStatsService.class), 1000,
+                stub(AuditService.class), new SimpleMeterRegistry(), new ImageMetadataExtractor(), storageBackend,
+                stub(TagIndexService.class), stub(PerceptualHasher.class), stub(SimilarityIndexService.class),
+                stub(CollectionRepository.class));
+
+        user = new User();
+        user.setId(1L);
+        user.setUsername("bench");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(storageLocation);
+    }
+
+    private static <T> T stub(Class<T> type) {
+        return mock(type, withSettings().stubOnly());
+    }
+
+    // Per-thread upload content: a JPEG header (SOI + baseline SOF0) so the format sniffing passes, the
+    // last bytes carry a thread id and sequence number so every upload is new content and takes the
+    // full write + rename path instead of the dedup shortcut
+    @State(Scope.Thread)
+    public static class Upload {
+        byte[] content;
+        ByteBuffer header;
+        long sequence;
+        Path hashTarget;
+        String storedFilename;
+
+        @Setup(Level.Trial)
+        public void setUp(ImageServiceBenchmark benchmark) throws IOException {
+            content = new byte[benchmark.fileSize];
+            new Random(42).nextBytes(content);
+            System.arraycopy(JPEG_HEADER, 0, content, 0, JPEG_HEADER.length);
+            header = ByteBuffer.wrap(content, content.length - 16, 16).slice();
+            header.putLong(0, benchmark.threadIds.incrementAndGet());
+            hashTarget = Files.createTempFile(benchmark.storageLocation, "hash-", ".tmp");
+        }
+
+        byte[] next() {
+            header.putLong(8, ++sequence);
+            return content;
+        }
+
+        @TearDown(Level.Invocation)
+        public void removeStoredFile(ImageServiceBenchmark benchmark) throws IOException {
+            if (storedFilename != null) {
+                benchmark.storageBackend.delete(StorageLayout.keyFor(storedFilename));
+                storedFilename = null;
+            }
+        }
+    }
+
+    // Streaming copy to disk with SHA-256 and hex encoding, the core of every upload
+    @Benchmark
+    public ImageService.HashedCopy copyAndHash(Upload upload) throws IOException {
+        return ImageService.copyAndHash(new ByteArrayInputStream(upload.content), upload.hashTarget);
+    }
+
+    // Digest and hex encoding alone, separates the CPU cost from the file write above
+    @Benchmark
+    public String sha256Hex(Upload upload) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(upload.content);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Validation, temp file, hash, blob rename and entity creation, with stubbed persistence
+    @Benchmark
+    public Image saveImage(Upload upload) throws IOException {
+        MockMultipartFile file = new MockMultipartFile("file", "IMG_0001.jpg", "image/jpeg", upload.next());
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            Image image = imageService.saveImage(file, user);
+            upload.storedFilename = image.getStoredFilename();
+            return image;
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    // Filename validation and resolution done before every download
+    @Benchmark
+    public Resource loadImageAsResource() {
+        return imageService.loadImageAsResource(STORED_FILENAME);
+    }
+
+    // Rejection path for a traversal attempt
+    @Benchmark
+    public Object loadImageAsResourceRejected() {
+        try {
+            return imageService.loadImageAsResource("../../etc/passwd");
+        } catch (IllegalArgumentException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.internship.photovault.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class AsyncWebConfig implements WebMvcConfigurer {
+
+    private final long streamingTimeoutMs;
+    private final int streamingThreads;
+
+    public AsyncWebConfig(@Value("${photovault.streaming.timeout-ms:1800000}") long streamingTimeoutMs,
+                          @Value("${photovault.streaming.threads:32}") int streamingThreads) {
+        this.streamingTimeoutMs = streamingTimeoutMs;
+        this.streamingThreads = streamingThreads;
+    }
+
+    // Writes StreamingResponseBody downloads, bounded instead of the default thread-per-request executor
+    @Bean(name = "streamingTaskExecutor")
+    public ThreadPoolTaskExecutor streamingTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(streamingThreads);
+        executor.setMaxPoolSize(streamingThreads);
+        executor.setQueueCapacity(streamingThreads * 4);
+        executor.setThreadNamePrefix("file-stream-");
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        // large originals on slow connections outlive the container's default async timeout
+        configurer.setDefaultTimeout(streamingTimeoutMs);
+        configurer.setTaskExecutor(streamingTaskExecutor());
+    }
+}
@@ -0,0 +1,32 @@
+package com.internship.photovault.config;
+
+import com.internship.photovault.service.AuditEventListener;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.springframework.context.annotation.Configuration;
+
+// Hooks the audit listener into Hibernate's post-commit events for every session
+@Configuration
+public class AuditListenerConfig {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final AuditEventListener auditEventListener;
+
+    public AuditListenerConfig(EntityManagerFactory entityManagerFactory, AuditEventListener auditEventListener) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.auditEventListener = auditEventListener;
+    }
+
+    @PostConstruct
+    public void registerListeners() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, auditEventListener);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, auditEventListener);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, auditEventListener);
+    }
+}
@@ -0,0 +1,54 @@
+package com.internship.photovault.config;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+// Histogram buckets and percentiles for the domain meters (photovault.*) and for the per-repository-method
+// timings Spring Boot records as spring.data.repository.invocations. The buckets feed Prometheus
+// (/actuator/prometheus, histogram_quantile), the p50/p95/p99 show up in /actuator/metrics.
+// Both endpoints need to be in management.endpoints.web.exposure.include; the scrape credential for
+// /actuator/prometheus is set in SecurityConfig.
+@Configuration
+public class MetricsConfig {
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    @Bean
+    public MeterFilter photovaultDistributionFilter() {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                String name = id.getName();
+                if (!name.startsWith("photovault.") && !name.equals("spring.data.repository.invocations")) {
+                    return config;
+                }
+                if (id.getType() == Meter.Type.TIMER) {
+                    // a repository call takes milliseconds, a 16MB upload stage or a slow download seconds
+                    return DistributionStatisticConfig.builder()
+                            .percentiles(PERCENTILES)
+                            .percentilesHistogram(true)
+                            .minimumExpectedValue((double) Duration.ofMillis(1).toNanos())
+                            .maximumExpectedValue((double) Duration.ofSeconds(60).toNanos())
+                            .build()
+                            .merge(config);
+                }
+                if (id.getType() == Meter.Type.DISTRIBUTION_SUMMARY) {
+                    // bytes and bytes per second, from a small thumbnail up to the 30MB+ upload limit
+                    return DistributionStatisticConfig.builder()
+                            .percentiles(PERCENTILES)
+                            .percentilesHistogram(true)
+                            .minimumExpectedValue(1024d)
+                            .maximumExpectedValue(1024d * 1024 * 1024)
+                            .build()
+                            .merge(config);
+                }
+                return config;
+            }
+        };
+    }
+}
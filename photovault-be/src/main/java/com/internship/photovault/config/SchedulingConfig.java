@@ -0,0 +1,10 @@
+package com.internship.photovault.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Background maintenance jobs (@Scheduled methods on services) run on Spring's scheduler
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,14 +1,19 @@
 package com.internship.photovault.config;
 
 import com.internship.photovault.security.CustomUserDetailsService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 
 @Configuration
@@ -21,6 +26,31 @@ public class SecurityConfig {
         this.customUserDetailsService = customUserDetailsService;
     }
 
+    // Prometheus scrapes without a session: HTTP Basic with a dedicated credential (basic_auth in the scrape
+    // config) that is not a user account. Without photovault.metrics.scrape-password the endpoint stays closed.
+    @Bean
+    @Order(1)
+    public SecurityFilterChain prometheusFilterChain(HttpSecurity http,
+                                                     @Value("${photovault.metrics.scrape-username:prometheus}") String username,
+                                                     @Value("${photovault.metrics.scrape-password:}") String password) throws Exception {
+        http
+                .securityMatcher("/actuator/prometheus")
+                .csrf(csrf -> csrf.disable())
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .httpBasic(Customizer.withDefaults());
+        if (password.isBlank()) {
+            http.authorizeHttpRequests(authz -> authz.anyRequest().denyAll());
+        } else {
+            http.authorizeHttpRequests(authz -> authz.anyRequest().hasRole("METRICS"))
+                    .userDetailsService(new InMemoryUserDetailsManager(
+                            org.springframework.security.core.userdetails.User.withUsername(username)
+                                    .password(passwordEncoder().encode(password))
+                                    .roles("METRICS")
+                                    .build()));
+        }
+        return http.build();
+    }
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
@@ -29,6 +59,10 @@ public class SecurityConfig {
                         .requestMatchers("/h2-console/**").permitAll() // If using H2 for testing
                         // Add health endpoint access
                         .requestMatchers("/actuator/health", "/health").permitAll()
+                        .requestMatchers("/actuator/trashpurge", "/actuator/trashpurge/**").hasRole("ADMIN")
+                        .requestMatchers("/actuator/storagemigration", "/actuator/storagemigration/**").hasRole("ADMIN")
+                        .requestMatchers("/actuator/hashbackfill", "/actuator/hashbackfill/**").hasRole("ADMIN")
+                        .requestMatchers("/actuator/metrics", "/actuator/metrics/**").hasRole("ADMIN")
                         // For Angular development - allow CORS preflight requests
                         .requestMatchers("/api/**").permitAll() // If you have API endpoints
                         .anyRequest().authenticated()
@@ -0,0 +1,26 @@
+package com.internship.photovault.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class UploadExecutorConfig {
+
+    // Bounded pool for hashing and writing batch uploads, shared by all concurrent batch requests
+    @Bean(name = "uploadExecutor", destroyMethod = "shutdown")
+    public ExecutorService uploadExecutor(@Value("${photovault.upload.parallelism:4}") int parallelism) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "upload-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(Math.max(1, parallelism), threadFactory);
+    }
+}
@@ -0,0 +1,26 @@
+package com.internship.photovault.config;
+
+import com.internship.photovault.security.UserContextJpaDialect;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+
+// Swaps in UserContextJpaDialect before the entity manager factory initializes; the JpaTransactionManager
+// picks the dialect up from the factory, so every transaction begins with the RLS user context
+@Configuration
+public class UserContextJpaConfig {
+
+    @Bean
+    public static BeanPostProcessor userContextJpaDialectPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof AbstractEntityManagerFactoryBean factoryBean) {
+                    factoryBean.setJpaDialect(new UserContextJpaDialect());
+                }
+                return bean;
+            }
+        };
+    }
+}
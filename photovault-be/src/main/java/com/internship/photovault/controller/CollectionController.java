@@ -0,0 +1,93 @@
+package com.internship.photovault.controller;
+
+import com.internship.photovault.dto.CollectionImagesRequest;
+import com.internship.photovault.dto.CollectionRequest;
+import com.internship.photovault.dto.CollectionSummary;
+import com.internship.photovault.dto.CursorPage;
+import com.internship.photovault.dto.ImageSummary;
+import com.internship.photovault.entity.User;
+import com.internship.photovault.service.CollectionService;
+import com.internship.photovault.service.UserService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+// Errors are mapped by RestExceptionHandler; the ZIP download of a collection is in ExportController
+@RestController
+@RequestMapping("/collections")
+public class CollectionController {
+
+    private static final int MAX_PAGE_SIZE = 200;
+
+    private final CollectionService collectionService;
+    private final UserService userService;
+
+    public CollectionController(CollectionService collectionService, UserService userService) {
+        this.collectionService = collectionService;
+        this.userService = userService;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<CollectionSummary>> getCollections() {
+        User currentUser = userService.getCurrentUser();
+        return ResponseEntity.ok(collectionService.getCollections(currentUser));
+    }
+
+    @PostMapping
+    public ResponseEntity<CollectionSummary> createCollection(@RequestBody CollectionRequest request) {
+        User currentUser = userService.getCurrentUser();
+        return ResponseEntity.status(HttpStatus.CREATED).body(collectionService.createCollection(request, currentUser));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<CollectionSummary> getCollection(@PathVariable("id") Long id) {
+        User currentUser = userService.getCurrentUser();
+        return ResponseEntity.ok(collectionService.getCollection(id, currentUser));
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<CollectionSummary> updateCollection(@PathVariable("id") Long id,
+                                                              @RequestBody CollectionRequest request) {
+        User currentUser = userService.getCurrentUser();
+        return ResponseEntity.ok(collectionService.updateCollection(id, request, currentUser));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> deleteCollection(@PathVariable("id") Long id) {
+        User currentUser = userService.getCurrentUser();
+        collectionService.deleteCollection(id, currentUser);
+        return ResponseEntity.ok(Map.of("message", "Collection deleted successfully"));
+    }
+
+    // Keyset pagination, newest added first
+    @GetMapping("/{id}/images")
+    public ResponseEntity<CursorPage<ImageSummary>> getImages(
+            @PathVariable("id") Long id,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "50") int size,
+            @RequestParam(value = "includeTotal", defaultValue = "false") boolean includeTotal) {
+
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        User currentUser = userService.getCurrentUser();
+        return ResponseEntity.ok(collectionService.getImages(id, currentUser, cursor, size, includeTotal));
+    }
+
+    @PostMapping("/{id}/images")
+    public ResponseEntity<Map<String, Object>> addImages(@PathVariable("id") Long id,
+                                                         @RequestBody CollectionImagesRequest request) {
+        User currentUser = userService.getCurrentUser();
+        return ResponseEntity.ok(collectionService.addImages(id, request.ids(), currentUser));
+    }
+
+    @DeleteMapping("/{id}/images")
+    public ResponseEntity<Map<String, Object>> removeImages(@PathVariable("id") Long id,
+                                                            @RequestBody CollectionImagesRequest request) {
+        User currentUser = userService.getCurrentUser();
+        return ResponseEntity.ok(collectionService.removeImages(id, request.ids(), currentUser));
+    }
+}
@@ -0,0 +1,71 @@
+package com.internship.photovault.controller;
+
+import com.internship.photovault.dto.ExportRequest;
+import com.internship.photovault.entity.User;
+import com.internship.photovault.service.ArchiveExportService;
+import com.internship.photovault.service.UserService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+
+// ZIP downloads, streamed as they are built:
+//   POST /images/export             {ids: [...]} a multi-selection
+//   GET  /collections/{id}/export   every image in a collection
+// The archive length is not known up front, the response is chunked.
+@RestController
+public class ExportController {
+
+    private final ArchiveExportService archiveExportService;
+    private final UserService userService;
+
+    public ExportController(ArchiveExportService archiveExportService, UserService userService) {
+        this.archiveExportService = archiveExportService;
+        this.userService = userService;
+    }
+
+    @PostMapping("/images/export")
+    public ResponseEntity<StreamingResponseBody> exportSelection(@RequestBody ExportRequest request,
+                                                                 NativeWebRequest webRequest) {
+        User currentUser = userService.getCurrentUser();
+        return toResponse(archiveExportService.exportSelection(request.ids(), currentUser), webRequest);
+    }
+
+    @GetMapping("/collections/{id}/export")
+    public ResponseEntity<StreamingResponseBody> exportCollection(@PathVariable("id") Long id,
+                                                                  NativeWebRequest webRequest) {
+        User currentUser = userService.getCurrentUser();
+        return toResponse(archiveExportService.exportCollection(id, currentUser), webRequest);
+    }
+
+    private ResponseEntity<StreamingResponseBody> toResponse(ArchiveExportService.Export export,
+                                                             NativeWebRequest webRequest) {
+        // The body holds an export slot until it runs. Async completion fires after a rejected submit,
+        // a timeout or an error as well, so a body that never got to run hands its slot back there.
+        WebAsyncUtils.getAsyncManager(webRequest).registerCallableInterceptor(ExportController.class.getName(),
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+                        export.abandon().run();
+                    }
+                });
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .cacheControl(CacheControl.noStore())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(export.filename(), StandardCharsets.UTF_8)
+                        .build()
+                        .toString())
+                .header("X-Export-Entries", String.valueOf(export.entryCount()))
+                .body(export.body());
+    }
+}
@@ -1,26 +1,41 @@
 package com.internship.photovault.controller;
 
+import com.internship.photovault.dto.BulkImageOperation;
+import com.internship.photovault.dto.BulkImageRequest;
+import com.internship.photovault.dto.CursorPage;
+import com.internship.photovault.dto.ImageSummary;
+import com.internship.photovault.dto.SimilarImage;
 import com.internship.photovault.entity.Image;
 import com.internship.photovault.entity.User;
 import com.internship.photovault.exception.ImageNotFoundException;
 import com.internship.photovault.exception.InvalidFileTypeException;
+import com.internship.photovault.repository.ImageSort;
+import com.internship.photovault.service.FileServingService;
 import com.internship.photovault.service.ImageService;
+import com.internship.photovault.service.ImageStatesService;
+import com.internship.photovault.service.SimilarImageService;
+import com.internship.photovault.service.ThumbnailService;
 import com.internship.photovault.service.UserService;
 import jakarta.validation.constraints.NotNull;
-import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -30,12 +45,24 @@ import java.util.Map;
 @Validated
 public class ImageController {
 
+    private static final int MAX_PAGE_SIZE = 200;
+
     private final ImageService imageService;
     private final UserService userService;
+    private final ThumbnailService thumbnailService;
+    private final FileServingService fileServingService;
+    private final ImageStatesService imageStatesService;
+    private final SimilarImageService similarImageService;
 
-    public ImageController(ImageService imageService, UserService userService) {
+    public ImageController(ImageService imageService, UserService userService,
+                           ThumbnailService thumbnailService, FileServingService fileServingService,
+                           ImageStatesService imageStatesService, SimilarImageService similarImageService) {
         this.imageService = imageService;
         this.userService = userService;
+        this.thumbnailService = thumbnailService;
+        this.fileServingService = fileServingService;
+        this.imageStatesService = imageStatesService;
+        this.similarImageService = similarImageService;
     }
 
     @PostMapping("/upload")
@@ -50,9 +77,11 @@ public class ImageController {
 //            Image savedImage = imageService.saveImage(file, currentUser);
 
             Image savedImage = imageService.saveImage(file, currentUser);
+            // stored either way, the client decides whether to keep a near-duplicate
             return ResponseEntity.ok(Map.of(
                     "message", "Image uploaded successfully",
-                    "image", savedImage
+                    "image", savedImage,
+                    "nearDuplicates", similarImageService.findNearDuplicates(savedImage)
             ));
         } catch (InvalidFileTypeException e) {
             return ResponseEntity.badRequest()
@@ -76,40 +105,56 @@ public class ImageController {
             List<Image> successfulUploads = new ArrayList<>();
             List<Map<String, String>> failedUploads = new ArrayList<>();
 
+            // Resolve the user once for the whole batch
+            User currentUser = userService.getCurrentUser();
+
+            List<MultipartFile> nonEmptyFiles = new ArrayList<>();
+            List<Integer> nonEmptyIndexes = new ArrayList<>();
             for (int i = 0; i < files.length; i++) {
+                if (!files[i].isEmpty()) {
+                    nonEmptyFiles.add(files[i]);
+                    nonEmptyIndexes.add(i);
+                } else {
+                    failedUploads.add(Map.of(
+                            "index", String.valueOf(i),
+                            "filename", files[i].getOriginalFilename() != null ? files[i].getOriginalFilename() : "unknown",
+                            "error", "File is empty"
+                    ));
+                }
+            }
+
+            List<ImageService.BatchUploadResult> uploadResults = imageService.saveImages(nonEmptyFiles, currentUser);
+            for (int j = 0; j < uploadResults.size(); j++) {
+                int i = nonEmptyIndexes.get(j);
                 MultipartFile file = files[i];
-                try {
-                    if (!file.isEmpty()) {
-                        Image savedImage = imageService.saveImage(file, userService.getCurrentUser());
-                        successfulUploads.add(savedImage);
-                        results.add(Map.of(
-                                "index", i,
-                                "filename", file.getOriginalFilename(),
-                                "status", "success",
-                                "image", savedImage
-                        ));
-                    } else {
-                        failedUploads.add(Map.of(
-                                "index", String.valueOf(i),
-                                "filename", file.getOriginalFilename() != null ? file.getOriginalFilename() : "unknown",
-                                "error", "File is empty"
-                        ));
-                    }
-                } catch (InvalidFileTypeException e) {
+                ImageService.BatchUploadResult result = uploadResults.get(j);
+                if (result.isSuccess()) {
+                    successfulUploads.add(result.image());
+                    results.add(Map.of(
+                            "index", i,
+                            "filename", file.getOriginalFilename(),
+                            "status", "success",
+                            "image", result.image(),
+                            "nearDuplicates", similarImageService.findNearDuplicates(result.image())
+                    ));
+                } else if (result.error() instanceof InvalidFileTypeException) {
                     failedUploads.add(Map.of(
                             "index", String.valueOf(i),
                             "filename", file.getOriginalFilename() != null ? file.getOriginalFilename() : "unknown",
-                            "error", e.getMessage()
+                            "error", result.error().getMessage()
                     ));
-                } catch (Exception e) {
+                } else {
                     failedUploads.add(Map.of(
                             "index", String.valueOf(i),
                             "filename", file.getOriginalFilename() != null ? file.getOriginalFilename() : "unknown",
-                            "error", "Upload failed: " + e.getMessage()
+                            "error", "Upload failed: " + result.error().getMessage()
                     ));
                 }
             }
 
+            // keep the error report in submission order
+            failedUploads.sort(Comparator.comparingInt(failure -> Integer.parseInt(failure.get("index"))));
+
             return ResponseEntity.ok(Map.of(
                     "message", String.format("Processed %d files: %d successful, %d failed",
                             files.length, successfulUploads.size(), failedUploads.size()),
@@ -126,7 +171,7 @@ public class ImageController {
     }
 
     @GetMapping
-    public ResponseEntity<Page<Image>> getAllImages(
+    public ResponseEntity<Page<ImageSummary>> getAllImages(
             @RequestParam(value = "page", defaultValue = "0") int page,
             @RequestParam(value = "size", defaultValue = "10") int size,
             @RequestParam(value = "sortBy", defaultValue = "uploadDate") String sortBy,
@@ -134,19 +179,36 @@ public class ImageController {
 
         User currentUser = userService.getCurrentUser();
 
-        Pageable pageable = PageRequest.of(page, size,
-                sortDir.equalsIgnoreCase("desc") ?
-                        Sort.by(sortBy).descending() : Sort.by(sortBy).ascending());
+        // only whitelisted orders, tie-broken by id so pages are stable
+        Pageable pageable = PageRequest.of(page, size, ImageSort.from(sortBy, sortDir).toSort());
 
-        Page<Image> images = imageService.getAllImages(currentUser, pageable);
+        Page<ImageSummary> images = imageService.getAllImages(currentUser, pageable);
             return ResponseEntity.ok(images);
     }
 
+    // Keyset pagination for infinite scrolling, cost stays flat no matter how deep the client scrolls
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPage<ImageSummary>> getImagesByCursor(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            @RequestParam(value = "sortBy", defaultValue = "uploadDate") String sortBy,
+            @RequestParam(value = "sortDir", defaultValue = "desc") String sortDir,
+            @RequestParam(value = "includeTotal", defaultValue = "false") boolean includeTotal) {
+
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        User currentUser = userService.getCurrentUser();
+        return ResponseEntity.ok(imageService.getImagesAfter(currentUser, ImageSort.from(sortBy, sortDir),
+                cursor, size, includeTotal));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<?> getImageById(@PathVariable("id") Long id) {
         try {
             User currentUser = userService.getCurrentUser();
             Image image = imageService.getImageById(id, currentUser);
+            imageStatesService.incrementViewCount(image, currentUser);
             return ResponseEntity.ok(image);
         } catch (ImageNotFoundException e) {
             return ResponseEntity.notFound().build();
@@ -154,22 +216,37 @@ public class ImageController {
     }
 
     @GetMapping("/{id}/download")
-    public ResponseEntity<Resource> downloadImage(@PathVariable("id") Long id) {
+    public ResponseEntity<StreamingResponseBody> downloadImage(@PathVariable("id") Long id, ServletWebRequest request) {
         try {
             User currentUser = userService.getCurrentUser();
             Image image = imageService.getImageById(id, currentUser);
-            Resource resource = imageService.loadImageAsResource(image.getStoredFilename());
+            String key = imageService.resolveImageKey(image.getStoredFilename());
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(image.getContentType()))
-                    .header(HttpHeaders.CONTENT_DISPOSITION,
-                            "attachment; filename=\"" + image.getOriginalFilename() + "\"")
-                    .body(resource);
+            return fileServingService.serve(FileServingService.ORIGINAL, key,
+                    MediaType.parseMediaType(image.getContentType()),
+                    imageETag(image, "original"),
+                    imageLastModified(image),
+                    "attachment; filename=\"" + image.getOriginalFilename() + "\"",
+                    request);
         } catch (Exception e) {
             return ResponseEntity.notFound().build();
         }
     }
 
+    // Visually similar images of the same user, closest first; maxDistance counts differing hash bits out of 64
+    @GetMapping("/{id}/similar")
+    public ResponseEntity<List<SimilarImage>> getSimilarImages(
+            @PathVariable("id") Long id,
+            @RequestParam(value = "maxDistance", defaultValue = "10") int maxDistance,
+            @RequestParam(value = "limit", defaultValue = "50") int limit) {
+
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        User currentUser = userService.getCurrentUser();
+        return ResponseEntity.ok(similarImageService.findSimilar(id, currentUser, maxDistance, limit));
+    }
+
     @PutMapping("/{id}/favorite")
     public ResponseEntity<?> toggleFavorite(@PathVariable("id") Long id) {
         try {
@@ -185,18 +262,56 @@ public class ImageController {
     }
 
     @GetMapping("/favorites")
-    public ResponseEntity<List<Image>> getFavorites() {
+    public ResponseEntity<List<ImageSummary>> getFavorites() {
         User currentUser = userService.getCurrentUser();
-        List<Image> favorites = imageService.getFavorites(currentUser);
+        List<ImageSummary> favorites = imageService.getFavorites(currentUser);
         return ResponseEntity.ok(favorites);
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<Image>> searchImages(@RequestParam("query") String query) {
-        List<Image> results = imageService.searchImages(query, userService.getCurrentUser());
+    public ResponseEntity<Page<ImageSummary>> searchImages(
+            @RequestParam("query") String query,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("page must be >= 0 and size between 1 and " + MAX_PAGE_SIZE);
+        }
+        // results come back ranked by relevance, newest first among equally relevant matches
+        Page<ImageSummary> results = imageService.searchImages(query, userService.getCurrentUser(), PageRequest.of(page, size));
         return ResponseEntity.ok(results);
     }
 
+    // Multi-select actions in one round trip, each id reports updated / unchanged / not_found
+    @PostMapping("/bulk")
+    public ResponseEntity<Map<String, Object>> bulkUpdate(@RequestBody BulkImageRequest request) {
+        BulkImageOperation operation = BulkImageOperation.from(request.operation());
+        if (request.ids() == null) {
+            throw new IllegalArgumentException("ids must not be empty");
+        }
+
+        User currentUser = userService.getCurrentUser();
+        Map<Long, String> outcome = imageService.bulkUpdate(request.ids(), operation, currentUser);
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        Map<String, Integer> totals = new LinkedHashMap<>();
+        totals.put(ImageService.BULK_UPDATED, 0);
+        totals.put(ImageService.BULK_UNCHANGED, 0);
+        totals.put(ImageService.BULK_NOT_FOUND, 0);
+        outcome.forEach((id, status) -> {
+            results.add(Map.of("id", id, "status", status));
+            totals.merge(status, 1, Integer::sum);
+        });
+
+        return ResponseEntity.ok(Map.of(
+                "operation", operation.name(),
+                "updated", totals.get(ImageService.BULK_UPDATED),
+                "unchanged", totals.get(ImageService.BULK_UNCHANGED),
+                "notFound", totals.get(ImageService.BULK_NOT_FOUND),
+                "results", results
+        ));
+    }
+
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getStats() {
         User currentUser = userService.getCurrentUser();
@@ -231,17 +346,17 @@ public class ImageController {
     }
 
     @GetMapping("/archived")
-    public ResponseEntity<List<Image>> getArchivedImages() {
+    public ResponseEntity<List<ImageSummary>> getArchivedImages() {
         User currentUser = userService.getCurrentUser();
-        List<Image> archivedImages = imageService.getArchivedImages(currentUser);
+        List<ImageSummary> archivedImages = imageService.getArchivedImages(currentUser);
         return ResponseEntity.ok(archivedImages);
     }
 
 //    adding the backend endpoints for the trash and restore functions
     @GetMapping("/trash")
-    public ResponseEntity<List<Image>> getTrashedImages() {
+    public ResponseEntity<List<ImageSummary>> getTrashedImages() {
         User currentUser = userService.getCurrentUser();
-        List<Image> trashedImages = imageService.getTrashedImages(currentUser);
+        List<ImageSummary> trashedImages = imageService.getTrashedImages(currentUser);
         return ResponseEntity.ok(trashedImages);
     }
     @PutMapping("/{id}/restore")
@@ -268,18 +383,53 @@ public class ImageController {
     }
 
     @GetMapping("/{id}/thumbnail")
-    public ResponseEntity<Resource> getThumbnail(@PathVariable("id") Long id) {
+    public ResponseEntity<StreamingResponseBody> getThumbnail(@PathVariable("id") Long id,
+                                                              @RequestParam(value = "size", required = false) Integer size,
+                                                              @RequestParam(value = "width", required = false) Integer width,
+                                                              @RequestParam(value = "height", required = false) Integer height,
+                                                              ServletWebRequest request) {
         try {
             // Use internal method to bypass deletion check
             User currentUser = userService.getCurrentUser();
             Image image = imageService.getImageByIdInternal(id);
-            Resource resource = imageService.loadImageAsResource(image.getStoredFilename());
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(image.getContentType()))
-                    .body(resource);
+            // size wins, otherwise pick the rendition covering the larger requested edge
+            Integer requestedSize = size;
+            if (requestedSize == null && (width != null || height != null)) {
+                requestedSize = Math.max(width != null ? width : 0, height != null ? height : 0);
+            }
+            int renditionSize = thumbnailService.resolveSize(requestedSize);
+            String etag = imageETag(image, "t" + renditionSize);
+            Instant lastModified = imageLastModified(image);
+
+            // Answer revalidations before looking for (or building) the rendition
+            if (fileServingService.isNotModified(request, etag, lastModified)) {
+                return fileServingService.notModified(FileServingService.THUMBNAIL, etag);
+            }
+
+            String key = imageService.resolveThumbnailKey(image, renditionSize);
+            return fileServingService.serve(FileServingService.THUMBNAIL, key,
+                    MediaTypeFactory.getMediaType(key)
+                            .orElse(MediaType.parseMediaType(image.getContentType())),
+                    etag,
+                    lastModified,
+                    null,
+                    request);
         } catch (Exception e) {
             return ResponseEntity.notFound().build();
         }
     }
-}
\ No newline at end of file
+
+    // Strong validator: content is immutable per checksum, variant distinguishes original and renditions
+    private String imageETag(Image image, String variant) {
+        String content = image.getChecksumSha256() != null
+                ? image.getChecksumSha256()
+                : image.getStoredFilename() + "-" + image.getFileSize();
+        return "\"" + content + "-" + variant + "\"";
+    }
+
+    private Instant imageLastModified(Image image) {
+        LocalDateTime uploaded = image.getUploadDate() != null ? image.getUploadDate() : image.getCreatedAt();
+        return uploaded.atZone(ZoneId.systemDefault()).toInstant();
+    }
+}
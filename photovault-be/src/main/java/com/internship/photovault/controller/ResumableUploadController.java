@@ -0,0 +1,94 @@
+package com.internship.photovault.controller;
+
+import com.internship.photovault.dto.UploadSessionRequest;
+import com.internship.photovault.entity.Image;
+import com.internship.photovault.entity.UploadSession;
+import com.internship.photovault.entity.User;
+import com.internship.photovault.service.ResumableUploadService;
+import com.internship.photovault.service.SimilarImageService;
+import com.internship.photovault.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+// Resumable uploads for large files:
+//   POST   /images/uploads                     {filename, contentType, size} -> uploadId and chunkSize
+//   PUT    /images/uploads/{id}?offset=N       raw chunk bytes, N a multiple of chunkSize; chunks may go in parallel
+//   GET    /images/uploads/{id}                received byte ranges, to resume after a dropped connection
+//   POST   /images/uploads/{id}/complete       assembles the image once every chunk is in
+//   DELETE /images/uploads/{id}                abandons the upload
+// Errors are mapped by RestExceptionHandler.
+@RestController
+@RequestMapping("/images/uploads")
+public class ResumableUploadController {
+
+    private final ResumableUploadService resumableUploadService;
+    private final UserService userService;
+    private final SimilarImageService similarImageService;
+
+    public ResumableUploadController(ResumableUploadService resumableUploadService, UserService userService,
+                                     SimilarImageService similarImageService) {
+        this.resumableUploadService = resumableUploadService;
+        this.userService = userService;
+        this.similarImageService = similarImageService;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> createSession(@RequestBody UploadSessionRequest request) throws IOException {
+        if (request.size() == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Size is required"));
+        }
+        User currentUser = userService.getCurrentUser();
+        UploadSession session = resumableUploadService.create(currentUser, request.filename(),
+                request.contentType(), request.size());
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("uploadId", session.getId());
+        body.put("chunkSize", session.getChunkSize());
+        body.put("chunkCount", session.getChunkCount());
+        body.put("expiresAt", session.getUpdatedAt().plus(resumableUploadService.getSessionTtl()));
+        return ResponseEntity.status(HttpStatus.CREATED).body(body);
+    }
+
+    // Raw body rather than multipart, the chunk is streamed straight into the staging file
+    @PutMapping("/{id}")
+    public ResponseEntity<?> uploadChunk(@PathVariable UUID id, @RequestParam long offset,
+                                         HttpServletRequest request) throws IOException {
+        User currentUser = userService.getCurrentUser();
+        try (InputStream body = request.getInputStream()) {
+            int index = resumableUploadService.writeChunk(currentUser, id, offset, request.getContentLengthLong(), body);
+            return ResponseEntity.ok(Map.of("chunk", index, "offset", offset));
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ResumableUploadService.SessionStatus> getStatus(@PathVariable UUID id) {
+        User currentUser = userService.getCurrentUser();
+        return ResponseEntity.ok(resumableUploadService.status(currentUser, id));
+    }
+
+    @PostMapping("/{id}/complete")
+    public ResponseEntity<?> complete(@PathVariable UUID id) throws IOException {
+        User currentUser = userService.getCurrentUser();
+        Image savedImage = resumableUploadService.complete(currentUser, id);
+        return ResponseEntity.ok(Map.of(
+                "message", "Image uploaded successfully",
+                "image", savedImage,
+                "nearDuplicates", similarImageService.findNearDuplicates(savedImage)
+        ));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> abort(@PathVariable UUID id) throws IOException {
+        User currentUser = userService.getCurrentUser();
+        resumableUploadService.abort(currentUser, id);
+        return ResponseEntity.noContent().build();
+    }
+}
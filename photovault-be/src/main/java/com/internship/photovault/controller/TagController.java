@@ -0,0 +1,63 @@
+package com.internship.photovault.controller;
+
+import com.internship.photovault.dto.TagUpdateRequest;
+import com.internship.photovault.entity.User;
+import com.internship.photovault.service.TagIndexService;
+import com.internship.photovault.service.TagService;
+import com.internship.photovault.service.UserService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.Set;
+
+// Tagging and faceted browsing. Flags left out of a query match both values, except deleted which
+// defaults to false (the trash is not browsed by tag unless asked for).
+@RestController
+public class TagController {
+
+    private static final int MAX_PAGE_SIZE = 200;
+
+    private final TagService tagService;
+    private final UserService userService;
+
+    public TagController(TagService tagService, UserService userService) {
+        this.tagService = tagService;
+        this.userService = userService;
+    }
+
+    @PostMapping("/images/tags")
+    public ResponseEntity<Map<String, Object>> updateTags(@RequestBody TagUpdateRequest request) {
+        User currentUser = userService.getCurrentUser();
+        return ResponseEntity.ok(tagService.updateTags(request.ids(), request.add(), request.remove(), currentUser));
+    }
+
+    @GetMapping("/tags")
+    public ResponseEntity<Map<String, Long>> getTagCounts(
+            @RequestParam(value = "favorite", required = false) Boolean favorite,
+            @RequestParam(value = "archived", required = false) Boolean archived,
+            @RequestParam(value = "deleted", defaultValue = "false") Boolean deleted) {
+        User currentUser = userService.getCurrentUser();
+        return ResponseEntity.ok(tagService.getTagCounts(currentUser, favorite, archived, deleted));
+    }
+
+    // e.g. /images/facets?all=beach,2024&none=blurry&favorite=true
+    @GetMapping("/images/facets")
+    public ResponseEntity<TagService.FacetPage> browse(
+            @RequestParam(value = "all", required = false) Set<String> all,
+            @RequestParam(value = "any", required = false) Set<String> any,
+            @RequestParam(value = "none", required = false) Set<String> none,
+            @RequestParam(value = "favorite", required = false) Boolean favorite,
+            @RequestParam(value = "archived", required = false) Boolean archived,
+            @RequestParam(value = "deleted", defaultValue = "false") Boolean deleted,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "50") int size) {
+
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        User currentUser = userService.getCurrentUser();
+        TagIndexService.Filter filter = new TagIndexService.Filter(all, any, none, favorite, archived, deleted);
+        return ResponseEntity.ok(tagService.browse(currentUser, filter, cursor, size));
+    }
+}
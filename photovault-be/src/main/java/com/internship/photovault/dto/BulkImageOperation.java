@@ -0,0 +1,24 @@
+package com.internship.photovault.dto;
+
+import java.util.Locale;
+
+// State changes that can be applied to a multi-selection in one request
+public enum BulkImageOperation {
+    TRASH,
+    RESTORE,
+    ARCHIVE,
+    UNARCHIVE,
+    FAVORITE,
+    UNFAVORITE;
+
+    public static BulkImageOperation from(String value) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("operation is required");
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported operation: " + value);
+        }
+    }
+}
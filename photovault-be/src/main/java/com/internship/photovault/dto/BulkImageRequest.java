@@ -0,0 +1,7 @@
+package com.internship.photovault.dto;
+
+import java.util.List;
+
+// Body of POST /images/bulk, operation is one of BulkImageOperation (case-insensitive)
+public record BulkImageRequest(List<Long> ids, String operation) {
+}
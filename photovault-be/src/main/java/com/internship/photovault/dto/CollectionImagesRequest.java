@@ -0,0 +1,7 @@
+package com.internship.photovault.dto;
+
+import java.util.List;
+
+// Body of POST and DELETE /collections/{id}/images
+public record CollectionImagesRequest(List<Long> ids) {
+}
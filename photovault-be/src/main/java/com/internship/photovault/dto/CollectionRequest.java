@@ -0,0 +1,5 @@
+package com.internship.photovault.dto;
+
+// Body of POST /collections and PUT /collections/{id}; a null field is left unchanged on update
+public record CollectionRequest(String name, String description, Boolean isPublic) {
+}
@@ -0,0 +1,22 @@
+package com.internship.photovault.dto;
+
+import java.time.LocalDateTime;
+
+// Collection listing row; imageCount and the cover (most recently added image) exclude trashed images.
+// coverThumbnailUrl is null for an empty collection.
+public record CollectionSummary(Long id,
+                                String name,
+                                String description,
+                                Boolean isPublic,
+                                long imageCount,
+                                Long coverImageId,
+                                String coverThumbnailUrl,
+                                LocalDateTime createdAt,
+                                LocalDateTime updatedAt) {
+
+    public CollectionSummary(Long id, String name, String description, Boolean isPublic, long imageCount,
+                             Long coverImageId, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this(id, name, description, isPublic, imageCount, coverImageId,
+                coverImageId == null ? null : "/images/" + coverImageId + "/thumbnail", createdAt, updatedAt);
+    }
+}
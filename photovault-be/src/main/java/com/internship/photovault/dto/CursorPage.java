@@ -0,0 +1,7 @@
+package com.internship.photovault.dto;
+
+import java.util.List;
+
+// One window of a keyset-paginated listing, nextCursor is null on the last window
+public record CursorPage<T>(List<T> content, String nextCursor, boolean hasNext, Long totalElements) {
+}
@@ -0,0 +1,14 @@
+package com.internship.photovault.dto;
+
+import java.time.LocalDateTime;
+
+// One file of a ZIP export, built with a JPQL constructor expression (see ImageRepository.EXPORT_SELECT).
+// crc32 comes from the blob and is null for legacy uploads and blobs stored before it was recorded.
+public record ExportEntry(Long id,
+                          String originalFilename,
+                          String storedFilename,
+                          Long fileSize,
+                          Long crc32,
+                          LocalDateTime takenAt,
+                          LocalDateTime uploadDate) {
+}
@@ -0,0 +1,7 @@
+package com.internship.photovault.dto;
+
+import java.util.List;
+
+// Body of POST /images/export
+public record ExportRequest(List<Long> ids) {
+}
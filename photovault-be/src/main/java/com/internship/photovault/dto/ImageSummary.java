@@ -0,0 +1,39 @@
+package com.internship.photovault.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Read-only gallery tile, built with a JPQL constructor expression instead of loading Image entities.
+// Tags are attached afterwards with one batched query per page, see ImageService#withTags.
+public record ImageSummary(Long id,
+                           String originalFilename,
+                           Long fileSize,
+                           String contentType,
+                           LocalDateTime uploadDate,
+                           Boolean isFavorite,
+                           Boolean isArchived,
+                           Boolean isDeleted,
+                           Integer width,
+                           Integer height,
+                           String thumbnailUrl,
+                           List<String> tags) {
+
+    // Must match the column order of ImageRepository.SUMMARY_SELECT.
+    // width and height are the displayed size, i.e. swapped for EXIF orientations that rotate by 90 degrees.
+    public ImageSummary(Long id, String originalFilename, Long fileSize, String contentType,
+                        LocalDateTime uploadDate, Boolean isFavorite, Boolean isArchived, Boolean isDeleted,
+                        Integer width, Integer height, Integer orientation) {
+        this(id, originalFilename, fileSize, contentType, uploadDate, isFavorite, isArchived, isDeleted,
+                rotated(orientation) ? height : width, rotated(orientation) ? width : height,
+                "/images/" + id + "/thumbnail", List.of());
+    }
+
+    private static boolean rotated(Integer orientation) {
+        return orientation != null && orientation >= 5 && orientation <= 8;
+    }
+
+    public ImageSummary withTags(List<String> tags) {
+        return new ImageSummary(id, originalFilename, fileSize, contentType, uploadDate,
+                isFavorite, isArchived, isDeleted, width, height, thumbnailUrl, List.copyOf(tags));
+    }
+}
@@ -0,0 +1,6 @@
+package com.internship.photovault.dto;
+
+// An image that looks like the one asked about; distance is the number of differing perceptual hash
+// bits out of 64, 0 for a visually identical copy
+public record SimilarImage(ImageSummary image, int distance) {
+}
@@ -0,0 +1,7 @@
+package com.internship.photovault.dto;
+
+import java.util.List;
+
+// Body of POST /images/tags: tags in add are put on every image in ids, tags in remove are taken off
+public record TagUpdateRequest(List<Long> ids, List<String> add, List<String> remove) {
+}
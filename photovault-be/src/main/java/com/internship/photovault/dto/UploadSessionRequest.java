@@ -0,0 +1,5 @@
+package com.internship.photovault.dto;
+
+// Body of POST /images/uploads, size is the exact length of the file in bytes
+public record UploadSessionRequest(String filename, String contentType, Long size) {
+}
@@ -5,52 +5,56 @@ import jakarta.persistence.*;
 //import lombok.Generated;
 import lombok.Getter;
 import lombok.Setter;
-import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.ColumnTransformer;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
+// One audited change, written in batches by AuditService. Updates only carry the fields that changed.
 @Entity
 @Setter
 @Getter
 @Table(name = "audit_logs")
 public class AuditLog {
     @Id
-    @GeneratedValue(strategy = jakarta.persistence.GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "audit_logs_seq")
+    // matches INCREMENT BY 50 on audit_logs_id_seq (V17), ids are handed out without a query per row
+    @SequenceGenerator(name = "audit_logs_seq", sequenceName = "audit_logs_id_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "user_id")
-    private User user;
+    // plain id, the writer never needs the User entity
+    @Column(name = "user_id")
+    private Long userId;
 
-/*    @Column(name = "action", nullable = false)
-    private String action;*/
+    @Column(name = "action", nullable = false, length = 100)
+    private String action;
 
-    @Column(name = "entity_type", nullable = false)
+    @Column(name = "entity_type", nullable = false, length = 50)
     private String entityType;
 
     @Column(name = "entity_id", nullable = false)
     private Long entityId;
 
-    @Column(name = "old_value", columnDefinition = "TEXT")
-    private String oldValue;
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "old_values", columnDefinition = "jsonb")
+    private Map<String, Object> oldValues;
 
-    @Column(name = "new_value", columnDefinition = "TEXT")
-    private String newValue;
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "new_values", columnDefinition = "jsonb")
+    private Map<String, Object> newValues;
 
-/*
-    @Column(name = "timestamp", nullable = false)
-    private Long timestamp;
-*/
-
-    @Column(name = "ip_address")
+    @Column(name = "ip_address", columnDefinition = "inet")
+    @ColumnTransformer(write = "CAST(? AS inet)")
     private String ipAddress;
 
-    @Column(name = "user_agent")
+    @Column(name = "user_agent", columnDefinition = "TEXT")
     private String userAgent;
 
     @Column(name = "session_id")
     private String sessionId;
 
-    @CreationTimestamp
-    private LocalDateTime createdAt;
+    @Column(name = "timestamp")
+    private LocalDateTime timestamp;
 }
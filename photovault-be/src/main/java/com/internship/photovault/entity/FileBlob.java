@@ -0,0 +1,47 @@
+package com.internship.photovault.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+// Content-addressed physical file, shared by every Image row with the same checksum
+@Entity
+@Table(name = "file_blobs")
+@Getter
+@Setter
+public class FileBlob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "checksum_sha256", unique = true, nullable = false, length = 64)
+    private String checksumSha256;
+
+    @Column(name = "stored_filename", nullable = false)
+    private String storedFilename;
+
+    @Column(name = "file_path", nullable = false, length = 500)
+    private String filePath;
+
+    @Column(name = "file_size", nullable = false)
+    private Long fileSize;
+
+    @Column(name = "content_type", nullable = false)
+    private String contentType;
+
+    // CRC-32 of the content, lets ZIP exports write STORED entries without reading the file twice.
+    // Null for blobs stored before it was recorded.
+    @Column(name = "crc32")
+    private Long crc32;
+
+    // number of Image rows pointing at this blob, the file goes when it drops to 0
+    @Column(name = "ref_count", nullable = false)
+    private Long refCount = 0L;
+
+    @CreationTimestamp
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+}
@@ -60,6 +60,25 @@ public class Image {
     @Column(name = "is_deleted")
     private Boolean isDeleted = false;
 
+    // when the image went to trash, drives the retention of the purge job
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+
+    // read from the file header at upload, see ImageMetadataExtractor; null for older uploads
+    @Column(name = "width")
+    private Integer width;
+
+    @Column(name = "height")
+    private Integer height;
+
+    // EXIF orientation 1-8, null when the file has none
+    @Column(name = "orientation")
+    private Integer orientation;
+
+    // EXIF DateTimeOriginal
+    @Column(name = "taken_at")
+    private LocalDateTime takenAt;
+
     @CreationTimestamp
     @Column(name = "created_at")
     private LocalDateTime createdAt;
@@ -77,6 +96,22 @@ public class Image {
     @Column(name = "checksum_sha256")
     private String checksumSha256;
 
+    // perceptual hash for near-duplicate lookups, see PerceptualHasher; null until computed
+    @Column(name = "dhash")
+    @JsonIgnore
+    private Long perceptualHash;
+
+    // when hashing failed for good (undecodable or missing file), keeps the backfill from retrying it
+    @Column(name = "dhash_attempted_at")
+    @JsonIgnore
+    private LocalDateTime perceptualHashAttemptedAt;
+
+    // shared content-addressed file, null for legacy uploads that own their file
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "blob_id")
+    @JsonIgnore
+    private FileBlob blob;
+
     @ManyToMany
     @JoinTable(
             name = "image_tags",
@@ -0,0 +1,49 @@
+package com.internship.photovault.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Resumable upload in progress. The bytes are assembled in a staging file named after the id,
+// received chunks are tracked in upload_session_chunks (see UploadSessionRepository).
+@Entity
+@Table(name = "upload_sessions")
+@Getter
+@Setter
+public class UploadSession {
+    @Id
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(name = "original_filename", nullable = false)
+    private String originalFilename;
+
+    // declared by the client, the finalized file is sniffed like any other upload
+    @Column(name = "content_type", nullable = false, length = 100)
+    private String contentType;
+
+    @Column(name = "total_size", nullable = false)
+    private Long totalSize;
+
+    @Column(name = "chunk_size", nullable = false)
+    private Integer chunkSize;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    // last chunk received, stale sessions are collected by this
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public int getChunkCount() {
+        return (int) ((totalSize + chunkSize - 1) / chunkSize);
+    }
+}
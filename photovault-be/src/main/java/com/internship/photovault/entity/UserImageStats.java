@@ -0,0 +1,36 @@
+package com.internship.photovault.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// Incrementally maintained per-user counters, written through UserImageStatsRepository#applyDelta only
+@Entity
+@Table(name = "user_image_stats")
+@Getter
+@Setter
+public class UserImageStats {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "active_count", nullable = false)
+    private Long activeCount = 0L;
+
+    @Column(name = "favorite_count", nullable = false)
+    private Long favoriteCount = 0L;
+
+    @Column(name = "archived_count", nullable = false)
+    private Long archivedCount = 0L;
+
+    @Column(name = "trash_count", nullable = false)
+    private Long trashCount = 0L;
+
+    @Column(name = "total_bytes", nullable = false)
+    private Long totalBytes = 0L;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,40 @@
+package com.internship.photovault.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+// Change counter of one user's in-memory index (see IndexVersions), written through
+// UserIndexVersionRepository#bumpIndexVersion only
+@Entity
+@Table(name = "user_index_versions")
+@IdClass(UserIndexVersion.Key.class)
+@Getter
+@Setter
+public class UserIndexVersion {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "index_name", length = 32)
+    private String indexName;
+
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private Long userId;
+        private String indexName;
+    }
+}
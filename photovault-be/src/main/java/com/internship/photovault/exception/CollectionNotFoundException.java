@@ -0,0 +1,7 @@
+package com.internship.photovault.exception;
+
+public class CollectionNotFoundException extends RuntimeException {
+    public CollectionNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.internship.photovault.exception;
+
+// Every export slot is taken, the client should retry later
+public class ExportLimitExceededException extends RuntimeException {
+    public ExportLimitExceededException(String message) {
+        super(message);
+    }
+}
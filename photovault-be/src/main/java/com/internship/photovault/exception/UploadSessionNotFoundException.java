@@ -0,0 +1,8 @@
+package com.internship.photovault.exception;
+
+// Unknown, expired, finished or someone else's resumable upload session
+public class UploadSessionNotFoundException extends RuntimeException {
+    public UploadSessionNotFoundException(String message) {
+        super(message);
+    }
+}
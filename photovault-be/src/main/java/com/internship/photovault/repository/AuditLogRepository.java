@@ -1,4 +1,9 @@
 package com.internship.photovault.repository;
 
-public class AuditLogRepository {
+import com.internship.photovault.entity.AuditLog;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
 }
@@ -0,0 +1,26 @@
+package com.internship.photovault.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+// Opaque keyset position in a collection: when the last image seen was added, and its id
+public record CollectionCursor(LocalDateTime addedAt, Long imageId) {
+
+    private static final String SEPARATOR = "\n";
+
+    public String encode() {
+        String raw = imageId + SEPARATOR + addedAt;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static CollectionCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR, 2);
+            return new CollectionCursor(LocalDateTime.parse(parts[1]), Long.valueOf(parts[0]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.internship.photovault.repository;
+
+import com.internship.photovault.entity.Collection;
+import com.internship.photovault.entity.User;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CollectionRepository extends JpaRepository<Collection, Long> {
+
+    // Listing rows with the image count and the cover image, one statement for any number of collections.
+    // The count is the maintained image_count column (V26), the cover a LATERAL subquery that stops at the
+    // first row of idx_collection_images_added (V23); column order matches the CollectionSummary constructor.
+    String SUMMARY_SELECT = "SELECT c.id, c.name, c.description, c.is_public, c.image_count, cover.image_id, " +
+            "c.created_at, c.updated_at FROM collections c " +
+            "LEFT JOIN LATERAL (SELECT ci.image_id FROM collection_images ci " +
+            "JOIN images i ON i.id = ci.image_id WHERE ci.collection_id = c.id AND i.is_deleted = false " +
+            "ORDER BY ci.added_at DESC, ci.image_id DESC LIMIT 1) cover ON true ";
+
+    Optional<Collection> findByIdAndUser(Long id, User user);
+
+    boolean existsByUserAndName(User user, String name);
+
+    @Query(value = SUMMARY_SELECT + "WHERE c.user_id = :userId ORDER BY lower(c.name), c.id", nativeQuery = true)
+    List<Object[]> findSummaries(@Param("userId") Long userId);
+
+    @Query(value = SUMMARY_SELECT + "WHERE c.user_id = :userId AND c.id = :id", nativeQuery = true)
+    List<Object[]> findSummary(@Param("userId") Long userId, @Param("id") Long id);
+
+    // Adds the owned, non-trashed images among ids in one statement and returns how many were new.
+    // Images already in the collection are skipped; updated_at and image_count only move when something was
+    // added. The images are share-locked, so a concurrent trash either waits for this insert and then counts
+    // the new rows, or commits first and the re-checked is_deleted leaves the image out.
+    @Transactional
+    @Query(value = "WITH added AS (" +
+            "INSERT INTO collection_images (collection_id, image_id, added_at) " +
+            "SELECT :collectionId, i.id, CURRENT_TIMESTAMP FROM images i " +
+            "WHERE i.user_id = :userId AND i.id IN (:ids) AND i.is_deleted = false FOR SHARE " +
+            "ON CONFLICT DO NOTHING RETURNING image_id), " +
+            "touched AS (UPDATE collections SET updated_at = CURRENT_TIMESTAMP, " +
+            "image_count = image_count + (SELECT count(*) FROM added) " +
+            "WHERE id = :collectionId AND EXISTS (SELECT 1 FROM added)) " +
+            "SELECT count(*) FROM added", nativeQuery = true)
+    long addImages(@Param("collectionId") Long collectionId, @Param("userId") Long userId,
+                   @Param("ids") java.util.Collection<Long> ids);
+
+    // Removes the members among ids and returns how many went; only non-trashed ones were counted in
+    // image_count. The images are share-locked for the same reason as in addImages.
+    @Transactional
+    @Query(value = "WITH members AS (SELECT i.id, i.is_deleted FROM images i " +
+            "JOIN collection_images ci ON ci.image_id = i.id AND ci.collection_id = :collectionId " +
+            "WHERE i.id IN (:ids) FOR SHARE OF i), " +
+            "removed AS (DELETE FROM collection_images ci USING members m " +
+            "WHERE ci.collection_id = :collectionId AND ci.image_id = m.id RETURNING ci.image_id, m.is_deleted), " +
+            "touched AS (UPDATE collections SET updated_at = CURRENT_TIMESTAMP, " +
+            "image_count = image_count - (SELECT count(*) FROM removed WHERE is_deleted = false) " +
+            "WHERE id = :collectionId AND EXISTS (SELECT 1 FROM removed)) " +
+            "SELECT count(*) FROM removed", nativeQuery = true)
+    long removeImages(@Param("collectionId") Long collectionId, @Param("ids") java.util.Collection<Long> ids);
+
+    // Moves image_count of every collection holding one of imageIds by delta per member: -1 when they go to
+    // the trash (or are deleted from outside it), +1 when restored. Callers hold the image rows locked.
+    // Collections are locked in id order so two overlapping bulk changes cannot deadlock.
+    @Transactional
+    @Modifying
+    @Query(value = "WITH members AS (SELECT collection_id, count(*) AS member_count FROM collection_images " +
+            "WHERE image_id IN (:imageIds) GROUP BY collection_id), " +
+            "locked AS (SELECT c.id FROM collections c JOIN members m ON m.collection_id = c.id " +
+            "ORDER BY c.id FOR UPDATE OF c) " +
+            "UPDATE collections c SET image_count = c.image_count + :delta * m.member_count " +
+            "FROM members m JOIN locked l ON l.id = m.collection_id WHERE c.id = m.collection_id",
+            nativeQuery = true)
+    int adjustImageCounts(@Param("imageIds") java.util.Collection<Long> imageIds, @Param("delta") int delta);
+
+    // Keyset windows over the contents, newest added first: (image_id, added_at) rows
+    @Query(value = "SELECT ci.image_id, ci.added_at FROM collection_images ci " +
+            "JOIN images i ON i.id = ci.image_id " +
+            "WHERE ci.collection_id = :collectionId AND i.is_deleted = false " +
+            "ORDER BY ci.added_at DESC, ci.image_id DESC LIMIT :limit", nativeQuery = true)
+    List<Object[]> findImageIds(@Param("collectionId") Long collectionId, @Param("limit") int limit);
+
+    @Query(value = "SELECT ci.image_id, ci.added_at FROM collection_images ci " +
+            "JOIN images i ON i.id = ci.image_id " +
+            "WHERE ci.collection_id = :collectionId AND i.is_deleted = false " +
+            "AND (ci.added_at, ci.image_id) < (:addedAt, :imageId) " +
+            "ORDER BY ci.added_at DESC, ci.image_id DESC LIMIT :limit", nativeQuery = true)
+    List<Object[]> findImageIdsAfter(@Param("collectionId") Long collectionId,
+                                     @Param("addedAt") LocalDateTime addedAt,
+                                     @Param("imageId") Long imageId,
+                                     @Param("limit") int limit);
+}
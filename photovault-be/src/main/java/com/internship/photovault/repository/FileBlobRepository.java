@@ -0,0 +1,68 @@
+package com.internship.photovault.repository;
+
+import com.internship.photovault.entity.FileBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface FileBlobRepository extends JpaRepository<FileBlob, Long> {
+
+    Optional<FileBlob> findByChecksumSha256(String checksumSha256);
+
+    // Serializes acquire/release of the same checksum until the surrounding transaction ends
+    @Query(value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock(hashtext(:checksum))) AS checksum_lock", nativeQuery = true)
+    Integer lockChecksum(@Param("checksum") String checksum);
+
+    // Insert the blob with one reference, or add a reference when another upload created it first.
+    // Blobs stored before crc32 was recorded pick it up from the next upload of the same content.
+    @Transactional
+    @Query(value = "INSERT INTO file_blobs (checksum_sha256, stored_filename, file_path, file_size, content_type, crc32, ref_count, created_at) " +
+            "VALUES (:checksum, :storedFilename, :filePath, :fileSize, :contentType, :crc32, 1, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (checksum_sha256) DO UPDATE SET ref_count = file_blobs.ref_count + 1, " +
+            "crc32 = COALESCE(file_blobs.crc32, EXCLUDED.crc32) " +
+            "RETURNING id", nativeQuery = true)
+    Long upsertReference(@Param("checksum") String checksum,
+                         @Param("storedFilename") String storedFilename,
+                         @Param("filePath") String filePath,
+                         @Param("fileSize") Long fileSize,
+                         @Param("contentType") String contentType,
+                         @Param("crc32") Long crc32);
+
+    @Modifying
+    @Query("UPDATE FileBlob b SET b.refCount = CASE WHEN b.refCount > :references THEN b.refCount - :references ELSE 0 END " +
+            "WHERE b.id = :id AND b.refCount > 0")
+    int decrementRefCount(@Param("id") Long id, @Param("references") long references);
+
+    @Modifying
+    @Query("DELETE FROM FileBlob b WHERE b.id = :id AND b.refCount <= 0")
+    int deleteIfUnreferenced(@Param("id") Long id);
+
+    // Keyset page over all blobs, for the storage layout migrator
+    @Query(value = "SELECT * FROM file_blobs WHERE id > :afterId ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<FileBlob> findBatchAfter(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE FileBlob b SET b.filePath = :filePath WHERE b.id = :id")
+    int updateFilePath(@Param("id") Long id, @Param("filePath") String filePath);
+
+    // Keyset page over the duplicate files V12 left without a row: (id, stored_filename, still referenced).
+    // Locked so two migrator runs never remove the same file twice.
+    @Query(value = "SELECT o.id, o.stored_filename, " +
+            "EXISTS (SELECT 1 FROM images i WHERE i.stored_filename = o.stored_filename) " +
+            "OR EXISTS (SELECT 1 FROM file_blobs b WHERE b.stored_filename = o.stored_filename) " +
+            "FROM orphaned_files o WHERE o.id > :afterId ORDER BY o.id LIMIT :limit FOR UPDATE OF o SKIP LOCKED",
+            nativeQuery = true)
+    List<Object[]> lockOrphanedFilesAfter(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "DELETE FROM orphaned_files WHERE id IN (:ids)", nativeQuery = true)
+    int deleteOrphanedFiles(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,37 @@
+package com.internship.photovault.repository;
+
+import com.internship.photovault.dto.ImageSummary;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Opaque keyset position: the sort key and id of the last row a client has seen. A null sort key is written
+// without a value field, so it cannot be confused with a value (an empty or "null" filename)
+public record ImageCursor(ImageSort sort, Comparable<?> value, Long id) {
+
+    private static final String SEPARATOR = "\n";
+
+    public static ImageCursor after(ImageSummary image, ImageSort sort) {
+        return new ImageCursor(sort, sort.valueOf(image), image.id());
+    }
+
+    public String encode() {
+        String raw = sort.name() + SEPARATOR + id + (value == null ? "" : SEPARATOR + value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ImageCursor decode(String token, ImageSort expectedSort) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR, 3);
+            ImageSort sort = ImageSort.valueOf(parts[0]);
+            if (sort != expectedSort) {
+                throw new IllegalArgumentException("Cursor was issued for a different sort order");
+            }
+            Comparable<?> value = parts.length == 3 ? sort.parse(parts[2]) : null;
+            return new ImageCursor(sort, value, Long.valueOf(parts[1]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
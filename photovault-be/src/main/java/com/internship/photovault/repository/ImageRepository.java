@@ -1,20 +1,25 @@
 package com.internship.photovault.repository;
 
+import com.internship.photovault.dto.ExportEntry;
+import com.internship.photovault.dto.ImageSummary;
 import com.internship.photovault.entity.Image;
 import com.internship.photovault.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 // Early creation blank test
 //@Repository
-//public interface ImageRepository extends JpaRepository<Image, Long> {
+//public interface ImageRepository extends JpaRepository<Image, Long>, ImageRepositoryCustom {
 //    // Spring Data JPA will automatically implement all basic CRUD methods.
 //    // We can add custom query methods here later if needed.
 //    List<Image> findByIsArchivedAndIsInTrash(boolean isArchived, boolean isInTrash, Sort sort);
@@ -22,7 +27,12 @@ import java.util.Optional;
 //}
 
 @Repository
-public interface ImageRepository extends JpaRepository<Image, Long> {
+public interface ImageRepository extends JpaRepository<Image, Long>, ImageRepositoryCustom {
+
+    // Projection used by the list endpoints, see ImageSummary
+    String SUMMARY_SELECT = "SELECT new com.internship.photovault.dto.ImageSummary(i.id, i.originalFilename, i.fileSize, "
+            + "i.contentType, i.uploadDate, i.isFavorite, i.isArchived, i.isDeleted, i.width, i.height, i.orientation) "
+            + "FROM Image i ";
 
     Page<Image> findByUserAndIsArchivedTrueAndIsDeletedFalse(User user, Pageable pageable);
     Page<Image> findByUserAndIsDeletedFalse(User user, Boolean isDeleted, Pageable pageable);
@@ -33,8 +43,32 @@ public interface ImageRepository extends JpaRepository<Image, Long> {
     Optional<Image> findByStoredFilename(String filename);
     Optional<Image> findByChecksumSha256AndUser(String checksumSha256, User user);
 
-    @Query("SELECT i FROM Image i WHERE i.user = :user AND i.isDeleted = false AND i.isArchived = false ORDER BY i.uploadDate DESC")
-    Page<Image> findAllActiveImages(@Param("user") User user, @Param("isDeleted") Boolean isDeleted, Pageable pageable);
+    @Query("SELECT i.checksumSha256 FROM Image i WHERE i.user = :user AND i.checksumSha256 IN :checksums")
+    List<String> findExistingChecksums(@Param("user") User user, @Param("checksums") Collection<String> checksums);
+
+    // ordering comes from the Pageable, see ImageSort for the accepted orders
+    @Query(value = SUMMARY_SELECT + "WHERE i.user = :user AND i.isDeleted = false AND i.isArchived = false",
+            countQuery = "SELECT COUNT(i) FROM Image i WHERE i.user = :user AND i.isDeleted = false AND i.isArchived = false")
+    Page<ImageSummary> findActiveSummaries(@Param("user") User user, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE i.id IN :ids")
+    List<ImageSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Projection used by ZIP exports, see ExportEntry
+    String EXPORT_SELECT = "SELECT new com.internship.photovault.dto.ExportEntry(i.id, i.originalFilename, i.storedFilename, "
+            + "i.fileSize, b.crc32, i.takenAt, i.uploadDate) ";
+
+    @Query(EXPORT_SELECT + "FROM Image i LEFT JOIN i.blob b "
+            + "WHERE i.user = :user AND i.id IN :ids AND i.isDeleted = false ORDER BY i.id")
+    List<ExportEntry> findExportEntries(@Param("user") User user, @Param("ids") Collection<Long> ids);
+
+    @Query(EXPORT_SELECT + "FROM Collection c JOIN c.images i LEFT JOIN i.blob b "
+            + "WHERE c.id = :collectionId AND i.user = :user AND i.isDeleted = false ORDER BY i.id")
+    List<ExportEntry> findCollectionExportEntries(@Param("user") User user, @Param("collectionId") Long collectionId);
+
+    // (imageId, tagName) pairs for a whole page of images in one round trip
+    @Query("SELECT i.id, t.name FROM Image i JOIN i.tags t WHERE i.id IN :ids ORDER BY t.name")
+    List<Object[]> findTagNamesByImageIds(@Param("ids") Collection<Long> ids);
 
     @Query("SELECT i FROM Image i WHERE i.isDeleted = false AND i.isArchived = false ORDER BY i.uploadDate DESC")
     List<Image> findAllActiveImages();
@@ -47,22 +81,130 @@ public interface ImageRepository extends JpaRepository<Image, Long> {
     @Query("SELECT i FROM Image i WHERE i.isDeleted = false ORDER BY i.uploadDate DESC")
     Page<Image> findAllDeleted(Pageable pageable);
 
-    @Query("SELECT i FROM Image i WHERE i.isDeleted = true ORDER BY i.uploadDate DESC")
-    List<Image> findAllDeleted();
+    // Next chunk of trash that expired before the cutoff, walked in (deletedAt, id) order.
+    // Rows locked by a concurrent restore or delete are skipped and picked up by the next run.
+    @Query(value = "SELECT * FROM images WHERE is_deleted = true AND deleted_at < :cutoff " +
+            "AND (deleted_at, id) > (:afterDeletedAt, :afterId) " +
+            "ORDER BY deleted_at, id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Image> lockExpiredTrashAfter(@Param("cutoff") LocalDateTime cutoff,
+                                      @Param("afterDeletedAt") LocalDateTime afterDeletedAt,
+                                      @Param("afterId") long afterId,
+                                      @Param("limit") int limit);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Image i WHERE i.id IN :ids")
+    int deleteAllByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Legacy uploads (no blob) own their file; rows being deleted or migrated elsewhere are skipped
+    @Query(value = "SELECT * FROM images WHERE blob_id IS NULL AND id > :afterId " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Image> lockLegacyFilesAfter(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE Image i SET i.filePath = :filePath WHERE i.blob.id = :blobId")
+    int updateFilePathByBlob(@Param("blobId") Long blobId, @Param("filePath") String filePath);
+
+    @Modifying
+    @Query("UPDATE Image i SET i.filePath = :filePath WHERE i.id = :id")
+    int updateFilePath(@Param("id") Long id, @Param("filePath") String filePath);
+
+//  perceptual hashes, see SimilarityIndexService and PerceptualHashBackfill
+    @Query(value = "SELECT id, dhash FROM images WHERE user_id = :userId AND dhash IS NOT NULL", nativeQuery = true)
+    List<Object[]> findPerceptualHashes(@Param("userId") Long userId);
+
+    // (id, user_id, stored_filename, orientation) of rows still without a hash and not given up on, in id order
+    @Query(value = "SELECT id, user_id, stored_filename, orientation FROM images " +
+            "WHERE dhash IS NULL AND dhash_attempted_at IS NULL AND id > :afterId ORDER BY id LIMIT :limit",
+            nativeQuery = true)
+    List<Object[]> findPendingPerceptualHashes(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE Image i SET i.perceptualHashAttemptedAt = CURRENT_TIMESTAMP " +
+            "WHERE i.id IN :ids AND i.perceptualHash IS NULL")
+    int markPerceptualHashAttempted(@Param("ids") Collection<Long> ids);
+
+    // a row deleted in the meantime simply updates nothing
+    @Modifying
+    @Query("UPDATE Image i SET i.perceptualHash = :hash WHERE i.id = :id AND i.perceptualHash IS NULL")
+    int updatePerceptualHash(@Param("id") Long id, @Param("hash") long hash);
 
 //  other categories
-    @Query("SELECT i FROM Image i WHERE i.user = :user AND i.isFavorite = true AND i.isDeleted = false ORDER BY i.uploadDate DESC")
-    List<Image> findFavoriteImages(@Param("user") User user);
+    @Query(SUMMARY_SELECT + "WHERE i.user = :user AND i.isFavorite = true AND i.isDeleted = false ORDER BY i.uploadDate DESC")
+    List<ImageSummary> findFavoriteSummaries(@Param("user") User user);
 
-    @Query("SELECT i FROM Image i WHERE i.user = :user AND i.isArchived = true AND i.isDeleted = false ORDER BY i.uploadDate DESC")
-    List<Image> findArchivedImages(@Param("user") User user);
+    @Query(SUMMARY_SELECT + "WHERE i.user = :user AND i.isArchived = true AND i.isDeleted = false ORDER BY i.uploadDate DESC")
+    List<ImageSummary> findArchivedSummaries(@Param("user") User user);
 
-    @Query("SELECT i FROM Image i WHERE i.user = :user AND i.isDeleted = true ORDER BY i.uploadDate DESC")
-    List<Image> findTrashImages(@Param("user") User user);
+    @Query(SUMMARY_SELECT + "WHERE i.user = :user AND i.isDeleted = true ORDER BY i.uploadDate DESC")
+    List<ImageSummary> findTrashSummaries(@Param("user") User user);
 
 //  search methods
-    @Query("SELECT i FROM Image i WHERE i.user = :user AND i.originalFilename ILIKE %:searchTerm% AND i.isDeleted = false AND i.isArchived = false ORDER BY i.uploadDate DESC")
-    List<Image> searchByOriginalFilename(@Param("searchTerm") String searchTerm, @Param("user") User user);
+    // Ranked ids of active images whose filename or tags match, see V14 for the backing indexes.
+    // :pattern is the ILIKE form of :term with %, _ and the backslash already escaped.
+    @Query(value = """
+            SELECT m.id FROM (
+                SELECT i.id, i.upload_date,
+                       GREATEST(word_similarity(:term, i.original_filename),
+                                ts_rank(photovault_filename_tsv(i.original_filename), plainto_tsquery('simple', :term))) AS score
+                FROM images i
+                WHERE i.user_id = :userId AND i.is_deleted = false AND i.is_archived = false
+                  AND (i.original_filename ILIKE :pattern ESCAPE '\\'
+                       OR photovault_filename_tsv(i.original_filename) @@ plainto_tsquery('simple', :term))
+                UNION ALL
+                SELECT i.id, i.upload_date, word_similarity(:term, t.name) AS score
+                FROM tags t
+                JOIN image_tags it ON it.tag_id = t.id
+                JOIN images i ON i.id = it.image_id
+                WHERE t.name ILIKE :pattern ESCAPE '\\'
+                  AND i.user_id = :userId AND i.is_deleted = false AND i.is_archived = false
+            ) m
+            GROUP BY m.id, m.upload_date
+            ORDER BY MAX(m.score) DESC, m.upload_date DESC, m.id DESC
+            LIMIT :limit OFFSET :offset
+            """, nativeQuery = true)
+    List<Long> searchActiveImageIds(@Param("userId") Long userId, @Param("term") String term,
+                                    @Param("pattern") String pattern,
+                                    @Param("limit") int limit, @Param("offset") long offset);
+
+    @Query(value = """
+            SELECT COUNT(*) FROM (
+                SELECT i.id
+                FROM images i
+                WHERE i.user_id = :userId AND i.is_deleted = false AND i.is_archived = false
+                  AND (i.original_filename ILIKE :pattern ESCAPE '\\'
+                       OR photovault_filename_tsv(i.original_filename) @@ plainto_tsquery('simple', :term))
+                UNION
+                SELECT it.image_id
+                FROM tags t
+                JOIN image_tags it ON it.tag_id = t.id
+                JOIN images i ON i.id = it.image_id
+                WHERE t.name ILIKE :pattern ESCAPE '\\'
+                  AND i.user_id = :userId AND i.is_deleted = false AND i.is_archived = false
+            ) m
+            """, nativeQuery = true)
+    long countActiveImageMatches(@Param("userId") Long userId, @Param("term") String term,
+                                 @Param("pattern") String pattern);
+
+//  bulk state changes, callers pass only ids they have already checked and locked
+    @Query(value = "SELECT id, is_favorite, is_archived, is_deleted, file_size FROM images " +
+            "WHERE user_id = :userId AND id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Object[]> lockOwnedImageStates(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE Image i SET i.isDeleted = :value, i.deletedAt = CASE WHEN :value = true THEN :now ELSE NULL END, " +
+            "i.updatedAt = :now WHERE i.user = :user AND i.id IN :ids")
+    int updateDeletedFlag(@Param("user") User user, @Param("ids") Collection<Long> ids,
+                          @Param("value") boolean value, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Image i SET i.isArchived = :value, i.updatedAt = :now WHERE i.user = :user AND i.id IN :ids")
+    int updateArchivedFlag(@Param("user") User user, @Param("ids") Collection<Long> ids,
+                           @Param("value") boolean value, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Image i SET i.isFavorite = :value, i.updatedAt = :now WHERE i.user = :user AND i.id IN :ids")
+    int updateFavoriteFlag(@Param("user") User user, @Param("ids") Collection<Long> ids,
+                           @Param("value") boolean value, @Param("now") LocalDateTime now);
 
 //  count methods
     @Query("SELECT COUNT(i) FROM Image i WHERE i.user = :user AND i.isDeleted = false AND i.isArchived = false")
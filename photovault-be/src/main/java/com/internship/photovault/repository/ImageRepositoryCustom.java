@@ -0,0 +1,12 @@
+package com.internship.photovault.repository;
+
+import com.internship.photovault.dto.ImageSummary;
+import com.internship.photovault.entity.User;
+
+import java.util.List;
+
+public interface ImageRepositoryCustom {
+
+    // Active (non-deleted, non-archived) images strictly after the cursor, no OFFSET and no COUNT
+    List<ImageSummary> findActiveSummariesAfter(User user, ImageSort sort, ImageCursor after, int limit);
+}
@@ -0,0 +1,98 @@
+package com.internship.photovault.repository;
+
+import com.internship.photovault.dto.ImageSummary;
+import com.internship.photovault.entity.Image;
+import com.internship.photovault.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ImageRepositoryImpl implements ImageRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Keyset window after the cursor in ImageSort order. A null key counts as larger than any value, so
+    // descending the null keys come first and ascending last; they are fetched as their own index range
+    // (key IS NULL) instead of OR-ing them into the value range, and the value range carries key <= v
+    // (>= ascending) next to the tie-break on id so the index scan starts at the cursor, see V13/V27.
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public List<ImageSummary> findActiveSummariesAfter(User user, ImageSort sort, ImageCursor after, int limit) {
+        if (after == null) {
+            return findRange(user, sort, null, limit);
+        }
+        boolean descending = sort.getDirection() == Sort.Direction.DESC;
+        Long afterId = after.id();
+        Comparable value = after.value();
+
+        List<ImageSummary> rows;
+        if (value == null) {
+            rows = findRange(user, sort, (cb, key, id) -> cb.and(cb.isNull(key),
+                    descending ? cb.lessThan(id, afterId) : cb.greaterThan(id, afterId)), limit);
+            if (descending && rows.size() < limit) {
+                rows.addAll(findRange(user, sort, (cb, key, id) -> cb.isNotNull(key), limit - rows.size()));
+            }
+            return rows;
+        }
+        rows = findRange(user, sort, (cb, key, id) -> descending
+                ? cb.and(cb.lessThanOrEqualTo(key, value),
+                        cb.or(cb.lessThan(key, value), cb.lessThan(id, afterId)))
+                : cb.and(cb.greaterThanOrEqualTo(key, value),
+                        cb.or(cb.greaterThan(key, value), cb.greaterThan(id, afterId))), limit);
+        if (!descending && rows.size() < limit) {
+            rows.addAll(findRange(user, sort, (cb, key, id) -> cb.isNull(key), limit - rows.size()));
+        }
+        return rows;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private interface Range {
+        Predicate build(CriteriaBuilder cb, Expression<Comparable> key, Expression<Long> id);
+    }
+
+    private List<ImageSummary> findRange(User user, ImageSort sort, Range range, int limit) {
+        // Hibernate's builder for the NULLS FIRST/LAST ordering
+        HibernateCriteriaBuilder cb = (HibernateCriteriaBuilder) entityManager.getCriteriaBuilder();
+        CriteriaQuery<ImageSummary> query = cb.createQuery(ImageSummary.class);
+        Root<Image> image = query.from(Image.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(image.get("user"), user));
+        predicates.add(cb.equal(image.get("isDeleted"), false));
+        predicates.add(cb.equal(image.get("isArchived"), false));
+        if (range != null) {
+            predicates.add(range.build(cb, image.get(sort.getProperty()), image.get("id")));
+        }
+
+        // same columns as ImageRepository.SUMMARY_SELECT
+        query.select(cb.construct(ImageSummary.class,
+                        image.get("id"), image.get("originalFilename"), image.get("fileSize"),
+                        image.get("contentType"), image.get("uploadDate"), image.get("isFavorite"),
+                        image.get("isArchived"), image.get("isDeleted"), image.get("width"),
+                        image.get("height"), image.get("orientation")))
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(sort.getDirection() == Sort.Direction.DESC
+                                ? cb.desc(image.get(sort.getProperty()), sort.nullsFirst())
+                                : cb.asc(image.get(sort.getProperty()), sort.nullsFirst()),
+                        order(cb, image.get("id"), sort));
+
+        return new ArrayList<>(entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList());
+    }
+
+    private Order order(CriteriaBuilder cb, Expression<?> expression, ImageSort sort) {
+        return sort.getDirection() == Sort.Direction.DESC ? cb.desc(expression) : cb.asc(expression);
+    }
+}
@@ -0,0 +1,71 @@
+package com.internship.photovault.repository;
+
+import com.internship.photovault.dto.ImageSummary;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.function.Function;
+
+// Whitelisted gallery orders, always tie-broken by id so keyset cursors are unambiguous. A missing sort key
+// (legacy rows without an upload date) counts as larger than any value, PostgreSQL's default: last when
+// ascending, first when descending.
+public enum ImageSort {
+    UPLOAD_DATE_DESC("uploadDate", Sort.Direction.DESC, ImageSummary::uploadDate, LocalDateTime::parse),
+    UPLOAD_DATE_ASC("uploadDate", Sort.Direction.ASC, ImageSummary::uploadDate, LocalDateTime::parse),
+    FILENAME_ASC("originalFilename", Sort.Direction.ASC, ImageSummary::originalFilename, value -> value),
+    FILENAME_DESC("originalFilename", Sort.Direction.DESC, ImageSummary::originalFilename, value -> value),
+    SIZE_DESC("fileSize", Sort.Direction.DESC, ImageSummary::fileSize, Long::valueOf),
+    SIZE_ASC("fileSize", Sort.Direction.ASC, ImageSummary::fileSize, Long::valueOf);
+
+    private final String property;
+    private final Sort.Direction direction;
+    private final Function<ImageSummary, Comparable<?>> extractor;
+    private final Function<String, Comparable<?>> parser;
+
+    ImageSort(String property, Sort.Direction direction,
+              Function<ImageSummary, Comparable<?>> extractor, Function<String, Comparable<?>> parser) {
+        this.property = property;
+        this.direction = direction;
+        this.extractor = extractor;
+        this.parser = parser;
+    }
+
+    // Maps the public sortBy/sortDir request params, anything outside the whitelist is rejected
+    public static ImageSort from(String sortBy, String sortDir) {
+        Sort.Direction direction = "asc".equalsIgnoreCase(sortDir) ? Sort.Direction.ASC : Sort.Direction.DESC;
+        String property = sortBy == null ? "uploadDate" : sortBy;
+        for (ImageSort sort : values()) {
+            if (sort.property.equals(property) && sort.direction == direction) {
+                return sort;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported sort: " + sortBy + " " + direction.name().toLowerCase(Locale.ROOT));
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public Sort.Direction getDirection() {
+        return direction;
+    }
+
+    public boolean nullsFirst() {
+        return direction == Sort.Direction.DESC;
+    }
+
+    public Sort toSort() {
+        Sort.Order key = new Sort.Order(direction, property,
+                nullsFirst() ? Sort.NullHandling.NULLS_FIRST : Sort.NullHandling.NULLS_LAST);
+        return Sort.by(key).and(Sort.by(direction, "id"));
+    }
+
+    Comparable<?> valueOf(ImageSummary image) {
+        return extractor.apply(image);
+    }
+
+    Comparable<?> parse(String value) {
+        return parser.apply(value);
+    }
+}
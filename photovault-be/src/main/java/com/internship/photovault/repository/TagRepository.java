@@ -0,0 +1,57 @@
+package com.internship.photovault.repository;
+
+import com.internship.photovault.entity.Tag;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+// Tags are global by name, which images carry them is per user (image_tags joined to images.user_id)
+@Repository
+public interface TagRepository extends JpaRepository<Tag, Long> {
+
+    List<Tag> findByNameIn(Collection<String> names);
+
+    // Creates the tag unless another request already did
+    @Modifying
+    @Query(value = "INSERT INTO tags (name, created_at) VALUES (:name, CURRENT_TIMESTAMP) ON CONFLICT (name) DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("name") String name);
+
+    // Tags the owned, non-trashed images among imageIds; returns the (image_id, tag_id) pairs that are new
+    @Transactional
+    @Query(value = "INSERT INTO image_tags (image_id, tag_id, created_at) " +
+            "SELECT i.id, t.id, CURRENT_TIMESTAMP FROM images i CROSS JOIN tags t " +
+            "WHERE i.user_id = :userId AND i.id IN (:imageIds) AND i.is_deleted = false AND t.id IN (:tagIds) " +
+            "ON CONFLICT DO NOTHING RETURNING image_id, tag_id", nativeQuery = true)
+    List<Object[]> addImageTags(@Param("userId") Long userId,
+                                @Param("imageIds") Collection<Long> imageIds,
+                                @Param("tagIds") Collection<Long> tagIds);
+
+    @Transactional
+    @Query(value = "DELETE FROM image_tags it USING images i " +
+            "WHERE it.image_id = i.id AND i.user_id = :userId AND it.image_id IN (:imageIds) AND it.tag_id IN (:tagIds) " +
+            "RETURNING it.image_id, it.tag_id", nativeQuery = true)
+    List<Object[]> removeImageTags(@Param("userId") Long userId,
+                                   @Param("imageIds") Collection<Long> imageIds,
+                                   @Param("tagIds") Collection<Long> tagIds);
+
+    // Index rebuild, see TagIndexService: (id, is_favorite, is_archived, is_deleted) of every image of the user
+    @Query(value = "SELECT id, is_favorite, is_archived, is_deleted FROM images WHERE user_id = :userId",
+            nativeQuery = true)
+    List<Object[]> findImageFlags(@Param("userId") Long userId);
+
+    // Index rebuild: (image_id, tag_id, tag name) for every tagged image of the user
+    @Query(value = "SELECT it.image_id, t.id, t.name FROM image_tags it " +
+            "JOIN images i ON i.id = it.image_id JOIN tags t ON t.id = it.tag_id " +
+            "WHERE i.user_id = :userId", nativeQuery = true)
+    List<Object[]> findImageTags(@Param("userId") Long userId);
+
+    @Query(value = "SELECT DISTINCT user_id FROM images", nativeQuery = true)
+    List<Long> findUserIdsWithImages();
+}
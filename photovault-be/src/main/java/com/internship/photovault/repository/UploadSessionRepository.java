@@ -0,0 +1,45 @@
+package com.internship.photovault.repository;
+
+import com.internship.photovault.entity.UploadSession;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, UUID> {
+
+    // Finalize and abort hold the row so they cannot run twice for one session
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM UploadSession s WHERE s.id = :id")
+    Optional<UploadSession> findByIdForUpdate(@Param("id") UUID id);
+
+    // Records a chunk and keeps the session alive; a re-sent chunk is a no-op
+    @Transactional
+    @Modifying
+    @Query(value = "WITH chunk AS (INSERT INTO upload_session_chunks (session_id, chunk_index) VALUES (:id, :index) " +
+            "ON CONFLICT DO NOTHING) " +
+            "UPDATE upload_sessions SET updated_at = CURRENT_TIMESTAMP WHERE id = :id", nativeQuery = true)
+    int recordChunk(@Param("id") UUID id, @Param("index") int index);
+
+    @Query(value = "SELECT chunk_index FROM upload_session_chunks WHERE session_id = :id ORDER BY chunk_index",
+            nativeQuery = true)
+    List<Integer> findReceivedChunks(@Param("id") UUID id);
+
+    @Query(value = "SELECT count(*) FROM upload_session_chunks WHERE session_id = :id", nativeQuery = true)
+    long countReceivedChunks(@Param("id") UUID id);
+
+    // Sessions without a chunk since cutoff; rows being finalized are skipped
+    @Query(value = "SELECT * FROM upload_sessions WHERE updated_at < :cutoff " +
+            "ORDER BY updated_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<UploadSession> lockStale(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
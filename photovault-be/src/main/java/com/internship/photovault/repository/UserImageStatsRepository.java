@@ -0,0 +1,60 @@
+package com.internship.photovault.repository;
+
+import com.internship.photovault.entity.UserImageStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface UserImageStatsRepository extends JpaRepository<UserImageStats, Long> {
+
+    // Adds the delta atomically, a user without a row yet starts from zero
+    @Modifying
+    @Query(value = "INSERT INTO user_image_stats (user_id, active_count, favorite_count, archived_count, trash_count, total_bytes, updated_at) " +
+            "VALUES (:userId, :active, :favorites, :archived, :trash, :bytes, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (user_id) DO UPDATE SET " +
+            "active_count = user_image_stats.active_count + EXCLUDED.active_count, " +
+            "favorite_count = user_image_stats.favorite_count + EXCLUDED.favorite_count, " +
+            "archived_count = user_image_stats.archived_count + EXCLUDED.archived_count, " +
+            "trash_count = user_image_stats.trash_count + EXCLUDED.trash_count, " +
+            "total_bytes = user_image_stats.total_bytes + EXCLUDED.total_bytes, " +
+            "updated_at = CURRENT_TIMESTAMP", nativeQuery = true)
+    int applyDelta(@Param("userId") Long userId,
+                   @Param("active") long active,
+                   @Param("favorites") long favorites,
+                   @Param("archived") long archived,
+                   @Param("trash") long trash,
+                   @Param("bytes") long bytes);
+
+    @Modifying
+    @Query(value = "INSERT INTO user_image_stats (user_id) VALUES (:userId) ON CONFLICT (user_id) DO NOTHING", nativeQuery = true)
+    int insertIfMissing(@Param("userId") Long userId);
+
+    // Blocks writers applying deltas for this user until the surrounding transaction ends
+    @Query(value = "SELECT user_id FROM user_image_stats WHERE user_id = :userId FOR UPDATE", nativeQuery = true)
+    Long lockByUserId(@Param("userId") Long userId);
+
+    // Recounts from the images table, only touches the row when it has drifted. Run after lockByUserId
+    // so the count sees every change whose delta was already applied.
+    @Modifying
+    @Query(value = "UPDATE user_image_stats s SET " +
+            "active_count = c.active, favorite_count = c.favorites, archived_count = c.archived, " +
+            "trash_count = c.trash, total_bytes = c.bytes, updated_at = CURRENT_TIMESTAMP " +
+            "FROM (SELECT COUNT(*) FILTER (WHERE i.is_deleted = false AND i.is_archived = false) AS active, " +
+            "             COUNT(*) FILTER (WHERE i.is_favorite = true AND i.is_deleted = false) AS favorites, " +
+            "             COUNT(*) FILTER (WHERE i.is_archived = true AND i.is_deleted = false) AS archived, " +
+            "             COUNT(*) FILTER (WHERE i.is_deleted = true) AS trash, " +
+            "             COALESCE(SUM(i.file_size), 0) AS bytes " +
+            "      FROM images i WHERE i.user_id = :userId) c " +
+            "WHERE s.user_id = :userId " +
+            "AND (s.active_count, s.favorite_count, s.archived_count, s.trash_count, s.total_bytes) " +
+            "IS DISTINCT FROM (c.active, c.favorites, c.archived, c.trash, c.bytes)", nativeQuery = true)
+    int recount(@Param("userId") Long userId);
+
+    @Query(value = "SELECT id FROM users WHERE id > :afterId ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<Long> findUserIdsAfter(@Param("afterId") long afterId, @Param("limit") int limit);
+}
@@ -0,0 +1,24 @@
+package com.internship.photovault.repository;
+
+import com.internship.photovault.entity.UserIndexVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+// Change counters of the in-memory indexes, see IndexVersions
+@Repository
+public interface UserIndexVersionRepository extends JpaRepository<UserIndexVersion, UserIndexVersion.Key> {
+
+    // The bumped row stays locked until the transaction ends, so versions commit in order
+    @Transactional
+    @Query(value = "INSERT INTO user_index_versions (user_id, index_name, version) VALUES (:userId, :indexName, 1) " +
+            "ON CONFLICT (user_id, index_name) DO UPDATE SET version = user_index_versions.version + 1 " +
+            "RETURNING version", nativeQuery = true)
+    Long bumpIndexVersion(@Param("userId") Long userId, @Param("indexName") String indexName);
+
+    @Query(value = "SELECT version FROM user_index_versions WHERE user_id = :userId AND index_name = :indexName",
+            nativeQuery = true)
+    Long findIndexVersion(@Param("userId") Long userId, @Param("indexName") String indexName);
+}
@@ -2,42 +2,31 @@ package com.internship.photovault.security;
 
 
 import com.internship.photovault.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import javax.sql.DataSource;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
-
+// Explicit control over the RLS user context for code that acts on behalf of a user other than the
+// authenticated one. Request transactions get the context automatically, see UserContextJpaDialect;
+// background jobs that work across users run in SystemContext instead. Both methods change the setting
+// of the caller's transaction only.
 @Service
-@Transactional
+@Transactional(propagation = Propagation.MANDATORY)
 public class SecurityContextService {
-    private final DataSource dataSource;
 
-    public SecurityContextService(DataSource dataSource) {
-        this.dataSource = dataSource;
-    }
+    @PersistenceContext
+    private EntityManager entityManager;
 
-    public void setCurrentUserContext(  User user) {
-        try (Connection connection = dataSource.getConnection()) {
-            String sql = "SELECT set_current_user_context(?)";
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setLong(1, user.getId());
-                statement.execute();
-            }
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to set current user context", e);
-        }
+    public void setCurrentUserContext(User user) {
+        entityManager.createNativeQuery("SELECT set_config('app.current_user_id', CAST(:userId AS text), true)")
+                .setParameter("userId", user.getId())
+                .getSingleResult();
     }
+
     public void clearCurrentUserContext() {
-        try (Connection connection = dataSource.getConnection()) {
-            String sql = "SELECT set_config('app.current_user_id', '', false)";
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.execute();
-            }
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to clear current user context", e);
-        }
+        entityManager.createNativeQuery("SELECT set_config('app.current_user_id', '', true)")
+                .getSingleResult();
     }
 }
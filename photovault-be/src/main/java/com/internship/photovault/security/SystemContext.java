@@ -0,0 +1,37 @@
+package com.internship.photovault.security;
+
+// Marks work done by the application itself rather than for a user (scheduled jobs, start-up warm-ups).
+// Transactions begun inside it get the RLS system context instead of a user context, see
+// UserContextJpaDialect and V28. Bound to the calling thread: work handed to another thread has to
+// enter it again there.
+//
+//   try (SystemContext ignored = SystemContext.enter()) { ... }
+public final class SystemContext implements AutoCloseable {
+
+    private static final ThreadLocal<SystemContext> CURRENT = new ThreadLocal<>();
+
+    private final SystemContext previous;
+
+    private SystemContext(SystemContext previous) {
+        this.previous = previous;
+    }
+
+    public static SystemContext enter() {
+        SystemContext context = new SystemContext(CURRENT.get());
+        CURRENT.set(context);
+        return context;
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    @Override
+    public void close() {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
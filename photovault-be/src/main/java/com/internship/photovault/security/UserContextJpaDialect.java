@@ -0,0 +1,66 @@
+package com.internship.photovault.security;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+// Applies the row-level-security user context (app.current_user_id, see V10/V18) at the start of every
+// JPA transaction, on the connection the transaction itself runs on. The setting is transaction-local
+// so it is gone at commit/rollback and can never leak to the next borrower of the pooled connection.
+// It costs one prepared statement per transaction that gets a context; pgjdbc sends the BEGIN with it,
+// but it is still a round trip of its own before the first application statement.
+public class UserContextJpaDialect extends HibernateJpaDialect {
+
+    // Resolves the id from the username in the same statement instead of a separate lookup
+    static final String SET_USER_CONTEXT_SQL = "SELECT set_config('app.current_user_id', "
+            + "COALESCE((SELECT id::text FROM users WHERE username = ?), ''), true)";
+
+    // Background jobs act on every user's rows, see SystemContext and the V28 system policies
+    static final String SET_SYSTEM_CONTEXT_SQL = "SELECT set_config('app.system_context', 'on', true)";
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws PersistenceException, SQLException, TransactionException {
+        Object transactionData = super.beginTransaction(entityManager, definition);
+
+        if (SystemContext.isActive()) {
+            execute(entityManager, SET_SYSTEM_CONTEXT_SQL, null);
+        } else {
+            String username = currentUsername();
+            if (username != null) {
+                execute(entityManager, SET_USER_CONTEXT_SQL, username);
+            }
+        }
+        return transactionData;
+    }
+
+    // autocommit is already off, the driver sends BEGIN together with this statement
+    private void execute(EntityManager entityManager, String sql, String username) {
+        getSession(entityManager).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                if (username != null) {
+                    statement.setString(1, username);
+                }
+                statement.execute();
+            }
+        });
+    }
+
+    // Anonymous requests, and background work outside SystemContext, run without a context
+    private static String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+}
@@ -0,0 +1,256 @@
+package com.internship.photovault.service;
+
+import com.internship.photovault.dto.ExportEntry;
+import com.internship.photovault.entity.Collection;
+import com.internship.photovault.entity.User;
+import com.internship.photovault.exception.CollectionNotFoundException;
+import com.internship.photovault.exception.ExportLimitExceededException;
+import com.internship.photovault.exception.ImageNotFoundException;
+import com.internship.photovault.repository.CollectionRepository;
+import com.internship.photovault.repository.ImageRepository;
+import com.internship.photovault.storage.StorageBackend;
+import com.internship.photovault.storage.StorageLayout;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+// ZIP downloads of a selection or a collection, streamed from storage into the response.
+// Entries are STORED: JPEG/PNG/GIF/WebP are already compressed, and a stored entry costs no CPU.
+// A STORED entry needs its CRC-32 before the data, it is recorded at upload (file_blobs.crc32) and only
+// computed with an extra read for files stored before that. Memory stays at one copy buffer per export
+// whatever the archive size; ZipOutputStream switches to ZIP64 past 4 GB or 65535 entries.
+// Concurrent exports are bounded, a request over the limit gets a 429 instead of queueing.
+@Service
+public class ArchiveExportService {
+
+    public static final String MISSING_FILES_ENTRY = "MISSING_FILES.txt";
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final DateTimeFormatter ARCHIVE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    // Archive ready to stream. The export slot is held until the body has run, or until abandon is called
+    // for a body that never started (executor rejected it, request timed out or failed while queued).
+    // Both may be called, the slot is released once; a body that finds the slot abandoned writes nothing.
+    public record Export(String filename, int entryCount, StreamingResponseBody body, Runnable abandon) {
+    }
+
+    private final ImageRepository imageRepository;
+    private final CollectionRepository collectionRepository;
+    private final StorageBackend storageBackend;
+    private final MeterRegistry meterRegistry;
+    private final Semaphore exportSlots;
+    private final int maxConcurrentExports;
+    private final int maxImages;
+
+    private final Counter rejectedExports;
+    private final Counter missingFiles;
+    private final DistributionSummary exportBytes;
+
+    public ArchiveExportService(ImageRepository imageRepository,
+                                CollectionRepository collectionRepository,
+                                StorageBackend storageBackend,
+                                MeterRegistry meterRegistry,
+                                @Value("${photovault.export.max-concurrent:4}") int maxConcurrentExports,
+                                @Value("${photovault.export.max-images:10000}") int maxImages) {
+        this.imageRepository = imageRepository;
+        this.collectionRepository = collectionRepository;
+        this.storageBackend = storageBackend;
+        this.meterRegistry = meterRegistry;
+        this.maxConcurrentExports = Math.max(1, maxConcurrentExports);
+        this.exportSlots = new Semaphore(this.maxConcurrentExports);
+        this.maxImages = maxImages;
+
+        this.rejectedExports = meterRegistry.counter("photovault.export.rejected");
+        this.missingFiles = meterRegistry.counter("photovault.export.missing");
+        this.exportBytes = DistributionSummary.builder("photovault.export.bytes")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("photovault.export.active", exportSlots,
+                slots -> this.maxConcurrentExports - slots.availablePermits()).register(meterRegistry);
+    }
+
+    // Owned, non-deleted images among ids; unknown ids are left out
+    @Transactional(readOnly = true)
+    public Export exportSelection(List<Long> ids, User user) {
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("ids must not be empty");
+        }
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        if (distinctIds.size() > maxImages) {
+            throw new IllegalArgumentException("An export is limited to " + maxImages + " images");
+        }
+        List<ExportEntry> entries = imageRepository.findExportEntries(user, distinctIds);
+        if (entries.isEmpty()) {
+            throw new ImageNotFoundException("No images found for export");
+        }
+        return prepare("photovault-" + LocalDateTime.now().format(ARCHIVE_TIMESTAMP) + ".zip", entries);
+    }
+
+    @Transactional(readOnly = true)
+    public Export exportCollection(Long collectionId, User user) {
+        Collection collection = collectionRepository.findByIdAndUser(collectionId, user)
+                .orElseThrow(() -> new CollectionNotFoundException("Collection not found with id: " + collectionId));
+        List<ExportEntry> entries = imageRepository.findCollectionExportEntries(user, collectionId);
+        if (entries.size() > maxImages) {
+            throw new IllegalArgumentException("An export is limited to " + maxImages + " images");
+        }
+        return prepare(sanitize(collection.getName(), "collection-" + collectionId) + ".zip", entries);
+    }
+
+    private Export prepare(String filename, List<ExportEntry> entries) {
+        if (!exportSlots.tryAcquire()) {
+            rejectedExports.increment();
+            throw new ExportLimitExceededException("Too many exports in progress, try again later");
+        }
+        // whoever claims first releases: the body when it starts, otherwise the async completion callback
+        AtomicBoolean claimed = new AtomicBoolean(false);
+        return new Export(filename, entries.size(), outputStream -> {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                write(entries, outputStream);
+            } finally {
+                exportSlots.release();
+            }
+        }, () -> {
+            if (claimed.compareAndSet(false, true)) {
+                exportSlots.release();
+            }
+        });
+    }
+
+    private void write(List<ExportEntry> entries, OutputStream outputStream) throws IOException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "aborted";
+        long[] written = {0};
+        try {
+            ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(outputStream, COPY_BUFFER_SIZE));
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            Set<String> names = new HashSet<>();
+            List<String> missing = new ArrayList<>();
+            for (ExportEntry entry : entries) {
+                String name = uniqueName(sanitize(entry.originalFilename(), "image-" + entry.id()), names);
+                if (!writeEntry(zip, entry, name, buffer, written)) {
+                    missingFiles.increment();
+                    missing.add(name);
+                }
+            }
+            if (!missing.isEmpty()) {
+                // a text listing is deflated like any other small file
+                zip.putNextEntry(new ZipEntry(uniqueName(MISSING_FILES_ENTRY, names)));
+                zip.write(String.join("\n", missing).concat("\n").getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+            zip.finish();
+            zip.flush();
+            outcome = "completed";
+        } finally {
+            sample.stop(Timer.builder("photovault.export")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+            exportBytes.record(written[0]);
+        }
+    }
+
+    // False when the stored file is gone, the entry is then left out of the archive
+    private boolean writeEntry(ZipOutputStream zip, ExportEntry entry, String name, byte[] buffer,
+                               long[] written) throws IOException {
+        String key = StorageLayout.keyFor(entry.storedFilename());
+        long crc32;
+        InputStream source;
+        try {
+            crc32 = entry.crc32() != null ? entry.crc32() : crc32Of(key, buffer);
+            source = storageBackend.get(key);
+        } catch (NoSuchFileException e) {
+            System.err.println("Skipping missing file in export: " + key);
+            return false;
+        }
+
+        try (InputStream in = source) {
+            ZipEntry zipEntry = new ZipEntry(name);
+            zipEntry.setMethod(ZipEntry.STORED);
+            zipEntry.setSize(entry.fileSize());
+            zipEntry.setCompressedSize(entry.fileSize());
+            zipEntry.setCrc(crc32);
+            LocalDateTime time = entry.takenAt() != null ? entry.takenAt() : entry.uploadDate();
+            if (time != null) {
+                zipEntry.setTimeLocal(time);
+            }
+            zip.putNextEntry(zipEntry);
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                zip.write(buffer, 0, read);
+                written[0] += read;
+            }
+            // fails the export if the file does not match its recorded size and checksum
+            zip.closeEntry();
+        }
+        return true;
+    }
+
+    private long crc32Of(String key, byte[] buffer) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream in = storageBackend.get(key)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    // Entry names come from user-supplied filenames: no directories, no control characters
+    static String sanitize(String name, String fallback) {
+        if (name == null) {
+            return fallback;
+        }
+        String cleaned = name.replaceAll("[\\p{Cntrl}/\\\\:]", "_").trim();
+        while (cleaned.startsWith(".")) {
+            cleaned = cleaned.substring(1);
+        }
+        return cleaned.isEmpty() ? fallback : cleaned;
+    }
+
+    // Same name twice becomes "name (2).ext", compared case-insensitively for Windows and macOS
+    static String uniqueName(String name, Set<String> taken) {
+        if (taken.add(name.toLowerCase(Locale.ROOT))) {
+            return name;
+        }
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+        for (int i = 2; ; i++) {
+            String candidate = base + " (" + i + ")" + extension;
+            if (taken.add(candidate.toLowerCase(Locale.ROOT))) {
+                return candidate;
+            }
+        }
+    }
+}
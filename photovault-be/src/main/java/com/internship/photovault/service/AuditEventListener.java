@@ -0,0 +1,181 @@
+package com.internship.photovault.service;
+
+import com.internship.photovault.entity.Collection;
+import com.internship.photovault.entity.Image;
+import com.internship.photovault.entity.ImageStates;
+import com.internship.photovault.entity.User;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.type.Type;
+import org.springframework.stereotype.Component;
+
+import java.time.temporal.Temporal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Turns committed Hibernate inserts/updates/deletes of the audited entities into AuditService events.
+// Runs after commit, so rolled-back changes are never audited and nothing is added to the user's transaction.
+// Bulk JPQL statements bypass Hibernate events, their callers record audit events themselves.
+@Component
+public class AuditEventListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+        PostCommitDeleteEventListener {
+
+    // same tables the V11 triggers covered
+    private static final Set<Class<?>> AUDITED = Set.of(Image.class, User.class, Collection.class, ImageStates.class);
+
+    // always dirty on update, or never worth storing
+    private static final Set<String> IGNORED = Set.of("updatedAt", "createdAt");
+    private static final Set<String> MASKED = Set.of("passwordHash");
+    private static final String MASK = "***";
+
+    private final AuditService auditService;
+
+    public AuditEventListener(AuditService auditService) {
+        this.auditService = auditService;
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return AUDITED.contains(persister.getMappedClass());
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (!requiresPostCommitHandling(event.getPersister())) {
+            return;
+        }
+        auditService.record(AuditService.INSERT, tableName(event.getPersister()), toLong(event.getId()),
+                null, snapshot(event.getPersister(), event.getState()));
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        EntityPersister persister = event.getPersister();
+        if (!requiresPostCommitHandling(persister)) {
+            return;
+        }
+
+        String[] names = persister.getPropertyNames();
+        Type[] types = persister.getPropertyTypes();
+        Object[] state = event.getState();
+        Object[] oldState = event.getOldState();
+        int[] dirty = event.getDirtyProperties();
+
+        Map<String, Object> oldValues = new LinkedHashMap<>();
+        Map<String, Object> newValues = new LinkedHashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            if (!isRecorded(names[i], types[i])) {
+                continue;
+            }
+            boolean changed;
+            if (dirty != null) {
+                changed = contains(dirty, i);
+            } else {
+                // no dirty-check information (e.g. merge of a detached entity), compare what we have
+                changed = oldState == null || !types[i].isSame(oldState[i], state[i]);
+            }
+            if (changed) {
+                oldValues.put(names[i], oldState == null ? null : value(persister, names[i], oldState[i]));
+                newValues.put(names[i], value(persister, names[i], state[i]));
+            }
+        }
+        if (newValues.isEmpty()) {
+            return;
+        }
+        auditService.record(AuditService.UPDATE, tableName(persister), toLong(event.getId()), oldValues, newValues);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (!requiresPostCommitHandling(event.getPersister())) {
+            return;
+        }
+        auditService.record(AuditService.DELETE, tableName(event.getPersister()), toLong(event.getId()),
+                snapshot(event.getPersister(), event.getDeletedState()), null);
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+        // rolled back, nothing to audit
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+        // rolled back, nothing to audit
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+        // rolled back, nothing to audit
+    }
+
+    private Map<String, Object> snapshot(EntityPersister persister, Object[] state) {
+        if (state == null) {
+            return null;
+        }
+        String[] names = persister.getPropertyNames();
+        Type[] types = persister.getPropertyTypes();
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            if (isRecorded(names[i], types[i])) {
+                values.put(names[i], value(persister, names[i], state[i]));
+            }
+        }
+        return values;
+    }
+
+    // collections (tags, imageStates, ...) are not part of the row and would need loading
+    private boolean isRecorded(String name, Type type) {
+        return !type.isCollectionType() && !IGNORED.contains(name);
+    }
+
+    // JSON-friendly copy of a property value: associations become their id
+    private Object value(EntityPersister persister, String name, Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (MASKED.contains(name)) {
+            return MASK;
+        }
+        if (value instanceof HibernateProxy proxy) {
+            return proxy.getHibernateLazyInitializer().getIdentifier();
+        }
+        if (value.getClass().isAnnotationPresent(Entity.class)) {
+            return persister.getFactory().getPersistenceUnitUtil().getIdentifier(value);
+        }
+        if (value instanceof Temporal || value instanceof Enum<?>) {
+            return value.toString();
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof String) {
+            return value;
+        }
+        return String.valueOf(value);
+    }
+
+    private String tableName(EntityPersister persister) {
+        Table table = persister.getMappedClass().getAnnotation(Table.class);
+        return table != null ? table.name() : persister.getMappedClass().getSimpleName();
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int candidate : values) {
+            if (candidate == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Long toLong(Object id) {
+        return id instanceof Number number ? number.longValue() : null;
+    }
+}
@@ -0,0 +1,275 @@
+package com.internship.photovault.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.internship.photovault.entity.AuditLog;
+import com.internship.photovault.repository.AuditLogRepository;
+import com.internship.photovault.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// In-process audit pipeline. Callers enqueue small change events (only the fields that changed) and
+// return immediately; a single writer thread drains the bounded queue and inserts the rows in batches.
+// A full queue blocks the caller for at most offer-timeout-ms, after that the event is dropped and counted.
+@Service
+public class AuditService implements SmartLifecycle {
+
+    public static final String INSERT = "INSERT";
+    public static final String UPDATE = "UPDATE";
+    public static final String DELETE = "DELETE";
+
+    // Captured on the request thread, the writer only sees plain values
+    public record Event(String action, String entityType, Long entityId,
+                        Map<String, Object> oldValues, Map<String, Object> newValues,
+                        String username, String ipAddress, String userAgent, String sessionId,
+                        LocalDateTime timestamp) {
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final AuditLogRepository auditLogRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<Event> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+
+    private final Cache<String, Long> userIds = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
+
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter failed;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public AuditService(AuditLogRepository auditLogRepository,
+                        UserRepository userRepository,
+                        PlatformTransactionManager transactionManager,
+                        MeterRegistry meterRegistry,
+                        @Value("${photovault.audit.queue-capacity:10000}") int queueCapacity,
+                        @Value("${photovault.audit.batch-size:200}") int batchSize,
+                        @Value("${photovault.audit.flush-interval-ms:1000}") long flushIntervalMs,
+                        @Value("${photovault.audit.offer-timeout-ms:50}") long offerTimeoutMs) {
+        this.auditLogRepository = auditLogRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMs = Math.max(10, flushIntervalMs);
+        this.offerTimeoutMs = Math.max(0, offerTimeoutMs);
+
+        this.written = meterRegistry.counter("photovault.audit.events", "outcome", "written");
+        this.dropped = meterRegistry.counter("photovault.audit.events", "outcome", "dropped");
+        this.failed = meterRegistry.counter("photovault.audit.events", "outcome", "failed");
+        Gauge.builder("photovault.audit.queue.size", queue, BlockingQueue::size).register(meterRegistry);
+    }
+
+    // Records a change made by the current principal, request details are taken from the calling thread
+    public void record(String action, String entityType, Long entityId,
+                       Map<String, Object> oldValues, Map<String, Object> newValues) {
+        enqueue(capture(action, entityType, entityId, oldValues, newValues));
+    }
+
+    private Event capture(String action, String entityType, Long entityId,
+                          Map<String, Object> oldValues, Map<String, Object> newValues) {
+        String username = null;
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()) {
+            username = authentication.getName();
+        }
+
+        String ipAddress = null;
+        String userAgent = null;
+        String sessionId = null;
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            HttpServletRequest request = servletAttributes.getRequest();
+            ipAddress = request.getRemoteAddr();
+            userAgent = request.getHeader("User-Agent");
+            HttpSession session = request.getSession(false);
+            sessionId = session != null ? session.getId() : null;
+        }
+
+        return new Event(action, entityType, entityId, oldValues, newValues,
+                username, ipAddress, userAgent, sessionId, LocalDateTime.now());
+    }
+
+    // For changes made with bulk statements, which Hibernate events do not see. The event is captured
+    // now (principal, request) and only queued if the surrounding transaction commits.
+    public void recordAfterCommit(String action, String entityType, Long entityId,
+                                  Map<String, Object> oldValues, Map<String, Object> newValues) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(action, entityType, entityId, oldValues, newValues);
+            return;
+        }
+        Event event = capture(action, entityType, entityId, oldValues, newValues);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueue(event);
+            }
+        });
+    }
+
+    private void enqueue(Event event) {
+        try {
+            // short backpressure on the caller, then shed load rather than stall requests
+            if (!running || !queue.offer(event, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                dropped.increment();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            dropped.increment();
+        }
+    }
+
+    private void runWriter() {
+        List<Event> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Event first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Event> batch) {
+        try {
+            Map<String, Long> ids = resolveUserIds(batch);
+            List<AuditLog> logs = new ArrayList<>(batch.size());
+            for (Event event : batch) {
+                AuditLog log = new AuditLog();
+                log.setUserId(event.username() == null ? null : ids.get(event.username()));
+                log.setAction(event.action());
+                log.setEntityType(event.entityType());
+                log.setEntityId(event.entityId());
+                log.setOldValues(event.oldValues());
+                log.setNewValues(event.newValues());
+                log.setIpAddress(event.ipAddress());
+                log.setUserAgent(event.userAgent());
+                log.setSessionId(event.sessionId());
+                log.setTimestamp(event.timestamp());
+                logs.add(log);
+            }
+
+            transactionTemplate.executeWithoutResult(status -> {
+                // JDBC batching for this session only, sequence ids come from the pooled allocator
+                entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+                auditLogRepository.saveAll(logs);
+            });
+            written.increment(batch.size());
+        } catch (RuntimeException e) {
+            failed.increment(batch.size());
+            System.err.println("Failed to write " + batch.size() + " audit events: " + e.getMessage());
+        }
+    }
+
+    private Map<String, Long> resolveUserIds(List<Event> batch) {
+        Map<String, Long> ids = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        for (Event event : batch) {
+            if (event.username() == null || ids.containsKey(event.username())) {
+                continue;
+            }
+            Long id = userIds.getIfPresent(event.username());
+            if (id != null) {
+                ids.put(event.username(), id);
+            } else {
+                missing.add(event.username());
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (Object[] row : userRepository.findIdsByUsernames(missing)) {
+                String username = (String) row[0];
+                Long id = (Long) row[1];
+                userIds.put(username, id);
+                ids.put(username, id);
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        writer = new Thread(this::runWriter, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Stops accepting events and waits for the writer to flush everything already queued
+    @Override
+    public void stop() {
+        running = false;
+        Thread current = writer;
+        if (current == null) {
+            return;
+        }
+        // no interrupt, a batch in the middle of its insert must finish; the poll timeout ends the loop
+        try {
+            current.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            System.err.println("Audit writer stopped with " + queue.size() + " events still queued");
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // stop after the web server has finished its in-flight requests, before the DataSource closes
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+}
@@ -0,0 +1,148 @@
+package com.internship.photovault.service;
+
+import com.internship.photovault.entity.FileBlob;
+import com.internship.photovault.repository.FileBlobRepository;
+import com.internship.photovault.storage.StorageBackend;
+import com.internship.photovault.storage.StorageLayout;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.IntConsumer;
+
+// Content-addressed storage: files are named after their SHA-256 and reference counted by Image rows.
+// Every acquire/release takes a per-checksum advisory lock, so object writes and ref count changes
+// for the same content never interleave between transactions (or between app nodes).
+// Objects are only deleted after the last reference is committed away, and only if no upload has
+// re-created the blob row in the meantime, which a remote backend cannot do with a rename.
+@Service
+@Transactional(propagation = Propagation.MANDATORY)
+public class BlobStorageService {
+
+    private static final Map<String, String> EXTENSIONS = Map.of(
+            "image/jpeg", ".jpg",
+            "image/png", ".png",
+            "image/gif", ".gif",
+            "image/webp", ".webp"
+    );
+
+    private final StorageBackend storageBackend;
+    private final FileBlobRepository fileBlobRepository;
+    private final ThumbnailService thumbnailService;
+    private final TransactionTemplate cleanupTransaction;
+
+    public BlobStorageService(StorageBackend storageBackend,
+                              FileBlobRepository fileBlobRepository,
+                              ThumbnailService thumbnailService,
+                              PlatformTransactionManager transactionManager) {
+        this.storageBackend = storageBackend;
+        this.fileBlobRepository = fileBlobRepository;
+        this.thumbnailService = thumbnailService;
+        // cleanup runs from transaction callbacks, where only a new transaction may touch the database
+        this.cleanupTransaction = new TransactionTemplate(transactionManager);
+        this.cleanupTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Adds a reference to the blob for checksum, storing the staged file if the content is new.
+    // The staged file is always consumed (stored or deleted). When storing fails the reference is
+    // dropped again before the exception leaves, so the blob row never outlives a missing object.
+    public FileBlob acquire(Path stagedFile, String checksum, long crc32, long fileSize, String contentType) throws IOException {
+        String storedFilename = checksum + EXTENSIONS.getOrDefault(contentType, "");
+
+        fileBlobRepository.lockChecksum(checksum);
+        Long blobId = fileBlobRepository.upsertReference(checksum, storedFilename,
+                StorageLayout.keyFor(storedFilename), fileSize, contentType, crc32);
+        FileBlob blob = fileBlobRepository.findById(blobId)
+                .orElseThrow(() -> new IllegalStateException("Blob disappeared after upsert: " + checksum));
+
+        String key = StorageLayout.keyFor(blob.getStoredFilename());
+        try {
+            if (storageBackend.exists(key)) {
+                // same bytes are already stored, nothing to write
+                Files.deleteIfExists(stagedFile);
+                return blob;
+            }
+            storageBackend.put(key, stagedFile, blob.getContentType());
+        } catch (IOException | RuntimeException e) {
+            // a caller that reports the failure per file (batch uploads) still commits its transaction,
+            // so the reference taken above is handed back here instead of relying on a rollback
+            release(blob);
+            try {
+                Files.deleteIfExists(stagedFile);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        afterCompletion(status -> {
+            if (status == TransactionSynchronization.STATUS_ROLLED_BACK) {
+                deleteIfUnreferenced(checksum, blob.getStoredFilename());
+            }
+        });
+        return blob;
+    }
+
+    // Drops one reference, the stored object and its renditions go with the last one
+    public void release(FileBlob blob) {
+        release(blob, 1, Runnable::run);
+    }
+
+    // Drops several references at once (e.g. a purge chunk holding many copies of the same content).
+    // Object removal after commit runs on deletionExecutor so callers can spread the I/O over a pool.
+    public void release(FileBlob blob, long references, Executor deletionExecutor) {
+        fileBlobRepository.lockChecksum(blob.getChecksumSha256());
+        fileBlobRepository.decrementRefCount(blob.getId(), references);
+        if (fileBlobRepository.deleteIfUnreferenced(blob.getId()) == 0) {
+            return;
+        }
+
+        String checksum = blob.getChecksumSha256();
+        String storedFilename = blob.getStoredFilename();
+        afterCompletion(status -> {
+            if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                deletionExecutor.execute(() -> deleteIfUnreferenced(checksum, storedFilename));
+            }
+        });
+    }
+
+    // Removes the object unless an upload of the same bytes has created a new blob row since; that
+    // upload held the checksum lock while storing, so the row check under the lock is conclusive
+    private void deleteIfUnreferenced(String checksum, String storedFilename) {
+        try {
+            cleanupTransaction.executeWithoutResult(status -> {
+                fileBlobRepository.lockChecksum(checksum);
+                if (fileBlobRepository.findByChecksumSha256(checksum).isPresent()) {
+                    return;
+                }
+                try {
+                    storageBackend.delete(StorageLayout.keyFor(storedFilename));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                thumbnailService.deleteRenditions(storedFilename);
+            });
+        } catch (RuntimeException e) {
+            System.err.println("Failed to delete stored object " + storedFilename + ": " + e.getMessage());
+        }
+    }
+
+    private void afterCompletion(IntConsumer callback) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                callback.accept(status);
+            }
+        });
+    }
+}
@@ -0,0 +1,213 @@
+package com.internship.photovault.service;
+
+import com.internship.photovault.dto.CollectionRequest;
+import com.internship.photovault.dto.CollectionSummary;
+import com.internship.photovault.dto.CursorPage;
+import com.internship.photovault.dto.ImageSummary;
+import com.internship.photovault.entity.Collection;
+import com.internship.photovault.entity.User;
+import com.internship.photovault.exception.CollectionNotFoundException;
+import com.internship.photovault.repository.CollectionCursor;
+import com.internship.photovault.repository.CollectionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Collections of a user's images. Listings come from one aggregate query (counts and covers included),
+// membership changes are single set-based statements, contents are keyset-paginated by when an image was added.
+@Service
+public class CollectionService {
+
+    private static final int MAX_NAME_LENGTH = 255;
+
+    private final CollectionRepository collectionRepository;
+    private final ImageService imageService;
+    private final AuditService auditService;
+    private final int maxBulkIds;
+
+    public CollectionService(CollectionRepository collectionRepository,
+                             ImageService imageService,
+                             AuditService auditService,
+                             @Value("${photovault.bulk.max-ids:1000}") int maxBulkIds) {
+        this.collectionRepository = collectionRepository;
+        this.imageService = imageService;
+        this.auditService = auditService;
+        this.maxBulkIds = maxBulkIds;
+    }
+
+    @Transactional(readOnly = true)
+    public List<CollectionSummary> getCollections(User user) {
+        return collectionRepository.findSummaries(user.getId()).stream()
+                .map(CollectionService::toSummary)
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public CollectionSummary getCollection(Long id, User user) {
+        return collectionRepository.findSummary(user.getId(), id).stream()
+                .findFirst()
+                .map(CollectionService::toSummary)
+                .orElseThrow(() -> new CollectionNotFoundException("Collection not found with id: " + id));
+    }
+
+    @Transactional
+    public CollectionSummary createCollection(CollectionRequest request, User user) {
+        String name = validateName(request.name());
+        if (collectionRepository.existsByUserAndName(user, name)) {
+            throw new IllegalStateException("A collection named \"" + name + "\" already exists");
+        }
+
+        Collection collection = new Collection();
+        collection.setUser(user);
+        collection.setName(name);
+        collection.setDescription(request.description());
+        collection.setIsPublic(Boolean.TRUE.equals(request.isPublic()));
+        Collection saved = saveUnique(collection, name);
+        return new CollectionSummary(saved.getId(), saved.getName(), saved.getDescription(), saved.getIsPublic(),
+                0, null, saved.getCreatedAt(), saved.getUpdatedAt());
+    }
+
+    // Rename and/or change the description; null fields are kept
+    @Transactional
+    public CollectionSummary updateCollection(Long id, CollectionRequest request, User user) {
+        Collection collection = getOwnedCollection(id, user);
+        if (request.name() != null) {
+            String name = validateName(request.name());
+            if (!name.equals(collection.getName()) && collectionRepository.existsByUserAndName(user, name)) {
+                throw new IllegalStateException("A collection named \"" + name + "\" already exists");
+            }
+            collection.setName(name);
+        }
+        if (request.description() != null) {
+            collection.setDescription(request.description());
+        }
+        if (request.isPublic() != null) {
+            collection.setIsPublic(request.isPublic());
+        }
+        saveUnique(collection, collection.getName());
+        return getCollection(id, user);
+    }
+
+    // The images stay, only the membership rows go (ON DELETE CASCADE)
+    @Transactional
+    public void deleteCollection(Long id, User user) {
+        collectionRepository.delete(getOwnedCollection(id, user));
+    }
+
+    // Owned, non-trashed images are added, anything else in ids is ignored
+    @Transactional
+    public Map<String, Object> addImages(Long id, List<Long> ids, User user) {
+        Set<Long> requested = validateIds(ids);
+        getOwnedCollection(id, user);
+        long added = collectionRepository.addImages(id, user.getId(), requested);
+        if (added > 0) {
+            // the insert bypasses Hibernate events, one audit entry per batch
+            auditService.recordAfterCommit(AuditService.UPDATE, "collections", id,
+                    Map.of(), Map.of("imagesAdded", added));
+        }
+        return Map.of("requested", requested.size(), "added", added);
+    }
+
+    @Transactional
+    public Map<String, Object> removeImages(Long id, List<Long> ids, User user) {
+        Set<Long> requested = validateIds(ids);
+        getOwnedCollection(id, user);
+        long removed = collectionRepository.removeImages(id, requested);
+        if (removed > 0) {
+            auditService.recordAfterCommit(AuditService.UPDATE, "collections", id,
+                    Map.of(), Map.of("imagesRemoved", removed));
+        }
+        return Map.of("requested", requested.size(), "removed", removed);
+    }
+
+    // Keyset window over the contents, newest added first; fetches one extra row to know whether more follow
+    @Transactional(readOnly = true)
+    public CursorPage<ImageSummary> getImages(Long id, User user, String cursor, int size, boolean includeTotal) {
+        CollectionCursor after = cursor == null || cursor.isBlank() ? null : CollectionCursor.decode(cursor);
+        getOwnedCollection(id, user);
+
+        List<Object[]> rows = after == null
+                ? collectionRepository.findImageIds(id, size + 1)
+                : collectionRepository.findImageIdsAfter(id, after.addedAt(), after.imageId(), size + 1);
+        boolean hasNext = rows.size() > size;
+        List<Object[]> window = hasNext ? rows.subList(0, size) : rows;
+
+        List<Long> ids = new ArrayList<>(window.size());
+        for (Object[] row : window) {
+            ids.add(((Number) row[0]).longValue());
+        }
+        String nextCursor = null;
+        if (hasNext) {
+            Object[] last = window.get(window.size() - 1);
+            nextCursor = new CollectionCursor(toLocalDateTime(last[1]), ((Number) last[0]).longValue()).encode();
+        }
+        Long total = includeTotal ? getCollection(id, user).imageCount() : null;
+        return new CursorPage<>(imageService.getSummaries(ids), nextCursor, hasNext, total);
+    }
+
+    private Collection getOwnedCollection(Long id, User user) {
+        return collectionRepository.findByIdAndUser(id, user)
+                .orElseThrow(() -> new CollectionNotFoundException("Collection not found with id: " + id));
+    }
+
+    // UNIQUE (user_id, name) still decides when two requests race past the exists check
+    private Collection saveUnique(Collection collection, String name) {
+        try {
+            return collectionRepository.saveAndFlush(collection);
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalStateException("A collection named \"" + name + "\" already exists");
+        }
+    }
+
+    private static String validateName(String name) {
+        String trimmed = name == null ? "" : name.trim();
+        if (trimmed.isEmpty()) {
+            throw new IllegalArgumentException("Collection name cannot be empty");
+        }
+        if (trimmed.length() > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("Collection name must be at most " + MAX_NAME_LENGTH + " characters");
+        }
+        return trimmed;
+    }
+
+    private Set<Long> validateIds(List<Long> ids) {
+        Set<Long> requested = ids == null ? new LinkedHashSet<>() : new LinkedHashSet<>(ids);
+        requested.remove(null);
+        if (requested.isEmpty()) {
+            throw new IllegalArgumentException("ids must not be empty");
+        }
+        if (requested.size() > maxBulkIds) {
+            throw new IllegalArgumentException("At most " + maxBulkIds + " images can be changed at once");
+        }
+        return requested;
+    }
+
+    // Column order of CollectionRepository.SUMMARY_SELECT
+    private static CollectionSummary toSummary(Object[] row) {
+        return new CollectionSummary(
+                ((Number) row[0]).longValue(),
+                (String) row[1],
+                (String) row[2],
+                (Boolean) row[3],
+                ((Number) row[4]).longValue(),
+                row[5] == null ? null : ((Number) row[5]).longValue(),
+                toLocalDateTime(row[6]),
+                toLocalDateTime(row[7]));
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+}
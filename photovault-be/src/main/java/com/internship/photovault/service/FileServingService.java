@@ -0,0 +1,245 @@
+package com.internship.photovault.service;
+
+import com.internship.photovault.storage.StorageBackend;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+// Conditional (ETag / Last-Modified), single-range serving of stored objects. Local files are handed to
+// Tomcat's sendfile when the connector offers it (the kernel copies file to socket after the handler
+// returns), otherwise they are streamed like objects in a remote backend, which come from a ranged get.
+// Stored content never changes for a given checksum, so responses are cacheable as immutable.
+// kind ("original", "thumbnail") tags the serve metrics; the timer runs until the body is fully written.
+@Service
+public class FileServingService {
+
+    public static final String ORIGINAL = "original";
+    public static final String THUMBNAIL = "thumbnail";
+
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365))
+            .cachePrivate()
+            .immutable();
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    // Request attributes of Tomcat's sendfile support, as used by its DefaultServlet
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    // Below this a buffered write is cheaper than setting up sendfile (Tomcat's own default threshold)
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
+    private final StorageBackend storageBackend;
+    private final MeterRegistry meterRegistry;
+
+    public FileServingService(StorageBackend storageBackend, MeterRegistry meterRegistry) {
+        this.storageBackend = storageBackend;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public ResponseEntity<StreamingResponseBody> serve(String kind, String key, MediaType contentType, String etag,
+                                                       Instant lastModified, String contentDisposition,
+                                                       ServletWebRequest request) throws IOException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        // Validators come from the database row, a revalidation never touches the disk
+        if (isNotModified(request, etag, lastModified)) {
+            return notModified(kind, etag, sample);
+        }
+
+        long length = storageBackend.size(key);
+        Optional<Path> file = storageBackend.localFile(key);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(contentType);
+        headers.setETag(etag);
+        headers.setLastModified(lastModified);
+        headers.setCacheControl(IMMUTABLE);
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (contentDisposition != null) {
+            headers.set(HttpHeaders.CONTENT_DISPOSITION, contentDisposition);
+        }
+
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || !rangeStillValid(request, etag)) {
+            headers.setContentLength(length);
+            return new ResponseEntity<>(transfer(kind, HttpStatus.OK, sample, key, file, 0, length, request),
+                    headers, HttpStatus.OK);
+        }
+
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            return rangeNotSatisfiable(length);
+        }
+        if (ranges.size() != 1) {
+            // multipart/byteranges is not worth it for images, a full response is always allowed
+            headers.setContentLength(length);
+            return new ResponseEntity<>(transfer(kind, HttpStatus.OK, sample, key, file, 0, length, request),
+                    headers, HttpStatus.OK);
+        }
+
+        HttpRange range = ranges.get(0);
+        long start;
+        long end;
+        try {
+            start = range.getRangeStart(length);
+            end = range.getRangeEnd(length);
+        } catch (IllegalArgumentException e) {
+            return rangeNotSatisfiable(length);
+        }
+        if (length == 0 || start >= length || end < start) {
+            return rangeNotSatisfiable(length);
+        }
+
+        long count = end - start + 1;
+        headers.setContentLength(count);
+        headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        return new ResponseEntity<>(transfer(kind, HttpStatus.PARTIAL_CONTENT, sample, key, file, start, count, request),
+                headers, HttpStatus.PARTIAL_CONTENT);
+    }
+
+    // If-None-Match takes precedence, If-Modified-Since is only consulted without it (RFC 9110 13.2.2).
+    // Evaluated here rather than with WebRequest.checkNotModified, which also writes response headers.
+    public boolean isNotModified(ServletWebRequest request, String etag, Instant lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        long ifModifiedSince;
+        try {
+            ifModifiedSince = request.getRequest().getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        // HTTP dates have second precision
+        return ifModifiedSince != -1 && lastModified.getEpochSecond() <= ifModifiedSince / 1000;
+    }
+
+    public ResponseEntity<StreamingResponseBody> notModified(String kind, String etag) {
+        return notModified(kind, etag, Timer.start(meterRegistry));
+    }
+
+    private ResponseEntity<StreamingResponseBody> notModified(String kind, String etag, Timer.Sample sample) {
+        sample.stop(serveTimer(kind, HttpStatus.NOT_MODIFIED));
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .cacheControl(IMMUTABLE)
+                .build();
+    }
+
+    // If-Range only applies the range when the client still holds the current representation
+    private boolean rangeStillValid(ServletWebRequest request, String etag) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        return ifRange == null || ifRange.equals(etag);
+    }
+
+    private ResponseEntity<StreamingResponseBody> rangeNotSatisfiable(long length) {
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                .build();
+    }
+
+    // Local files: sendfile when available, the response then has no body and Tomcat writes the file
+    // once the handler has returned; the metrics are recorded at that hand-off.
+    // Otherwise transferTo copies through the channel adapter's heap buffer into the response stream,
+    // a servlet output stream is no file descriptor the kernel could write to. Remote objects:
+    // only the requested range is fetched and copied through.
+    private StreamingResponseBody transfer(String kind, HttpStatus status, Timer.Sample sample,
+                                           String key, Optional<Path> file, long start, long count,
+                                           ServletWebRequest request) {
+        if (file.isPresent() && count >= SENDFILE_MIN_SIZE
+                && Boolean.TRUE.equals(request.getRequest().getAttribute(SENDFILE_SUPPORT))) {
+            request.getRequest().setAttribute(SENDFILE_FILENAME, file.get().toAbsolutePath().toString());
+            request.getRequest().setAttribute(SENDFILE_START, start);
+            request.getRequest().setAttribute(SENDFILE_END, start + count);
+            record(kind, status, sample, count);
+            return null;
+        }
+        return outputStream -> {
+            long[] written = {0};
+            try {
+                if (file.isPresent()) {
+                    transferFile(file.get(), start, count, outputStream, written);
+                } else {
+                    try (InputStream source = storageBackend.getRange(key, start, count)) {
+                        byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+                        int read;
+                        while ((read = source.read(buffer)) != -1) {
+                            outputStream.write(buffer, 0, read);
+                            written[0] += read;
+                        }
+                    }
+                }
+            } finally {
+                // aborted downloads are recorded too, with the bytes that actually went out
+                record(kind, status, sample, written[0]);
+            }
+        };
+    }
+
+    private void record(String kind, HttpStatus status, Timer.Sample sample, long bytes) {
+        sample.stop(serveTimer(kind, status));
+        DistributionSummary.builder("photovault.serve.bytes")
+                .baseUnit("bytes")
+                .tag("kind", kind)
+                .register(meterRegistry)
+                .record(bytes);
+    }
+
+    private static void transferFile(Path file, long start, long count, OutputStream outputStream,
+                                     long[] written) throws IOException {
+        long position = start;
+        long remaining = count;
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(outputStream);
+            while (remaining > 0) {
+                long transferred = source.transferTo(position, remaining, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+                written[0] += transferred;
+            }
+        }
+    }
+
+    private Timer serveTimer(String kind, HttpStatus status) {
+        return Timer.builder("photovault.serve")
+                .tag("kind", kind)
+                .tag("status", String.valueOf(status.value()))
+                .register(meterRegistry);
+    }
+}
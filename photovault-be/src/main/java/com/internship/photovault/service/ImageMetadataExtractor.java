@@ -0,0 +1,327 @@
+package com.internship.photovault.service;
+
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Optional;
+
+// Reads the real format, pixel size, EXIF orientation and capture date from the first bytes of an
+// upload without decoding it. Segments and chunks that carry nothing we need (pixel data, ICC
+// profiles, thumbnails) are skipped, not read; only an EXIF block is buffered, up to MAX_EXIF_BYTES.
+@Component
+public class ImageMetadataExtractor {
+
+    public static final String JPEG = "image/jpeg";
+    public static final String PNG = "image/png";
+    public static final String GIF = "image/gif";
+    public static final String WEBP = "image/webp";
+
+    private static final int MAGIC_BYTES = 12;
+    private static final int MAX_EXIF_BYTES = 64 * 1024;
+    // corrupt or hostile files cannot keep the parser walking forever
+    private static final int MAX_BLOCKS = 256;
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] EXIF_HEADER = {'E', 'x', 'i', 'f', 0, 0};
+
+    private static final int TAG_ORIENTATION = 0x0112;
+    private static final int TAG_DATE_TIME = 0x0132;
+    private static final int TAG_EXIF_IFD = 0x8769;
+    private static final int TAG_DATE_TIME_ORIGINAL = 0x9003;
+    private static final DateTimeFormatter EXIF_DATE = DateTimeFormatter.ofPattern("yyyy:MM:dd HH:mm:ss");
+
+    // Sniffed content type plus whatever the header revealed, any of the other fields can be null
+    public record ImageMetadata(String contentType, Integer width, Integer height,
+                                Integer orientation, LocalDateTime takenAt) {
+    }
+
+    public Optional<ImageMetadata> extract(Path file) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            return extract(inputStream);
+        }
+    }
+
+    // Empty when the bytes are none of JPEG, PNG, GIF or WebP
+    public Optional<ImageMetadata> extract(InputStream inputStream) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(inputStream);
+        buffered.mark(MAGIC_BYTES);
+        byte[] magic = buffered.readNBytes(MAGIC_BYTES);
+        buffered.reset();
+
+        DataInputStream in = new DataInputStream(buffered);
+        Header header;
+        if (startsWith(magic, new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF})) {
+            header = new Header(JPEG);
+            parse(() -> parseJpeg(in, header));
+        } else if (startsWith(magic, PNG_SIGNATURE)) {
+            header = new Header(PNG);
+            parse(() -> parsePng(in, header));
+        } else if (startsWith(magic, ascii("GIF87a")) || startsWith(magic, ascii("GIF89a"))) {
+            header = new Header(GIF);
+            parse(() -> parseGif(in, header));
+        } else if (startsWith(magic, ascii("RIFF")) && magic.length >= 12
+                && Arrays.equals(magic, 8, 12, ascii("WEBP"), 0, 4)) {
+            header = new Header(WEBP);
+            parse(() -> parseWebp(in, header));
+        } else {
+            return Optional.empty();
+        }
+        return Optional.of(header.toMetadata());
+    }
+
+    private interface HeaderParser {
+        void parse() throws IOException;
+    }
+
+    // A truncated file still has a known format, keep what was read before the end
+    private static void parse(HeaderParser parser) throws IOException {
+        try {
+            parser.parse();
+        } catch (EOFException e) {
+            // partial header
+        }
+    }
+
+    private static final class Header {
+        private final String contentType;
+        private Integer width;
+        private Integer height;
+        private Integer orientation;
+        private LocalDateTime takenAt;
+
+        private Header(String contentType) {
+            this.contentType = contentType;
+        }
+
+        private ImageMetadata toMetadata() {
+            // a zero or overflowing size is a broken header, not a layout hint
+            boolean validSize = width != null && height != null && width > 0 && height > 0;
+            return new ImageMetadata(contentType, validSize ? width : null, validSize ? height : null,
+                    orientation, takenAt);
+        }
+    }
+
+    // Markers up to the first SOFn, which holds the frame size; EXIF (APP1) always comes before it
+    private void parseJpeg(DataInputStream in, Header header) throws IOException {
+        in.skipNBytes(2);
+        for (int block = 0; block < MAX_BLOCKS; block++) {
+            if (in.readUnsignedByte() != 0xFF) {
+                return;
+            }
+            int marker = in.readUnsignedByte();
+            while (marker == 0xFF) {
+                marker = in.readUnsignedByte();
+            }
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD8)) {
+                continue; // no length field
+            }
+            if (marker == 0xD9 || marker == 0xDA) {
+                return; // end of image or start of scan, no more headers
+            }
+
+            int payload = in.readUnsignedShort() - 2;
+            if (payload < 0) {
+                return;
+            }
+            if (isStartOfFrame(marker) && payload >= 5) {
+                in.skipNBytes(1); // sample precision
+                header.height = in.readUnsignedShort();
+                header.width = in.readUnsignedShort();
+                return;
+            }
+            if (marker == 0xE1 && header.orientation == null && payload <= MAX_EXIF_BYTES) {
+                byte[] data = in.readNBytes(payload);
+                if (startsWith(data, EXIF_HEADER)) {
+                    parseExif(data, EXIF_HEADER.length, header);
+                }
+                continue;
+            }
+            in.skipNBytes(payload);
+        }
+    }
+
+    // SOF0-SOF15 except DHT (C4), JPG (C8) and DAC (CC)
+    private static boolean isStartOfFrame(int marker) {
+        return marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+    }
+
+    // IHDR is always the first chunk; eXIf, if present, comes before the image data
+    private void parsePng(DataInputStream in, Header header) throws IOException {
+        in.skipNBytes(PNG_SIGNATURE.length);
+        for (int block = 0; block < MAX_BLOCKS; block++) {
+            long length = Integer.toUnsignedLong(in.readInt());
+            String type = new String(in.readNBytes(4), StandardCharsets.US_ASCII);
+            if (type.equals("IHDR") && length >= 8) {
+                header.width = in.readInt();
+                header.height = in.readInt();
+                in.skipNBytes(length - 8 + 4); // rest of IHDR and CRC
+            } else if (type.equals("eXIf") && length <= MAX_EXIF_BYTES) {
+                parseExif(in.readNBytes((int) length), 0, header);
+                in.skipNBytes(4);
+            } else if (type.equals("IDAT") || type.equals("IEND")) {
+                return;
+            } else {
+                in.skipNBytes(length + 4);
+            }
+        }
+    }
+
+    // Logical screen descriptor right after the signature, little endian
+    private void parseGif(DataInputStream in, Header header) throws IOException {
+        in.skipNBytes(6);
+        header.width = Short.toUnsignedInt(Short.reverseBytes(in.readShort()));
+        header.height = Short.toUnsignedInt(Short.reverseBytes(in.readShort()));
+    }
+
+    // RIFF chunks: VP8 (lossy), VP8L (lossless) or VP8X (extended, may carry an EXIF chunk later on)
+    private void parseWebp(DataInputStream in, Header header) throws IOException {
+        in.skipNBytes(12);
+        boolean extended = false;
+        for (int block = 0; block < MAX_BLOCKS; block++) {
+            String type = new String(in.readNBytes(4), StandardCharsets.US_ASCII);
+            long size = Integer.toUnsignedLong(Integer.reverseBytes(in.readInt()));
+            long padded = size + (size & 1);
+            long consumed;
+
+            if (type.equals("VP8X") && size >= 10) {
+                extended = true;
+                in.skipNBytes(4); // flags and reserved
+                header.width = readUnsigned24LittleEndian(in) + 1;
+                header.height = readUnsigned24LittleEndian(in) + 1;
+                consumed = 10;
+            } else if (type.equals("VP8 ") && size >= 10 && header.width == null) {
+                in.skipNBytes(6); // frame tag and start code
+                header.width = Short.toUnsignedInt(Short.reverseBytes(in.readShort())) & 0x3FFF;
+                header.height = Short.toUnsignedInt(Short.reverseBytes(in.readShort())) & 0x3FFF;
+                consumed = 10;
+            } else if (type.equals("VP8L") && size >= 5 && header.width == null) {
+                in.skipNBytes(1); // signature
+                int bits = Integer.reverseBytes(in.readInt());
+                header.width = (bits & 0x3FFF) + 1;
+                header.height = ((bits >>> 14) & 0x3FFF) + 1;
+                consumed = 5;
+            } else if (type.equals("EXIF") && size <= MAX_EXIF_BYTES) {
+                byte[] data = in.readNBytes((int) size);
+                parseExif(data, startsWith(data, EXIF_HEADER) ? EXIF_HEADER.length : 0, header);
+                consumed = size;
+            } else {
+                consumed = 0;
+            }
+            in.skipNBytes(padded - consumed);
+
+            if (!extended && header.width != null) {
+                return; // simple format, a single image chunk and nothing else
+            }
+        }
+    }
+
+    private static int readUnsigned24LittleEndian(DataInputStream in) throws IOException {
+        return in.readUnsignedByte() | (in.readUnsignedByte() << 8) | (in.readUnsignedByte() << 16);
+    }
+
+    // TIFF structure inside an EXIF block: IFD0 holds the orientation and a pointer to the Exif IFD,
+    // which holds DateTimeOriginal. Out-of-range offsets just end the parse.
+    private void parseExif(byte[] data, int start, Header header) {
+        if (data.length - start < 8) {
+            return;
+        }
+        ByteBuffer tiff = ByteBuffer.wrap(data, start, data.length - start).slice();
+        if (tiff.get(0) == 'I' && tiff.get(1) == 'I') {
+            tiff.order(ByteOrder.LITTLE_ENDIAN);
+        } else if (tiff.get(0) == 'M' && tiff.get(1) == 'M') {
+            tiff.order(ByteOrder.BIG_ENDIAN);
+        } else {
+            return;
+        }
+        if (Short.toUnsignedInt(tiff.getShort(2)) != 42) {
+            return;
+        }
+
+        try {
+            String dateTime = null;
+            long exifIfd = -1;
+            int ifd0 = tiff.getInt(4);
+            int entries = Short.toUnsignedInt(tiff.getShort(ifd0));
+            for (int i = 0; i < entries; i++) {
+                int entry = ifd0 + 2 + i * 12;
+                int tag = Short.toUnsignedInt(tiff.getShort(entry));
+                if (tag == TAG_ORIENTATION) {
+                    int orientation = Short.toUnsignedInt(tiff.getShort(entry + 8));
+                    if (orientation >= 1 && orientation <= 8) {
+                        header.orientation = orientation;
+                    }
+                } else if (tag == TAG_EXIF_IFD) {
+                    exifIfd = Integer.toUnsignedLong(tiff.getInt(entry + 8));
+                } else if (tag == TAG_DATE_TIME) {
+                    dateTime = readAscii(tiff, entry);
+                }
+            }
+
+            String dateTimeOriginal = null;
+            if (exifIfd > 0 && exifIfd < tiff.limit()) {
+                int ifd = (int) exifIfd;
+                int exifEntries = Short.toUnsignedInt(tiff.getShort(ifd));
+                for (int i = 0; i < exifEntries; i++) {
+                    int entry = ifd + 2 + i * 12;
+                    if (Short.toUnsignedInt(tiff.getShort(entry)) == TAG_DATE_TIME_ORIGINAL) {
+                        dateTimeOriginal = readAscii(tiff, entry);
+                        break;
+                    }
+                }
+            }
+            // the file's own modification date is only a fallback for the capture date
+            header.takenAt = parseExifDate(dateTimeOriginal != null ? dateTimeOriginal : dateTime);
+        } catch (IndexOutOfBoundsException e) {
+            // truncated or corrupt EXIF, keep what was found
+        }
+    }
+
+    // ASCII values longer than 4 bytes live at the offset stored in the entry
+    private static String readAscii(ByteBuffer tiff, int entry) {
+        int count = tiff.getInt(entry + 4);
+        if (count <= 0 || count > 64) {
+            return null;
+        }
+        int offset = count <= 4 ? entry + 8 : tiff.getInt(entry + 8);
+        byte[] value = new byte[count];
+        tiff.get(offset, value);
+        int end = 0;
+        while (end < value.length && value[end] != 0) {
+            end++;
+        }
+        return new String(value, 0, end, StandardCharsets.US_ASCII).trim();
+    }
+
+    private static LocalDateTime parseExifDate(String value) {
+        if (value == null || value.length() < 19) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value.substring(0, 19), EXIF_DATE);
+        } catch (DateTimeParseException e) {
+            // "0000:00:00 00:00:00" and other placeholders cameras write
+            return null;
+        }
+    }
+
+    private static boolean startsWith(byte[] data, byte[] prefix) {
+        return data.length >= prefix.length && Arrays.equals(data, 0, prefix.length, prefix, 0, prefix.length);
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -1,51 +1,163 @@
     package com.internship.photovault.service;
 
     import com.internship.photovault.config.FileValidationConfig;
+    import com.internship.photovault.dto.BulkImageOperation;
+    import com.internship.photovault.dto.CursorPage;
+    import com.internship.photovault.dto.ImageSummary;
+    import com.internship.photovault.entity.FileBlob;
     import com.internship.photovault.entity.Image;
     import com.internship.photovault.entity.User;
+    import com.internship.photovault.entity.UserImageStats;
     import com.internship.photovault.exception.ImageNotFoundException;
     import com.internship.photovault.exception.InvalidFileTypeException;
+    import com.internship.photovault.repository.CollectionRepository;
+    import com.internship.photovault.repository.ImageCursor;
     import com.internship.photovault.repository.ImageRepository;
+    import com.internship.photovault.repository.ImageSort;
     import com.internship.photovault.repository.UserRepository;
+    import com.internship.photovault.service.ImageMetadataExtractor.ImageMetadata;
+    import com.internship.photovault.service.UserImageStatsService.Delta;
+    import com.internship.photovault.storage.StorageBackend;
+    import com.internship.photovault.storage.StorageLayout;
+    import io.micrometer.core.instrument.Counter;
+    import io.micrometer.core.instrument.DistributionSummary;
+    import io.micrometer.core.instrument.MeterRegistry;
+    import io.micrometer.core.instrument.Timer;
+    import org.springframework.beans.factory.annotation.Qualifier;
     import org.springframework.beans.factory.annotation.Value;
+    import org.springframework.core.io.InputStreamResource;
     import org.springframework.core.io.Resource;
     import org.springframework.core.io.UrlResource;
     import org.springframework.data.domain.Page;
+    import org.springframework.data.domain.PageImpl;
     import org.springframework.data.domain.Pageable;
+    import org.springframework.data.support.PageableExecutionUtils;
     import org.springframework.stereotype.Service;
+    import org.springframework.transaction.PlatformTransactionManager;
+    import org.springframework.transaction.annotation.Transactional;
+    import org.springframework.transaction.support.TransactionSynchronization;
+    import org.springframework.transaction.support.TransactionSynchronizationManager;
+    import org.springframework.transaction.support.TransactionTemplate;
     import org.springframework.web.multipart.MaxUploadSizeExceededException;
     import org.springframework.web.multipart.MultipartFile;
 
     import java.io.IOException;
     import java.io.InputStream;
-    import java.net.MalformedURLException;
+    import java.io.OutputStream;
+    import java.io.UncheckedIOException;
     import java.nio.file.Files;
     import java.nio.file.Path;
     import java.nio.file.Paths;
     import java.security.MessageDigest;
     import java.security.NoSuchAlgorithmException;
     import java.time.LocalDateTime;
+    import java.util.ArrayList;
+    import java.util.Arrays;
+    import java.util.HashMap;
+    import java.util.HashSet;
+    import java.util.LinkedHashMap;
+    import java.util.LinkedHashSet;
+    import java.util.HexFormat;
     import java.util.List;
     import java.util.Map;
+    import java.util.Objects;
     import java.util.Optional;
-    import java.util.UUID;
+    import java.util.OptionalLong;
+    import java.util.Set;
+    import java.util.concurrent.CompletableFuture;
+    import java.util.concurrent.CompletionException;
+    import java.util.concurrent.ExecutorService;
+    import java.util.concurrent.TimeUnit;
+    import java.util.zip.CRC32;
 
     @Service
     public class ImageService {
 
+        private static final int COPY_BUFFER_SIZE = 64 * 1024;
+        private static final int MAX_SEARCH_TERM_LENGTH = 100;
+
+        public static final String BULK_UPDATED = "updated";
+        public static final String BULK_UNCHANGED = "unchanged";
+        public static final String BULK_NOT_FOUND = "not_found";
+
         private final Path storageLocation;
+        private final StorageBackend storageBackend;
         private final ImageRepository imageRepository;
         private final FileValidationConfig fileValidationConfig;
 
         private final UserRepository userRepository;
+        private final ThumbnailService thumbnailService;
+        private final BlobStorageService blobStorageService;
+        private final ExecutorService uploadExecutor;
+        private final TransactionTemplate transactionTemplate;
+        private final UserImageStatsService imageStatsService;
+        private final int maxBulkIds;
+        private final AuditService auditService;
+        private final ImageMetadataExtractor metadataExtractor;
+        private final TagIndexService tagIndexService;
+        private final PerceptualHasher perceptualHasher;
+        private final SimilarityIndexService similarityIndexService;
+        private final CollectionRepository collectionRepository;
+
+        // where an upload spends its time: hash, write, metadata (header parse), store (blob rename/dedup),
+        // persist (Image row + stats)
+        private final Timer hashTimer;
+        private final Timer writeTimer;
+        private final Timer storeTimer;
+        private final Timer persistTimer;
+        private final Timer metadataTimer;
+        private final Timer perceptualHashTimer;
+        private final Counter uploadedBytes;
+        private final DistributionSummary uploadThroughput;
+        private final Counter singleDuplicates;
+        private final Counter batchDuplicates;
 
         public ImageService(@Value("${DB_LOCATION}") String storageLocationPath,
                             ImageRepository imageRepository,
-                            FileValidationConfig fileValidationConfig, UserRepository userRepository) {
+                            FileValidationConfig fileValidationConfig, UserRepository userRepository,
+                            ThumbnailService thumbnailService, BlobStorageService blobStorageService,
+                            @Qualifier("uploadExecutor") ExecutorService uploadExecutor,
+                            PlatformTransactionManager transactionManager,
+                            UserImageStatsService imageStatsService,
+                            @Value("${photovault.bulk.max-ids:1000}") int maxBulkIds,
+                            AuditService auditService,
+                            MeterRegistry meterRegistry,
+                            ImageMetadataExtractor metadataExtractor,
+                            StorageBackend storageBackend,
+                            TagIndexService tagIndexService,
+                            PerceptualHasher perceptualHasher,
+                            SimilarityIndexService similarityIndexService,
+                            CollectionRepository collectionRepository) {
             this.storageLocation = Paths.get(storageLocationPath).toAbsolutePath().normalize();
             this.imageRepository = imageRepository;
             this.fileValidationConfig = fileValidationConfig;
             this.userRepository = userRepository;
+            this.thumbnailService = thumbnailService;
+            this.blobStorageService = blobStorageService;
+            this.uploadExecutor = uploadExecutor;
+            this.transactionTemplate = new TransactionTemplate(transactionManager);
+            this.imageStatsService = imageStatsService;
+            this.maxBulkIds = maxBulkIds;
+            this.auditService = auditService;
+            this.metadataExtractor = metadataExtractor;
+            this.storageBackend = storageBackend;
+            this.tagIndexService = tagIndexService;
+            this.perceptualHasher = perceptualHasher;
+            this.similarityIndexService = similarityIndexService;
+            this.collectionRepository = collectionRepository;
+
+            this.hashTimer = meterRegistry.timer("photovault.upload.stage", "stage", "hash");
+            this.writeTimer = meterRegistry.timer("photovault.upload.stage", "stage", "write");
+            this.storeTimer = meterRegistry.timer("photovault.upload.stage", "stage", "store");
+            this.persistTimer = meterRegistry.timer("photovault.upload.stage", "stage", "persist");
+            this.metadataTimer = meterRegistry.timer("photovault.upload.stage", "stage", "metadata");
+            this.perceptualHashTimer = meterRegistry.timer("photovault.upload.stage", "stage", "perceptual_hash");
+            this.uploadedBytes = meterRegistry.counter("photovault.upload.bytes");
+            this.uploadThroughput = DistributionSummary.builder("photovault.upload.throughput")
+                    .baseUnit("bytes_per_second")
+                    .register(meterRegistry);
+            this.singleDuplicates = meterRegistry.counter("photovault.upload.duplicates", "path", "single");
+            this.batchDuplicates = meterRegistry.counter("photovault.upload.duplicates", "path", "batch");
 
             try {
                 Files.createDirectories(this.storageLocation);
@@ -54,82 +166,303 @@
             }
         }
 
+        // Upload written to a temp file in the local staging directory (DB_LOCATION) and hashed, not yet referenced by the database
+        // contentType is the sniffed type, not the one the client declared; perceptualHash is null when undecodable
+        public record StagedUpload(Path tempFile, String checksum, long crc32, long fileSize,
+                                   String contentType, String originalFilename, ImageMetadata metadata,
+                                   Long perceptualHash) {
+        }
+
+        // Per-file outcome of a batch upload, in the order of the submitted files
+        public record BatchUploadResult(String filename, Image image, Exception error) {
+            public boolean isSuccess() {
+                return error == null;
+            }
+        }
+
+        @Transactional(rollbackFor = Exception.class)
         public Image saveImage(MultipartFile file, User user) throws IOException {
-            // File size validation
-            long maxFileSize = 30 * 3840 * 2160; // 30MB max size allowed
-            if (file.getSize() > maxFileSize) {
-                throw new MaxUploadSizeExceededException(maxFileSize);
+            StagedUpload staged = stageUpload(file);
+            try {
+                return persistUpload(staged, user);
+            } finally {
+                Files.deleteIfExists(staged.tempFile());
             }
+        }
 
-            String checksum = calculateSHA256(file.getInputStream());
+        // Persists a file that was assembled and hashed elsewhere (resumable uploads). The file is
+        // consumed like a staged upload's temp file once it reaches the blob store.
+        @Transactional(rollbackFor = Exception.class)
+        public Image saveAssembledUpload(Path assembledFile, String checksum, long crc32, long fileSize,
+                                         String originalFilename, User user) throws IOException {
+            long metadataStart = System.nanoTime();
+            ImageMetadata metadata = sniff(assembledFile);
+            metadataTimer.record(System.nanoTime() - metadataStart, TimeUnit.NANOSECONDS);
+            uploadedBytes.increment(fileSize);
+            return persistUpload(new StagedUpload(assembledFile, checksum, crc32, fileSize, metadata.contentType(),
+                    originalFilename, metadata, perceptualHash(assembledFile, metadata)), user);
+        }
 
-            // Check if the file already exists in the database
-            Optional<Image> existingImage = imageRepository.findByChecksumSha256AndUser(checksum, user);
+        private Image persistUpload(StagedUpload staged, User user) throws IOException {
+            // Check if the file already exists in the database, the caller drops the staged file
+            Optional<Image> existingImage = imageRepository.findByChecksumSha256AndUser(staged.checksum(), user);
             if (existingImage.isPresent()) {
-                // If the file already exists, return the existing image
+                singleDuplicates.increment();
                 throw new IllegalStateException("File already exists! Duplicate upload is not allowed.");
             }
 
+            Image image = createImage(staged, user);
+            long persistStart = System.nanoTime();
+            Image savedImage = imageRepository.save(image);
+            imageStatsService.apply(user.getId(), Delta.of(savedImage));
+            tagIndexService.imageSaved(savedImage);
+            similarityIndexService.imageSaved(savedImage);
+            persistTimer.record(System.nanoTime() - persistStart, TimeUnit.NANOSECONDS);
+
+            // Build the grid renditions in the background, the thumbnail endpoint falls back to lazy generation
+            thumbnailService.scheduleRenditions(savedImage.getStoredFilename());
+            return savedImage;
+        }
+
+        // Hash and write all files in parallel on the bounded upload executor, then persist every
+        // accepted row in a single transaction. Failures are reported per file and never abort the batch.
+        public List<BatchUploadResult> saveImages(List<MultipartFile> files, User user) {
+            List<CompletableFuture<StagedUpload>> staging = files.stream()
+                    .map(file -> CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return stageUpload(file);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, uploadExecutor))
+                    .toList();
+
+            BatchUploadResult[] results = new BatchUploadResult[files.size()];
+            StagedUpload[] staged = new StagedUpload[files.size()];
+            for (int i = 0; i < staging.size(); i++) {
+                try {
+                    staged[i] = staging.get(i).join();
+                } catch (CompletionException e) {
+                    Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+                    results[i] = new BatchUploadResult(files.get(i).getOriginalFilename(), null,
+                            cause instanceof Exception ? (Exception) cause : e);
+                }
+            }
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> persistBatch(staged, results, user));
+            } catch (RuntimeException e) {
+                // the whole transaction rolled back, nothing from this batch was stored
+                for (int i = 0; i < results.length; i++) {
+                    if (staged[i] != null && (results[i] == null || results[i].isSuccess())) {
+                        results[i] = new BatchUploadResult(staged[i].originalFilename(), null, e);
+                    }
+                }
+            } finally {
+                for (StagedUpload upload : staged) {
+                    if (upload != null) {
+                        deleteQuietly(upload.tempFile());
+                    }
+                }
+            }
+
+            for (BatchUploadResult result : results) {
+                if (result.isSuccess()) {
+                    thumbnailService.scheduleRenditions(result.image().getStoredFilename());
+                }
+            }
+            return Arrays.asList(results);
+        }
+
+        private void persistBatch(StagedUpload[] staged, BatchUploadResult[] results, User user) {
+            // one lookup for the whole batch, plus duplicates within the batch itself
+            Set<String> checksums = new HashSet<>();
+            for (StagedUpload upload : staged) {
+                if (upload != null) {
+                    checksums.add(upload.checksum());
+                }
+            }
+            Set<String> seen = checksums.isEmpty()
+                    ? new HashSet<>()
+                    : new HashSet<>(imageRepository.findExistingChecksums(user, checksums));
+
+            List<Image> images = new ArrayList<>();
+            List<Integer> imageIndexes = new ArrayList<>();
+            for (int i = 0; i < staged.length; i++) {
+                if (staged[i] == null) {
+                    continue;
+                }
+                if (!seen.add(staged[i].checksum())) {
+                    batchDuplicates.increment();
+                    results[i] = new BatchUploadResult(staged[i].originalFilename(), null,
+                            new IllegalStateException("File already exists! Duplicate upload is not allowed."));
+                    continue;
+                }
+                try {
+                    images.add(createImage(staged[i], user));
+                    imageIndexes.add(i);
+                } catch (IOException e) {
+                    results[i] = new BatchUploadResult(staged[i].originalFilename(), null, e);
+                }
+            }
+
+            // one sample per batch, the rows go out together
+            long persistStart = System.nanoTime();
+            List<Image> savedImages = imageRepository.saveAll(images);
+            Delta added = Delta.ZERO;
+            for (int i = 0; i < savedImages.size(); i++) {
+                int index = imageIndexes.get(i);
+                results[index] = new BatchUploadResult(staged[index].originalFilename(), savedImages.get(i), null);
+                added = added.plus(Delta.of(savedImages.get(i)));
+                tagIndexService.imageSaved(savedImages.get(i));
+                similarityIndexService.imageSaved(savedImages.get(i));
+            }
+            imageStatsService.apply(user.getId(), added);
+            persistTimer.record(System.nanoTime() - persistStart, TimeUnit.NANOSECONDS);
+        }
+
+        // Validates the upload and streams it into a temp file while hashing it, no database access
+        private StagedUpload stageUpload(MultipartFile file) throws IOException {
+            // File size validation
+            long maxFileSize = 30 * 3840 * 2160; // 30MB max size allowed
+            if (file.getSize() > maxFileSize) {
+                throw new MaxUploadSizeExceededException(maxFileSize);
+            }
 
             // Validate file type using injected config
             if (!fileValidationConfig.isValidImageType(file.getContentType())) {
                 throw new InvalidFileTypeException("Invalid file type. Only JPEG, PNG, GIF, and WebP are allowed.");
             }
 
-            // Generate unique filename
-            String originalFileName = file.getOriginalFilename();
-            String fileExtension = "";
-            if (originalFileName != null && originalFileName.contains(".")) {
-                fileExtension = originalFileName.substring(originalFileName.lastIndexOf("."));
+            // Single pass: hash while streaming into a temp file in the staging directory,
+            // the blob store then stores it under its content-addressed key (a rename on the filesystem backend)
+            Path tempFile = Files.createTempFile(this.storageLocation, "upload-", ".tmp");
+            long start = System.nanoTime();
+            try (InputStream inputStream = file.getInputStream()) {
+                HashedCopy copy = copyAndHash(inputStream, tempFile);
+                long elapsed = System.nanoTime() - start;
+                hashTimer.record(copy.hashNanos(), TimeUnit.NANOSECONDS);
+                writeTimer.record(copy.writeNanos(), TimeUnit.NANOSECONDS);
+                uploadedBytes.increment(copy.bytes());
+                if (elapsed > 0) {
+                    uploadThroughput.record(copy.bytes() * 1_000_000_000d / elapsed);
+                }
+
+                // the declared Content-Type is only a hint, the header decides what the file is
+                long metadataStart = System.nanoTime();
+                ImageMetadata metadata = sniff(tempFile);
+                metadataTimer.record(System.nanoTime() - metadataStart, TimeUnit.NANOSECONDS);
+                return new StagedUpload(tempFile, copy.checksum(), copy.crc32(), file.getSize(), metadata.contentType(),
+                        file.getOriginalFilename(), metadata, perceptualHash(tempFile, metadata));
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(tempFile);
+                throw e;
             }
-            String storedFilename = UUID.randomUUID() + fileExtension;
+        }
 
-            // Store the file
-            Path targetLocation = this.storageLocation.resolve(storedFilename);
-            Files.copy(file.getInputStream(), targetLocation);
+        private ImageMetadata sniff(Path file) throws IOException {
+            return metadataExtractor.extract(file)
+                    .filter(sniffed -> fileValidationConfig.isValidImageType(sniffed.contentType()))
+                    .orElseThrow(() -> new InvalidFileTypeException("Invalid file type. Only JPEG, PNG, GIF, and WebP are allowed."));
+        }
 
-            // Create and save image entity
+        // Decoded subsampled from the local staged file; a file the sniffing accepted but ImageIO cannot
+        // decode is still stored, it just takes no part in near-duplicate lookups
+        private Long perceptualHash(Path file, ImageMetadata metadata) {
+            long start = System.nanoTime();
+            try {
+                OptionalLong hash = perceptualHasher.hash(file, metadata.orientation());
+                return hash.isPresent() ? hash.getAsLong() : null;
+            } catch (IOException e) {
+                System.err.println("Could not compute the perceptual hash of " + file.getFileName() + ": " + e.getMessage());
+                return null;
+            } finally {
+                perceptualHashTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        // Hands the staged file to the blob store and builds the unsaved Image row pointing at it
+        private Image createImage(StagedUpload staged, User user) throws IOException {
+            // Same bytes uploaded by anyone else only add a reference to the stored file
+            long storeStart = System.nanoTime();
+            FileBlob blob = blobStorageService.acquire(staged.tempFile(), staged.checksum(), staged.crc32(),
+                    staged.fileSize(), staged.contentType());
+            storeTimer.record(System.nanoTime() - storeStart, TimeUnit.NANOSECONDS);
+
+            // Create image entity
             Image image = new Image();
             image.setUser(user);
-            image.setOriginalFilename(originalFileName);
-            image.setFilename(originalFileName);
-            image.setStoredFilename(storedFilename);
-            image.setFilePath(targetLocation.toString());
-            image.setFileSize(file.getSize());
-            image.setContentType(file.getContentType());
+            image.setOriginalFilename(staged.originalFilename());
+            image.setFilename(staged.originalFilename());
+            image.setBlob(blob);
+            image.setStoredFilename(blob.getStoredFilename());
+            image.setFilePath(blob.getFilePath());
+            image.setFileSize(staged.fileSize());
+            image.setContentType(staged.contentType());
             image.setUploadDate(LocalDateTime.now());
+            image.setChecksumSha256(staged.checksum());
+            image.setPerceptualHash(staged.perceptualHash());
+            if (staged.perceptualHash() == null) {
+                // the staged file was local, decoding it again later would fail the same way
+                image.setPerceptualHashAttemptedAt(LocalDateTime.now());
+            }
+            image.setWidth(staged.metadata().width());
+            image.setHeight(staged.metadata().height());
+            image.setOrientation(staged.metadata().orientation());
+            image.setTakenAt(staged.metadata().takenAt());
+            return image;
+        }
+
+        private void deleteQuietly(Path path) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                System.err.println("Failed to delete temp file: " + e.getMessage());
+            }
+        }
 
-            image.setChecksumSha256(checksum);
-            return imageRepository.save(image);
+        // Result of copyAndHash, with the time spent in the digest and in the file writes
+        record HashedCopy(String checksum, long crc32, long bytes, long hashNanos, long writeNanos) {
         }
 
-        // Calculate SHA-256 checksum for the file
-        private String calculateSHA256(InputStream inputStream) throws IOException {
+        // Copy the stream to target and return its SHA-256 checksum and CRC-32, reading the source exactly once.
+        // Package-private for ImageServiceBenchmark.
+        static HashedCopy copyAndHash(InputStream inputStream, Path target) throws IOException {
+            MessageDigest digest;
             try {
-                MessageDigest digest = MessageDigest.getInstance("SHA-256");
-                byte[] buffer = new byte[8192];
-                int bytesRead;
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IOException("Could not calculate SHA-256 checksum", e);
+            }
 
+            CRC32 crc = new CRC32();
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            long bytes = 0;
+            long hashNanos = 0;
+            long writeNanos = 0;
+            // reading time is neither, it is the client/network side of the upload
+            try (OutputStream outputStream = Files.newOutputStream(target)) {
+                int bytesRead;
                 while ((bytesRead = inputStream.read(buffer)) != -1) {
+                    long hashStart = System.nanoTime();
                     digest.update(buffer, 0, bytesRead);
+                    crc.update(buffer, 0, bytesRead);
+                    long writeStart = System.nanoTime();
+                    outputStream.write(buffer, 0, bytesRead);
+                    long writeEnd = System.nanoTime();
+                    hashNanos += writeStart - hashStart;
+                    writeNanos += writeEnd - writeStart;
+                    bytes += bytesRead;
                 }
-
-                byte[] digestBytes = digest.digest();
-                StringBuilder hexString = new StringBuilder();
-
-                for (byte b : digestBytes) {
-                    String hex = Integer.toHexString(0xff & b);
-                    if (hex.length() == 1) {
-                        hexString.append('0');
-                    }
-                    hexString.append(hex);
-                }
-
-                return hexString.toString();
-            }
-            catch (NoSuchAlgorithmException e) {
-                throw new IOException("Could not calculate SHA-256 checksum", e);
+                // the close flushes and closes the file, part of the write
+                long closeStart = System.nanoTime();
+                outputStream.close();
+                writeNanos += System.nanoTime() - closeStart;
             }
+            long digestStart = System.nanoTime();
+            String checksum = HexFormat.of().formatHex(digest.digest());
+            hashNanos += System.nanoTime() - digestStart;
+            return new HashedCopy(checksum, crc.getValue(), bytes, hashNanos, writeNanos);
         }
 /*         Proper Page filtering for active images only, deprecated method, manual and slow
         public Page<Image> getAllImages(Pageable pageable) {
@@ -141,8 +474,21 @@
             return new PageImpl<>(activeImages, pageable, getTotalActiveImageCount());
         }*/
 
-        public Page<Image> getAllImages(User user, Pageable pageable) {
-            return imageRepository.findAllActiveImages(user, false, pageable);
+        public Page<ImageSummary> getAllImages(User user, Pageable pageable) {
+            Page<ImageSummary> page = imageRepository.findActiveSummaries(user, pageable);
+            return new PageImpl<>(withTags(page.getContent()), page.getPageable(), page.getTotalElements());
+        }
+
+        // Keyset window over the active gallery, fetches one extra row to know whether more follow
+        public CursorPage<ImageSummary> getImagesAfter(User user, ImageSort sort, String cursor, int size, boolean includeTotal) {
+            ImageCursor after = cursor == null || cursor.isBlank() ? null : ImageCursor.decode(cursor, sort);
+            List<ImageSummary> rows = imageRepository.findActiveSummariesAfter(user, sort, after, size + 1);
+
+            boolean hasNext = rows.size() > size;
+            List<ImageSummary> content = withTags(hasNext ? rows.subList(0, size) : rows);
+            String nextCursor = hasNext ? ImageCursor.after(content.get(content.size() - 1), sort).encode() : null;
+            Long total = includeTotal ? imageStatsService.getStats(user.getId()).getActiveCount() : null;
+            return new CursorPage<>(content, nextCursor, hasNext, total);
         }
 
         // return active (non-deleted, non-archived) images
@@ -150,17 +496,75 @@
             return imageRepository.findAllActiveImages();
         }
 
-        public List<Image> getFavorites(User user) {
-            return imageRepository.findFavoriteImages(user);
+        public List<ImageSummary> getFavorites(User user) {
+            return withTags(imageRepository.findFavoriteSummaries(user));
+        }
+
+        public List<ImageSummary> getTrashedImages(User user) {
+            return withTags(imageRepository.findTrashSummaries(user));
+        }
+
+        // Ranked filename/tag search, the repository returns one page of ids and the summaries are loaded by id
+        public Page<ImageSummary> searchImages(String query, User user, Pageable pageable) {
+            String term = query == null ? "" : query.trim();
+            if (term.isEmpty()) {
+                return Page.empty(pageable);
+            }
+            if (term.length() > MAX_SEARCH_TERM_LENGTH) {
+                throw new IllegalArgumentException("Search query must be at most " + MAX_SEARCH_TERM_LENGTH + " characters");
+            }
+
+            String pattern = "%" + escapeLikePattern(term) + "%";
+            List<Long> ids = imageRepository.searchActiveImageIds(user.getId(), term, pattern,
+                    pageable.getPageSize(), pageable.getOffset());
+
+            List<ImageSummary> content = getSummaries(ids);
+
+            // skips the count query when the page already shows the end of the results
+            return PageableExecutionUtils.getPage(content, pageable,
+                    () -> imageRepository.countActiveImageMatches(user.getId(), term, pattern));
+        }
+
+        // Summaries with tags for ids resolved elsewhere (search, collections), in the order of ids.
+        // Callers have already restricted ids to images the user may see.
+        public List<ImageSummary> getSummaries(List<Long> ids) {
+            if (ids.isEmpty()) {
+                return List.of();
+            }
+            // IN (...) does not keep the caller's order
+            Map<Long, ImageSummary> imagesById = new HashMap<>();
+            for (ImageSummary image : imageRepository.findSummariesByIdIn(ids)) {
+                imagesById.put(image.id(), image);
+            }
+            return withTags(ids.stream()
+                    .map(imagesById::get)
+                    .filter(Objects::nonNull)
+                    .toList());
         }
 
-        public List<Image> getTrashedImages(User user) {
-            return imageRepository.findTrashImages(user);
+        // Attaches tag names to a page of summaries with a single IN query instead of one lazy load per row
+        private List<ImageSummary> withTags(List<ImageSummary> summaries) {
+            if (summaries.isEmpty()) {
+                return summaries;
+            }
+
+            List<Long> ids = summaries.stream().map(ImageSummary::id).toList();
+            Map<Long, List<String>> tagsByImage = new HashMap<>();
+            for (Object[] row : imageRepository.findTagNamesByImageIds(ids)) {
+                tagsByImage.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]);
+            }
+            if (tagsByImage.isEmpty()) {
+                return summaries;
+            }
+            return summaries.stream()
+                    .map(summary -> summary.withTags(tagsByImage.getOrDefault(summary.id(), List.of())))
+                    .toList();
         }
 
-        // Use search in repo instead of non-optimized manual search
-        public List<Image> searchImages(String query, User user) {
-            return imageRepository.searchByOriginalFilename(query, user);
+        private static String escapeLikePattern(String term) {
+            return term.replace("\\", "\\\\")
+                    .replace("%", "\\%")
+                    .replace("_", "\\_");
         }
 
 /*        safe to remove, not used
@@ -191,13 +595,26 @@
             return image;
         }
 
-        public List<Image> getArchivedImages(User user) {
-            return imageRepository.findArchivedImages(user);
+        public List<ImageSummary> getArchivedImages(User user) {
+            return withTags(imageRepository.findArchivedSummaries(user));
         }
 
 
         // Simplified resource loading without database lookup
         public Resource loadImageAsResource(String filename) {
+            String key = resolveImageKey(filename);
+            try {
+                Optional<Path> localFile = storageBackend.localFile(key);
+                return localFile.isPresent()
+                        ? new UrlResource(localFile.get().toUri())
+                        : new InputStreamResource(storageBackend.get(key));
+            } catch (IOException e) {
+                throw new RuntimeException("Error: " + e.getMessage());
+            }
+        }
+
+        // Validated storage key of a stored file, used for streaming without going through a Resource
+        public String resolveImageKey(String filename) {
             if (filename == null || filename.trim().isEmpty()) {
                 throw new IllegalArgumentException("Filename cannot be null or empty");
             }
@@ -206,51 +623,161 @@
                 throw new IllegalArgumentException("Invalid filename: path traversal detected");
             }
 
+            String key;
             try {
-                Path filePath = this.storageLocation.resolve(filename).normalize();
-                if (!filePath.startsWith(this.storageLocation)) {
-                    throw new IllegalArgumentException("Invalid filename: outside storage directory");
-                }
-                Resource resource = new UrlResource(filePath.toUri());
-
-                if (resource.exists() && resource.isReadable()) {
-                    return resource;
-                } else {
+                key = StorageLayout.keyFor(filename);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid filename: outside storage directory");
+            }
+            try {
+                if (!storageBackend.exists(key)) {
                     throw new RuntimeException("Could not read the file: " + filename);
                 }
-            } catch (MalformedURLException e) {
-                throw new RuntimeException("Error: " + e.getMessage());
+            } catch (IOException e) {
+                throw new RuntimeException("Could not read the file: " + filename, e);
             }
+            return key;
         }
 
+        // Thumbnail rendition for the grid, falls back to the original when no rendition can be built
+        public String resolveThumbnailKey(Image image, Integer requestedSize) {
+            return thumbnailService.getRendition(image.getStoredFilename(), requestedSize)
+                    .orElseGet(() -> resolveImageKey(image.getStoredFilename()));
+        }
+
+        @Transactional
         public Image toggleFavorite(Long id, User user) {
             Image image = getImageById(id, user);
+            Delta before = Delta.of(image);
             image.setIsFavorite(!image.getIsFavorite());
-            return imageRepository.save(image);
+            return saveWithStats(image, before);
         }
 
+        // Applies one operation to a multi-selection: a locking read of the owned rows, then a single
+        // ownership-filtered UPDATE for the rows whose state actually changes. Results keep the request order.
+        @Transactional
+        public Map<Long, String> bulkUpdate(List<Long> ids, BulkImageOperation operation, User user) {
+            Set<Long> requested = new LinkedHashSet<>(ids);
+            requested.remove(null);
+            if (requested.isEmpty()) {
+                throw new IllegalArgumentException("ids must not be empty");
+            }
+            if (requested.size() > maxBulkIds) {
+                throw new IllegalArgumentException("At most " + maxBulkIds + " images can be changed at once");
+            }
+
+            Map<Long, String> results = new LinkedHashMap<>();
+            requested.forEach(id -> results.put(id, BULK_NOT_FOUND));
+
+            List<Long> changed = new ArrayList<>();
+            Delta delta = Delta.ZERO;
+            for (Object[] row : imageRepository.lockOwnedImageStates(user.getId(), requested)) {
+                Long id = ((Number) row[0]).longValue();
+                Boolean isFavorite = (Boolean) row[1];
+                Boolean isArchived = (Boolean) row[2];
+                Boolean isDeleted = (Boolean) row[3];
+                Long fileSize = row[4] == null ? null : ((Number) row[4]).longValue();
+
+                boolean inTrash = Boolean.TRUE.equals(isDeleted);
+                // same rules as the single-image endpoints: only RESTORE touches trashed images
+                boolean applies = switch (operation) {
+                    case TRASH -> !inTrash;
+                    case RESTORE -> inTrash;
+                    case ARCHIVE -> !inTrash && !Boolean.TRUE.equals(isArchived);
+                    case UNARCHIVE -> !inTrash && Boolean.TRUE.equals(isArchived);
+                    case FAVORITE -> !inTrash && !Boolean.TRUE.equals(isFavorite);
+                    case UNFAVORITE -> !inTrash && Boolean.TRUE.equals(isFavorite);
+                };
+                if (!applies) {
+                    results.put(id, BULK_UNCHANGED);
+                    continue;
+                }
+
+                Delta before = Delta.of(isFavorite, isArchived, isDeleted, fileSize);
+                Delta after = switch (operation) {
+                    case TRASH, RESTORE -> Delta.of(isFavorite, isArchived, operation == BulkImageOperation.TRASH, fileSize);
+                    case ARCHIVE, UNARCHIVE -> Delta.of(isFavorite, operation == BulkImageOperation.ARCHIVE, isDeleted, fileSize);
+                    case FAVORITE, UNFAVORITE -> Delta.of(operation == BulkImageOperation.FAVORITE, isArchived, isDeleted, fileSize);
+                };
+                delta = delta.plus(after.minus(before));
+                changed.add(id);
+                results.put(id, BULK_UPDATED);
+            }
+
+            if (!changed.isEmpty()) {
+                LocalDateTime now = LocalDateTime.now();
+                String field = switch (operation) {
+                    case TRASH, RESTORE -> "isDeleted";
+                    case ARCHIVE, UNARCHIVE -> "isArchived";
+                    case FAVORITE, UNFAVORITE -> "isFavorite";
+                };
+                boolean value = operation == BulkImageOperation.TRASH || operation == BulkImageOperation.ARCHIVE
+                        || operation == BulkImageOperation.FAVORITE;
+                switch (operation) {
+                    case TRASH, RESTORE -> {
+                        imageRepository.updateDeletedFlag(user, changed, value, now);
+                        // rows are locked above
+                        collectionRepository.adjustImageCounts(changed, value ? -1 : 1);
+                    }
+                    case ARCHIVE, UNARCHIVE -> imageRepository.updateArchivedFlag(user, changed, value, now);
+                    case FAVORITE, UNFAVORITE -> imageRepository.updateFavoriteFlag(user, changed, value, now);
+                }
+                imageStatsService.apply(user.getId(), delta);
+                tagIndexService.flagChanged(user.getId(), changed, switch (operation) {
+                    case TRASH, RESTORE -> TagIndexService.Flag.DELETED;
+                    case ARCHIVE, UNARCHIVE -> TagIndexService.Flag.ARCHIVED;
+                    case FAVORITE, UNFAVORITE -> TagIndexService.Flag.FAVORITE;
+                }, value);
+
+                // the bulk UPDATE bypasses Hibernate events, so the audit entries are recorded here
+                for (Long id : changed) {
+                    auditService.recordAfterCommit(AuditService.UPDATE, "images", id,
+                            Map.of(field, !value), Map.of(field, value));
+                }
+            }
+            return results;
+        }
+
+        // Single primary-key lookup on the maintained counters instead of four COUNT queries
         public Map<String, Object> getImageStats(User user) {
+            UserImageStats stats = imageStatsService.getStats(user.getId());
             return Map.of(
-                    "totalImages", imageRepository.countActiveImages(user),
-                    "favorites", imageRepository.countFavoriteImages(user),
-                    "archived", imageRepository.countArchivedImages(user),
-                    "trash", imageRepository.countTrashedImages(user)
+                    "totalImages", stats.getActiveCount(),
+                    "favorites", stats.getFavoriteCount(),
+                    "archived", stats.getArchivedCount(),
+                    "trash", stats.getTrashCount(),
+                    "totalBytes", stats.getTotalBytes()
             );
         }
 
+        @Transactional
         public Image toggleArchive(Long id, User user) {
             Image image = getImageById(id, user);
+            Delta before = Delta.of(image);
             image.setIsArchived(!image.getIsArchived());
-            return imageRepository.save(image);
+            return saveWithStats(image, before);
         }
 
+        @Transactional
         public void moveToTrash(Long id, User user) {
             Image image = getImageById(id, user);
+            Delta before = Delta.of(image);
             image.setIsDeleted(true);
-            imageRepository.save(image);
+            image.setDeletedAt(LocalDateTime.now());
+            saveWithStats(image, before);
+            adjustCollectionCounts(image, -1);
+        }
+
+        // Saves a state change and moves the owner's counters by the difference it made
+        private Image saveWithStats(Image image, Delta before) {
+            Image saved = imageRepository.save(image);
+            imageStatsService.apply(saved.getUser().getId(), Delta.of(saved).minus(before));
+            tagIndexService.imageSaved(saved);
+            return saved;
         }
 
         // Fixed: Use internal method to bypass deletion check
+        @Transactional
         public Image restoreFromTrash(Long id, User user) {
             Image image = getImageByIdInternal(id);
 
@@ -261,11 +788,24 @@
             if (!image.getIsDeleted()) {
                 throw new IllegalStateException("Image is not in trash");
             }
+            Delta before = Delta.of(image);
             image.setIsDeleted(false);
-            return imageRepository.save(image);
+            image.setDeletedAt(null);
+            Image saved = saveWithStats(image, before);
+            adjustCollectionCounts(saved, 1);
+            return saved;
+        }
+
+        // Collections count their non-trashed images. The flushed UPDATE holds the image row, so a
+        // concurrent CollectionRepository.addImages/removeImages either waits for this commit or came first
+        // and its membership change is already visible here.
+        private void adjustCollectionCounts(Image image, int delta) {
+            imageRepository.flush();
+            collectionRepository.adjustImageCounts(List.of(image.getId()), delta);
         }
 
         // Fixed: Use internal method and renamed for consistency
+        @Transactional
         public void deletePermanently(Long id, User user) {
             Image image = getImageByIdInternal(id);
 
@@ -273,16 +813,43 @@
             if (!image.getUser().getId().equals(user.getId())) {
                 throw new IllegalStateException("Image does not belong to the user");
             }
-            // Delete the physical file
-            try {
-                Path filePath = this.storageLocation.resolve(image.getStoredFilename());
-                Files.deleteIfExists(filePath);
-            } catch (IOException e) {
-                // Log the error but don't fail the operation
-                System.err.println("Failed to delete physical file: " + e.getMessage());
+
+            // the membership rows go with the image (ON DELETE CASCADE); only collections still counting it
+            // move, checked on the locked row
+            List<Object[]> state = imageRepository.lockOwnedImageStates(user.getId(), List.of(image.getId()));
+            if (!state.isEmpty() && Boolean.FALSE.equals(state.get(0)[3])) {
+                collectionRepository.adjustImageCounts(List.of(image.getId()), -1);
             }
 
-            // Delete from database
+            // Delete from database; flushed before the blob is released, whose row may go with this last
+            // reference and images.blob_id is checked immediately
+            FileBlob blob = image.getBlob();
             imageRepository.delete(image);
+            imageRepository.flush();
+
+            if (blob != null) {
+                // Shared file, only removed once the last image referencing it is gone
+                blobStorageService.release(blob);
+            } else {
+                // Legacy upload owning its file, removed once the row is gone so the layout migrator
+                // (which locks the row while moving the file) cannot move it out from under the delete
+                String storedFilename = image.getStoredFilename();
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        try {
+                            storageBackend.delete(StorageLayout.keyFor(storedFilename));
+                            thumbnailService.deleteRenditions(storedFilename);
+                        } catch (IOException | IllegalArgumentException e) {
+                            // Log the error but don't fail the operation
+                            System.err.println("Failed to delete physical file: " + e.getMessage());
+                        }
+                    }
+                });
+            }
+
+            imageStatsService.apply(user.getId(), Delta.of(image).negate());
+            tagIndexService.imagesRemoved(user.getId(), List.of(image.getId()));
+            similarityIndexService.imagesRemoved(List.of(image));
         }
     }
\ No newline at end of file
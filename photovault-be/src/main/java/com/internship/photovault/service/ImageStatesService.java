@@ -5,9 +5,9 @@ import com.internship.photovault.entity.ImageStates;
 import com.internship.photovault.entity.User;
 import com.internship.photovault.repository.ImageStatesRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
 import java.util.List;
 
 @Service
@@ -15,9 +15,11 @@ import java.util.List;
 public class ImageStatesService {
 
     private final ImageStatesRepository imageStatesRepository;
+    private final ViewCountService viewCountService;
 
-    public ImageStatesService(ImageStatesRepository imageStatesRepository) {
+    public ImageStatesService(ImageStatesRepository imageStatesRepository, ViewCountService viewCountService) {
         this.imageStatesRepository = imageStatesRepository;
+        this.viewCountService = viewCountService;
     }
 
     public ImageStates getOrCreateImageState(Image image, User user) {
@@ -45,11 +47,10 @@ public class ImageStatesService {
         return imageStatesRepository.save(state);
     }
 
+    // Buffered in memory and written in batches by ViewCountService, no database work per view
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void incrementViewCount(Image image, User user) {
-        ImageStates state = getOrCreateImageState(image, user);
-        state.setViewCount(state.getViewCount() + 1);
-        state.setLastViewed(LocalDateTime.now());
-        imageStatesRepository.save(state);
+        viewCountService.recordView(image.getId(), user.getId());
     }
 
     public List<ImageStates> getFavoriteImages(User user) {
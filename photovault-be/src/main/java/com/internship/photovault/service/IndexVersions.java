@@ -0,0 +1,83 @@
+package com.internship.photovault.service;
+
+import com.internship.photovault.repository.UserIndexVersionRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+// Per-user change counters (user_index_versions) that tell a node whether its in-memory copy of an index
+// is still current. Every transaction that changes what an index covers bumps the user's counter once,
+// the change is applied locally after commit together with the version it committed as. A query compares
+// the local version with the committed one, a primary-key lookup, and rebuilds when another node (or a
+// change this node missed) moved it on.
+@Service
+public class IndexVersions {
+
+    // Applied without a transaction, the local copy keeps its version
+    public static final long UNVERSIONED = -1;
+
+    private final UserIndexVersionRepository repository;
+
+    public IndexVersions(UserIndexVersionRepository repository) {
+        this.repository = repository;
+    }
+
+    // Committed version of the user's index, 0 while it never changed
+    public long current(String index, Long userId) {
+        Long version = repository.findIndexVersion(userId, index);
+        return version != null ? version : 0;
+    }
+
+    // Runs apply with the version the surrounding transaction commits the change as, once it has committed;
+    // right away with UNVERSIONED outside a transaction
+    public void afterCommit(String index, Long userId, LongConsumer apply) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            apply.accept(UNVERSIONED);
+            return;
+        }
+        long version = pending().versions.computeIfAbsent(index + ":" + userId,
+                key -> repository.bumpIndexVersion(userId, index));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply.accept(version);
+            }
+        });
+    }
+
+    // Version of a local copy at localVersion once the change committed as version is applied to it.
+    // A copy built from a snapshot that already included the change stays where it is.
+    public static long advance(long localVersion, long version) {
+        if (version == UNVERSIONED || localVersion >= version) {
+            return localVersion;
+        }
+        // a gap means changes committed elsewhere, the copy stays behind and the next query rebuilds it
+        return localVersion == version - 1 ? version : localVersion;
+    }
+
+    // Versions bumped by the current transaction; synchronizations are suspended with their transaction,
+    // so a REQUIRES_NEW one inside gets its own
+    private Pending pending() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof Pending pending && pending.owner == this) {
+                return pending;
+            }
+        }
+        Pending pending = new Pending(this);
+        TransactionSynchronizationManager.registerSynchronization(pending);
+        return pending;
+    }
+
+    private static final class Pending implements TransactionSynchronization {
+        private final IndexVersions owner;
+        private final Map<String, Long> versions = new HashMap<>();
+
+        private Pending(IndexVersions owner) {
+            this.owner = owner;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.internship.photovault.service;
+
+import com.internship.photovault.repository.ImageRepository;
+import com.internship.photovault.security.SystemContext;
+import com.internship.photovault.storage.StorageBackend;
+import com.internship.photovault.storage.StorageLayout;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.IIOException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Computes the perceptual hash of images stored before uploads were hashed (see PerceptualHasher).
+// Rows without a hash are walked in keyset batches; files are decoded outside any transaction, then
+// the batch's hashes are written in one short transaction and added to the similarity index once it commits.
+// Undecodable files (WebP, corrupt data) and missing ones stay NULL but get dhash_attempted_at, which
+// drops them from the walk for good, across restarts too. A file that could not be read (e.g. the object
+// store was unreachable) is left as it was for the next run. A pass that reaches the end marks the
+// backfill complete, new uploads are hashed when they arrive.
+@Service
+public class PerceptualHashBackfill {
+
+    private final ImageRepository imageRepository;
+    private final StorageBackend storageBackend;
+    private final PerceptualHasher perceptualHasher;
+    private final SimilarityIndexService similarityIndexService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxImagesPerSecond;
+
+    private final AtomicBoolean enabled;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile boolean complete;
+    private final AtomicLong lastRunHashed = new AtomicLong();
+    private final AtomicLong lastRunCompletedAt = new AtomicLong();
+
+    private final Counter hashedImages;
+    private final Counter undecodableImages;
+    private final Counter missingFiles;
+    private final Counter unreadableFiles;
+    private final Counter batchFailures;
+
+    public PerceptualHashBackfill(ImageRepository imageRepository,
+                                  StorageBackend storageBackend,
+                                  PerceptualHasher perceptualHasher,
+                                  SimilarityIndexService similarityIndexService,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${photovault.similarity.backfill.enabled:true}") boolean enabled,
+                                  @Value("${photovault.similarity.backfill.batch-size:100}") int batchSize,
+                                  @Value("${photovault.similarity.backfill.max-images-per-second:20}") int maxImagesPerSecond) {
+        this.imageRepository = imageRepository;
+        this.storageBackend = storageBackend;
+        this.perceptualHasher = perceptualHasher;
+        this.similarityIndexService = similarityIndexService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxImagesPerSecond = maxImagesPerSecond;
+        this.enabled = new AtomicBoolean(enabled);
+
+        this.hashedImages = meterRegistry.counter("photovault.similarity.backfill.images", "outcome", "hashed");
+        this.undecodableImages = meterRegistry.counter("photovault.similarity.backfill.images", "outcome", "undecodable");
+        this.missingFiles = meterRegistry.counter("photovault.similarity.backfill.images", "outcome", "missing");
+        this.unreadableFiles = meterRegistry.counter("photovault.similarity.backfill.images", "outcome", "unreadable");
+        this.batchFailures = meterRegistry.counter("photovault.similarity.backfill.failures");
+        Gauge.builder("photovault.similarity.backfill.running", running, flag -> flag.get() ? 1 : 0).register(meterRegistry);
+        Gauge.builder("photovault.similarity.backfill.complete", this, backfill -> backfill.complete ? 1 : 0).register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${photovault.similarity.backfill.initial-delay-ms:120000}",
+            fixedDelayString = "${photovault.similarity.backfill.interval-ms:3600000}")
+    public void scheduledBackfill() {
+        if (!complete) {
+            backfill();
+        }
+    }
+
+    // Returns the number of images hashed, 0 when disabled or when another run is in progress
+    public long backfill() {
+        if (!enabled.get() || !running.compareAndSet(false, true)) {
+            return 0;
+        }
+        try (SystemContext ignored = SystemContext.enter()) {
+            long afterId = 0;
+            long hashed = 0;
+            boolean finished = false;
+            // rows that could not be read keep the backfill incomplete, the next scheduled run retries them
+            boolean skipped = false;
+            lastRunHashed.set(0);
+            while (enabled.get()) {
+                long startedAt = System.nanoTime();
+                List<Object[]> rows = imageRepository.findPendingPerceptualHashes(afterId, batchSize);
+                if (rows.isEmpty()) {
+                    finished = true;
+                    break;
+                }
+
+                List<long[]> computed = new ArrayList<>(rows.size());
+                List<Long> givenUp = new ArrayList<>();
+                for (Object[] row : rows) {
+                    long id = ((Number) row[0]).longValue();
+                    Integer orientation = row[3] == null ? null : ((Number) row[3]).intValue();
+                    Optional<OptionalLong> hash = hashStoredFile((String) row[2], orientation);
+                    if (hash.isEmpty()) {
+                        skipped = true;
+                        continue;
+                    }
+                    if (hash.get().isPresent()) {
+                        computed.add(new long[]{id, ((Number) row[1]).longValue(), hash.get().getAsLong()});
+                    } else {
+                        givenUp.add(id);
+                    }
+                }
+                long stored;
+                try {
+                    stored = transactionTemplate.execute(status -> store(computed, givenUp));
+                } catch (RuntimeException e) {
+                    // stop here, the next scheduled run picks the batch up again
+                    batchFailures.increment();
+                    System.err.println("Perceptual hash backfill batch failed: " + e.getMessage());
+                    break;
+                }
+                hashedImages.increment(stored);
+                hashed += stored;
+                lastRunHashed.set(hashed);
+                afterId = ((Number) rows.get(rows.size() - 1)[0]).longValue();
+                if (rows.size() < batchSize) {
+                    finished = true;
+                    break;
+                }
+                if (!throttle(rows.size(), startedAt)) {
+                    break;
+                }
+            }
+
+            complete = finished && !skipped;
+            lastRunCompletedAt.set(Instant.now().getEpochSecond());
+            if (hashed > 0) {
+                System.err.println("Perceptual hash backfill hashed " + hashed + " images");
+            }
+            return hashed;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // entries are (image id, user id, hash); givenUp are the ids that cannot be hashed
+    private long store(List<long[]> computed, List<Long> givenUp) {
+        if (!givenUp.isEmpty()) {
+            imageRepository.markPerceptualHashAttempted(givenUp);
+        }
+        long stored = 0;
+        for (long[] entry : computed) {
+            if (imageRepository.updatePerceptualHash(entry[0], entry[2]) > 0) {
+                similarityIndexService.imageHashed(entry[1], entry[0], entry[2]);
+                stored++;
+            }
+        }
+        return stored;
+    }
+
+    // An empty hash when the file is gone or cannot be decoded, the row is then given up on.
+    // Empty when the file could not be read this time, the row stays pending.
+    private Optional<OptionalLong> hashStoredFile(String storedFilename, Integer orientation) {
+        String key = StorageLayout.keyFor(storedFilename);
+        try {
+            Optional<Path> localFile = storageBackend.localFile(key);
+            OptionalLong hash;
+            if (localFile.isPresent()) {
+                hash = perceptualHasher.hash(localFile.get(), orientation);
+            } else {
+                try (InputStream in = storageBackend.get(key)) {
+                    hash = perceptualHasher.hash(in, orientation);
+                }
+            }
+            if (hash.isEmpty()) {
+                undecodableImages.increment();
+            }
+            return Optional.of(hash);
+        } catch (NoSuchFileException e) {
+            missingFiles.increment();
+            return Optional.of(OptionalLong.empty());
+        } catch (IIOException e) {
+            undecodableImages.increment();
+            System.err.println("Could not compute the perceptual hash of " + key + ": " + e.getMessage());
+            return Optional.of(OptionalLong.empty());
+        } catch (IOException e) {
+            unreadableFiles.increment();
+            System.err.println("Could not read " + key + " for its perceptual hash: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    // Sleeps so the batch averages at most maxImagesPerSecond; false when interrupted
+    private boolean throttle(int images, long startedAt) {
+        if (maxImagesPerSecond <= 0 || images == 0) {
+            return true;
+        }
+        long budgetNanos = TimeUnit.SECONDS.toNanos(images) / maxImagesPerSecond;
+        long remainingNanos = budgetNanos - (System.nanoTime() - startedAt);
+        if (remainingNanos <= 0) {
+            return true;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(remainingNanos);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled.get();
+    }
+
+    // Re-enabling also clears complete, so the next scheduled run walks the table again
+    public void setEnabled(boolean enabled) {
+        this.enabled.set(enabled);
+        if (enabled) {
+            complete = false;
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled.get());
+        status.put("running", running.get());
+        status.put("complete", complete);
+        status.put("batchSize", batchSize);
+        status.put("maxImagesPerSecond", maxImagesPerSecond);
+        status.put("lastRunHashed", lastRunHashed.get());
+        long completedAt = lastRunCompletedAt.get();
+        status.put("lastRunCompletedAt", completedAt == 0 ? null : Instant.ofEpochSecond(completedAt).toString());
+        return status;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        enabled.set(false);
+    }
+}
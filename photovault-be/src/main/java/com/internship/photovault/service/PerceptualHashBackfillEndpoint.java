@@ -0,0 +1,33 @@
+package com.internship.photovault.service;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Operator controls for the perceptual hash backfill: GET /actuator/hashbackfill for progress,
+// POST {"enabled": false} to pause it at the next batch (true resumes it, walking the table again on the next scheduled run).
+// Needs "hashbackfill" in management.endpoints.web.exposure.include, restricted to admins in SecurityConfig.
+@Component
+@Endpoint(id = "hashbackfill")
+public class PerceptualHashBackfillEndpoint {
+
+    private final PerceptualHashBackfill perceptualHashBackfill;
+
+    public PerceptualHashBackfillEndpoint(PerceptualHashBackfill perceptualHashBackfill) {
+        this.perceptualHashBackfill = perceptualHashBackfill;
+    }
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        return perceptualHashBackfill.getStatus();
+    }
+
+    @WriteOperation
+    public Map<String, Object> setEnabled(boolean enabled) {
+        perceptualHashBackfill.setEnabled(enabled);
+        return perceptualHashBackfill.getStatus();
+    }
+}
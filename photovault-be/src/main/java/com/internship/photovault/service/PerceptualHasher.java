@@ -0,0 +1,136 @@
+package com.internship.photovault.service;
+
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.OptionalLong;
+
+// 64-bit difference hash (dHash): the image is reduced to a 9x8 grid of average luminance and every bit
+// says whether a cell is darker than its right neighbour. Resizing, recompression and small colour or
+// exposure changes move a handful of bits, so the Hamming distance between two hashes measures how
+// alike the pictures look; unrelated photos are around 32 bits apart.
+// Only a subsampled decode is ever held in memory (shortest edge about SAMPLE_EDGE pixels), and the
+// EXIF orientation is applied first so a rotated re-export hashes like the original.
+@Component
+public class PerceptualHasher {
+
+    public static final int BITS = 64;
+
+    private static final int GRID_WIDTH = 9;
+    private static final int GRID_HEIGHT = 8;
+    // enough pixels per cell for a stable average, still a tiny decode
+    private static final int SAMPLE_EDGE = 64;
+    // bounds the decode of extreme aspect ratios
+    private static final int MAX_SAMPLE_EDGE = 1024;
+
+    public static int distance(long first, long second) {
+        return Long.bitCount(first ^ second);
+    }
+
+    public OptionalLong hash(Path file, Integer orientation) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            return hash(input, orientation);
+        }
+    }
+
+    // Streams are buffered by ImageIO for whatever the reader seeks over
+    public OptionalLong hash(InputStream inputStream, Integer orientation) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(inputStream)) {
+            return hash(input, orientation);
+        }
+    }
+
+    // Empty when no installed reader handles the format (e.g. WebP) or the image is smaller than the grid.
+    // Corrupt data surfaces as an IIOException, whatever the reader threw; other IOExceptions come from
+    // reading the input.
+    private OptionalLong hash(ImageInputStream input, Integer orientation) throws IOException {
+        Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+        if (readers == null || !readers.hasNext()) {
+            return OptionalLong.empty();
+        }
+
+        BufferedImage sample;
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(input, true, true);
+            int width = reader.getWidth(0);
+            int height = reader.getHeight(0);
+            int step = Math.max(1, Math.max(Math.min(width, height) / SAMPLE_EDGE,
+                    Math.max(width, height) / MAX_SAMPLE_EDGE));
+
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceSubsampling(step, step, 0, 0);
+            sample = reader.read(0, param);
+        } catch (RuntimeException e) {
+            throw new IIOException("Could not decode image: " + e.getMessage(), e);
+        } finally {
+            reader.dispose();
+        }
+        return hash(sample, orientation == null ? 1 : orientation);
+    }
+
+    private OptionalLong hash(BufferedImage image, int orientation) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        // orientations 5-8 swap the axes
+        boolean transposed = orientation >= 5 && orientation <= 8;
+        int orientedWidth = transposed ? height : width;
+        int orientedHeight = transposed ? width : height;
+        if (orientedWidth < GRID_WIDTH || orientedHeight < GRID_HEIGHT) {
+            return OptionalLong.empty();
+        }
+
+        int[] argb = image.getRGB(0, 0, width, height, null, 0, width);
+        double[] sums = new double[GRID_WIDTH * GRID_HEIGHT];
+        int[] counts = new int[GRID_WIDTH * GRID_HEIGHT];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                // where this source pixel lands once the orientation is applied
+                int ox;
+                int oy;
+                switch (orientation) {
+                    case 2 -> { ox = width - 1 - x; oy = y; }
+                    case 3 -> { ox = width - 1 - x; oy = height - 1 - y; }
+                    case 4 -> { ox = x; oy = height - 1 - y; }
+                    case 5 -> { ox = y; oy = x; }
+                    case 6 -> { ox = height - 1 - y; oy = x; }
+                    case 7 -> { ox = height - 1 - y; oy = width - 1 - x; }
+                    case 8 -> { ox = y; oy = width - 1 - x; }
+                    default -> { ox = x; oy = y; }
+                }
+                int cell = (oy * GRID_HEIGHT / orientedHeight) * GRID_WIDTH + ox * GRID_WIDTH / orientedWidth;
+                sums[cell] += luminance(argb[y * width + x]);
+                counts[cell]++;
+            }
+        }
+
+        long hash = 0;
+        for (int row = 0; row < GRID_HEIGHT; row++) {
+            for (int column = 0; column < GRID_WIDTH - 1; column++) {
+                int left = row * GRID_WIDTH + column;
+                double leftMean = sums[left] / counts[left];
+                double rightMean = sums[left + 1] / counts[left + 1];
+                hash = (hash << 1) | (leftMean < rightMean ? 1 : 0);
+            }
+        }
+        return OptionalLong.of(hash);
+    }
+
+    // Rec. 601 luma, transparent pixels composited onto white like the thumbnails
+    private static double luminance(int argb) {
+        double alpha = ((argb >>> 24) & 0xFF) / 255.0;
+        double red = ((argb >> 16) & 0xFF) * alpha + 255 * (1 - alpha);
+        double green = ((argb >> 8) & 0xFF) * alpha + 255 * (1 - alpha);
+        double blue = (argb & 0xFF) * alpha + 255 * (1 - alpha);
+        return 0.299 * red + 0.587 * green + 0.114 * blue;
+    }
+}
@@ -0,0 +1,456 @@
+package com.internship.photovault.service;
+
+import com.internship.photovault.config.FileValidationConfig;
+import com.internship.photovault.entity.Image;
+import com.internship.photovault.entity.UploadSession;
+import com.internship.photovault.entity.User;
+import com.internship.photovault.exception.InvalidFileTypeException;
+import com.internship.photovault.exception.UploadSessionNotFoundException;
+import com.internship.photovault.repository.UploadSessionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Resumable uploads: a session is created with the final size, the client PUTs fixed-size chunks at
+// chunk-aligned offsets in any order and in parallel, then finalizes. Chunks are written in place into a
+// preallocated staging file, so finalizing never copies or concatenates anything.
+// The SHA-256 (and the CRC-32 kept for exports) is computed incrementally over the contiguous prefix of received chunks while the upload runs,
+// finalizing only hashes what is left. The hash state lives in memory; after a restart it is rebuilt from the file.
+// Staging files live under DB_LOCATION/uploads on the node that received the chunks, running several
+// instances needs that directory on shared storage or sticky routing per upload id.
+@Service
+public class ResumableUploadService {
+
+    private static final long MB = 1024L * 1024;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final int HASH_BUFFER_SIZE = 256 * 1024;
+    private static final int CLEANUP_BATCH_SIZE = 100;
+    private static final String PART_SUFFIX = ".part";
+
+    // Received byte ranges, end exclusive
+    public record ReceivedRange(long start, long end) {
+    }
+
+    public record SessionStatus(UUID uploadId, String filename, long size, int chunkSize, int chunkCount,
+                                long receivedBytes, List<ReceivedRange> received, boolean complete,
+                                LocalDateTime expiresAt) {
+    }
+
+    // Digest and CRC-32 of chunks [0, nextChunk); received is this node's view of the chunks on disk
+    private static final class IncrementalHash {
+        private final MessageDigest digest;
+        private final CRC32 crc = new CRC32();
+        private final Set<Integer> received = ConcurrentHashMap.newKeySet();
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile int nextChunk;
+
+        private IncrementalHash(List<Integer> received) {
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+            this.received.addAll(received);
+        }
+    }
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final ImageService imageService;
+    private final FileValidationConfig fileValidationConfig;
+    private final TransactionTemplate transactionTemplate;
+    private final Path sessionDirectory;
+    private final int chunkSize;
+    private final long maxFileSize;
+    private final Duration sessionTtl;
+    private final Map<UUID, IncrementalHash> hashes = new ConcurrentHashMap<>();
+
+    private final Counter createdSessions;
+    private final Counter completedSessions;
+    private final Counter abortedSessions;
+    private final Counter expiredSessions;
+    private final DistributionSummary chunkBytes;
+
+    public ResumableUploadService(UploadSessionRepository uploadSessionRepository,
+                                  ImageService imageService,
+                                  FileValidationConfig fileValidationConfig,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${DB_LOCATION}") String storageLocationPath,
+                                  @Value("${photovault.upload.resumable.chunk-size-mb:8}") int chunkSizeMb,
+                                  @Value("${photovault.upload.resumable.max-file-size-mb:1024}") long maxFileSizeMb,
+                                  @Value("${photovault.upload.resumable.session-ttl-hours:24}") long sessionTtlHours)
+            throws IOException {
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.imageService = imageService;
+        this.fileValidationConfig = fileValidationConfig;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sessionDirectory = Paths.get(storageLocationPath).toAbsolutePath().normalize().resolve("uploads");
+        this.chunkSize = (int) Math.min(Integer.MAX_VALUE, Math.max(1, chunkSizeMb) * MB);
+        this.maxFileSize = maxFileSizeMb * MB;
+        this.sessionTtl = Duration.ofHours(sessionTtlHours);
+        Files.createDirectories(sessionDirectory);
+
+        this.createdSessions = meterRegistry.counter("photovault.upload.resumable.sessions", "outcome", "created");
+        this.completedSessions = meterRegistry.counter("photovault.upload.resumable.sessions", "outcome", "completed");
+        this.abortedSessions = meterRegistry.counter("photovault.upload.resumable.sessions", "outcome", "aborted");
+        this.expiredSessions = meterRegistry.counter("photovault.upload.resumable.sessions", "outcome", "expired");
+        this.chunkBytes = DistributionSummary.builder("photovault.upload.resumable.chunk.bytes")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public UploadSession create(User user, String filename, String contentType, long size) throws IOException {
+        if (filename == null || filename.isBlank()) {
+            throw new IllegalArgumentException("Filename is required");
+        }
+        // only a hint like the multipart Content-Type, the assembled file is sniffed on finalize
+        if (!fileValidationConfig.isValidImageType(contentType)) {
+            throw new InvalidFileTypeException("Invalid file type. Only JPEG, PNG, GIF, and WebP are allowed.");
+        }
+        if (size <= 0) {
+            throw new IllegalArgumentException("Size must be positive");
+        }
+        if (size > maxFileSize) {
+            throw new MaxUploadSizeExceededException(maxFileSize);
+        }
+
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID());
+        session.setUser(user);
+        session.setOriginalFilename(filename);
+        session.setContentType(contentType);
+        session.setTotalSize(size);
+        session.setChunkSize(chunkSize);
+        session.setUpdatedAt(LocalDateTime.now());
+        UploadSession saved = uploadSessionRepository.save(session);
+
+        // Sized up front (sparse where the filesystem allows it), chunks are written straight to their offset
+        Path file = partFile(saved.getId());
+        try (RandomAccessFile staging = new RandomAccessFile(file.toFile(), "rw")) {
+            staging.setLength(size);
+        } catch (IOException e) {
+            uploadSessionRepository.deleteById(saved.getId());
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        hashes.put(saved.getId(), new IncrementalHash(List.of()));
+        createdSessions.increment();
+        return saved;
+    }
+
+    // Writes one chunk; offset must be chunk-aligned and the body exactly one chunk (shorter for the last one).
+    // Re-sending a chunk overwrites it with the same bytes and is harmless.
+    public int writeChunk(User user, UUID id, long offset, long contentLength, InputStream body) throws IOException {
+        UploadSession session = findOwned(user, id);
+        long total = session.getTotalSize();
+        int sessionChunkSize = session.getChunkSize();
+        if (offset < 0 || offset >= total || offset % sessionChunkSize != 0) {
+            throw new IllegalArgumentException("Offset must be a multiple of " + sessionChunkSize + " below " + total);
+        }
+        int index = (int) (offset / sessionChunkSize);
+        long expected = Math.min(sessionChunkSize, total - offset);
+        if (contentLength >= 0 && contentLength != expected) {
+            throw new IllegalArgumentException("Chunk at offset " + offset + " must be " + expected + " bytes");
+        }
+
+        Path file = partFile(id);
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            int read;
+            // reads one byte past the chunk to detect an oversized body
+            while ((read = body.read(buffer, 0, (int) Math.min(buffer.length, expected - written + 1))) != -1) {
+                if (written + read > expected) {
+                    throw new IllegalArgumentException("Chunk at offset " + offset + " is longer than " + expected + " bytes");
+                }
+                ByteBuffer source = ByteBuffer.wrap(buffer, 0, read);
+                while (source.hasRemaining()) {
+                    channel.write(source, offset + written + source.position());
+                }
+                written += read;
+            }
+            if (written != expected) {
+                throw new IllegalArgumentException("Chunk at offset " + offset + " is incomplete: "
+                        + written + " of " + expected + " bytes");
+            }
+            // durable before it is acknowledged, a resumed upload never skips a chunk that was lost
+            channel.force(false);
+        }
+
+        uploadSessionRepository.recordChunk(id, index);
+        chunkBytes.record(written);
+        IncrementalHash hash = hashFor(session);
+        hash.received.add(index);
+        // whoever holds the lock hashes the newly contiguous chunks, the others return immediately
+        advance(session, hash, false);
+        return index;
+    }
+
+    public SessionStatus status(User user, UUID id) {
+        UploadSession session = findOwned(user, id);
+        List<Integer> chunks = uploadSessionRepository.findReceivedChunks(id);
+        long total = session.getTotalSize();
+        long size = session.getChunkSize();
+
+        List<ReceivedRange> ranges = new ArrayList<>();
+        long receivedBytes = 0;
+        long start = -1;
+        long end = -1;
+        for (int index : chunks) {
+            long chunkStart = index * size;
+            long chunkEnd = Math.min(chunkStart + size, total);
+            receivedBytes += chunkEnd - chunkStart;
+            if (chunkStart == end) {
+                end = chunkEnd;
+                continue;
+            }
+            if (start >= 0) {
+                ranges.add(new ReceivedRange(start, end));
+            }
+            start = chunkStart;
+            end = chunkEnd;
+        }
+        if (start >= 0) {
+            ranges.add(new ReceivedRange(start, end));
+        }
+
+        return new SessionStatus(id, session.getOriginalFilename(), total, session.getChunkSize(),
+                session.getChunkCount(), receivedBytes, ranges, chunks.size() == session.getChunkCount(),
+                session.getUpdatedAt().plus(sessionTtl));
+    }
+
+    // Verifies every chunk arrived, finishes the hash and persists the Image like a single-request upload.
+    // The session is gone afterwards; a rejected file (duplicate, not an image) leaves it for the client to abort.
+    public Image complete(User user, UUID id) throws IOException {
+        UploadSession session = findOwned(user, id);
+        int chunkCount = session.getChunkCount();
+        List<Integer> chunks = uploadSessionRepository.findReceivedChunks(id);
+        if (chunks.size() < chunkCount) {
+            throw new IllegalStateException("Upload incomplete: " + (chunkCount - chunks.size()) + " of "
+                    + chunkCount + " chunks missing");
+        }
+
+        String checksum;
+        long crc32;
+        IncrementalHash hash = hashFor(session);
+        // chunks written by another node (shared staging directory) are only known to the database
+        hash.received.addAll(chunks);
+        hash.lock.lock();
+        try {
+            advance(session, hash, true);
+            if (hash.nextChunk != chunkCount) {
+                throw new IllegalStateException("Upload incomplete: chunk " + hash.nextChunk + " missing");
+            }
+            checksum = HexFormat.of().formatHex(hash.digest.digest());
+            crc32 = hash.crc.getValue();
+        } finally {
+            // the digest is spent, a retry after a failure rehashes from the file
+            hashes.remove(id);
+            hash.lock.unlock();
+        }
+
+        Path file = partFile(id);
+        try {
+            Image image = transactionTemplate.execute(status -> {
+                // the row lock serializes a concurrent finalize, abort or cleanup of the same session
+                UploadSession locked = uploadSessionRepository.findByIdForUpdate(id)
+                        .orElseThrow(() -> new UploadSessionNotFoundException("Upload session not found: " + id));
+                try {
+                    Image saved = imageService.saveAssembledUpload(file, checksum, crc32, session.getTotalSize(),
+                            session.getOriginalFilename(), user);
+                    uploadSessionRepository.delete(locked);
+                    return saved;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            completedSessions.increment();
+            return image;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            // the blob store took (or dropped) the file, nothing is left to resume
+            if (!Files.exists(file)) {
+                uploadSessionRepository.deleteById(id);
+            }
+        }
+    }
+
+    public void abort(User user, UUID id) throws IOException {
+        findOwned(user, id);
+        transactionTemplate.executeWithoutResult(status -> uploadSessionRepository.findByIdForUpdate(id)
+                .ifPresent(uploadSessionRepository::delete));
+        hashes.remove(id);
+        Files.deleteIfExists(partFile(id));
+        abortedSessions.increment();
+    }
+
+    // Drops sessions without a chunk for the TTL, then staging files that lost their row
+    @Scheduled(initialDelayString = "${photovault.upload.resumable.cleanup-initial-delay-ms:300000}",
+            fixedDelayString = "${photovault.upload.resumable.cleanup-interval-ms:900000}")
+    public void purgeStaleSessions() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(sessionTtl);
+        int purged = 0;
+        while (true) {
+            List<UUID> ids;
+            try {
+                ids = transactionTemplate.execute(status -> {
+                    List<UploadSession> stale = uploadSessionRepository.lockStale(cutoff, CLEANUP_BATCH_SIZE);
+                    uploadSessionRepository.deleteAllInBatch(stale);
+                    return stale.stream().map(UploadSession::getId).toList();
+                });
+            } catch (RuntimeException e) {
+                System.err.println("Failed to purge stale upload sessions: " + e.getMessage());
+                return;
+            }
+            if (ids == null || ids.isEmpty()) {
+                break;
+            }
+            for (UUID id : ids) {
+                hashes.remove(id);
+                deleteQuietly(partFile(id));
+            }
+            purged += ids.size();
+            expiredSessions.increment(ids.size());
+            if (ids.size() < CLEANUP_BATCH_SIZE) {
+                break;
+            }
+        }
+
+        // Crash between row and file removal; every chunk touches the file, so an old one is abandoned
+        FileTime fileCutoff = FileTime.from(Instant.now().minus(sessionTtl));
+        try (Stream<Path> files = Files.list(sessionDirectory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(PART_SUFFIX))
+                    .filter(file -> isOlderThan(file, fileCutoff))
+                    .filter(file -> sessionId(file).map(id -> !uploadSessionRepository.existsById(id)).orElse(true))
+                    .forEach(this::deleteQuietly);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to sweep upload staging files: " + e.getMessage());
+        }
+        if (purged > 0) {
+            System.err.println("Purged " + purged + " stale upload sessions");
+        }
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public Duration getSessionTtl() {
+        return sessionTtl;
+    }
+
+    private UploadSession findOwned(User user, UUID id) {
+        return uploadSessionRepository.findById(id)
+                // the lazy user proxy answers getId without loading the row
+                .filter(session -> session.getUser().getId().equals(user.getId()))
+                .orElseThrow(() -> new UploadSessionNotFoundException("Upload session not found: " + id));
+    }
+
+    private IncrementalHash hashFor(UploadSession session) {
+        return hashes.computeIfAbsent(session.getId(),
+                id -> new IncrementalHash(uploadSessionRepository.findReceivedChunks(id)));
+    }
+
+    // Feeds contiguous received chunks into the digest. Without wait, a thread that finds the lock taken
+    // leaves its chunk to the holder, which re-checks for newly contiguous chunks before it lets go.
+    private void advance(UploadSession session, IncrementalHash hash, boolean wait) throws IOException {
+        int chunkCount = session.getChunkCount();
+        do {
+            if (wait) {
+                hash.lock.lock();
+            } else if (!hash.lock.tryLock()) {
+                return;
+            }
+            try {
+                if (hash.nextChunk >= chunkCount || !hash.received.contains(hash.nextChunk)) {
+                    return;
+                }
+                try (FileChannel channel = FileChannel.open(partFile(session.getId()), StandardOpenOption.READ)) {
+                    ByteBuffer buffer = ByteBuffer.allocate(HASH_BUFFER_SIZE);
+                    while (hash.nextChunk < chunkCount && hash.received.contains(hash.nextChunk)) {
+                        long position = (long) hash.nextChunk * session.getChunkSize();
+                        long end = Math.min(position + session.getChunkSize(), session.getTotalSize());
+                        while (position < end) {
+                            buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+                            int read = channel.read(buffer, position);
+                            if (read < 0) {
+                                throw new IOException("Staging file is shorter than the upload: " + session.getId());
+                            }
+                            buffer.flip();
+                            hash.crc.update(buffer.duplicate());
+                            hash.digest.update(buffer);
+                            position += read;
+                        }
+                        hash.nextChunk++;
+                    }
+                }
+            } finally {
+                hash.lock.unlock();
+            }
+        } while (!wait && hash.nextChunk < chunkCount && hash.received.contains(hash.nextChunk));
+    }
+
+    private Path partFile(UUID id) {
+        return sessionDirectory.resolve(id + PART_SUFFIX);
+    }
+
+    private static Optional<UUID> sessionId(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Optional.of(UUID.fromString(name.substring(0, name.length() - PART_SUFFIX.length())));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static boolean isOlderThan(Path file, FileTime cutoff) {
+        try {
+            return Files.getLastModifiedTime(file).compareTo(cutoff) < 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Failed to delete upload staging file: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.internship.photovault.service;
+
+import com.internship.photovault.dto.ImageSummary;
+import com.internship.photovault.dto.SimilarImage;
+import com.internship.photovault.entity.Image;
+import com.internship.photovault.entity.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// "Find similar" and the near-duplicate warning at upload, answered by SimilarityIndexService.
+// Only the summaries of the matches are read from the database; trashed matches are left out.
+@Service
+public class SimilarImageService {
+
+    private static final int MAX_NEAR_DUPLICATES = 10;
+
+    private final SimilarityIndexService similarityIndexService;
+    private final ImageService imageService;
+    private final int duplicateDistance;
+    private final int maxDistance;
+
+    public SimilarImageService(SimilarityIndexService similarityIndexService,
+                               ImageService imageService,
+                               @Value("${photovault.similarity.duplicate-distance:5}") int duplicateDistance,
+                               @Value("${photovault.similarity.max-distance:12}") int maxDistance) {
+        this.similarityIndexService = similarityIndexService;
+        this.imageService = imageService;
+        this.duplicateDistance = duplicateDistance;
+        this.maxDistance = Math.min(maxDistance, SimilarityIndexService.MAX_DISTANCE);
+    }
+
+    @Transactional(readOnly = true)
+    public List<SimilarImage> findSimilar(Long id, User user, int distance, int limit) {
+        if (distance < 0 || distance > maxDistance) {
+            throw new IllegalArgumentException("maxDistance must be between 0 and " + maxDistance);
+        }
+        Image image = imageService.getImageById(id, user);
+        if (image.getPerceptualHash() == null) {
+            throw new IllegalStateException("Image " + id + " has no perceptual hash yet");
+        }
+        return matches(image, distance, limit);
+    }
+
+    // Images of the same user that look like a freshly stored one, empty when it could not be hashed.
+    // Called once the upload has committed, the image itself is in the index by then and skipped.
+    // Only a warning: a failed lookup never fails the upload that already went through (hence no
+    // surrounding transaction that a failed query could mark rollback-only).
+    public List<SimilarImage> findNearDuplicates(Image image) {
+        if (image.getPerceptualHash() == null) {
+            return List.of();
+        }
+        try {
+            return matches(image, duplicateDistance, MAX_NEAR_DUPLICATES);
+        } catch (RuntimeException e) {
+            System.err.println("Near-duplicate lookup failed for image " + image.getId() + ": " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    private List<SimilarImage> matches(Image image, int distance, int limit) {
+        List<SimilarityIndexService.Match> candidates = similarityIndexService.findSimilar(
+                image.getUser().getId(), image.getPerceptualHash(), distance);
+
+        // closest first; summaries are loaded a page at a time until enough non-trashed ones are found
+        List<SimilarImage> similar = new ArrayList<>(Math.min(limit, candidates.size()));
+        int next = 0;
+        while (similar.size() < limit && next < candidates.size()) {
+            Map<Long, Integer> distances = new HashMap<>();
+            List<Long> ids = new ArrayList<>(limit);
+            for (; next < candidates.size() && ids.size() < limit; next++) {
+                SimilarityIndexService.Match match = candidates.get(next);
+                if (match.imageId() != image.getId()) {
+                    ids.add(match.imageId());
+                    distances.put(match.imageId(), match.distance());
+                }
+            }
+            for (ImageSummary summary : imageService.getSummaries(ids)) {
+                if (!Boolean.TRUE.equals(summary.isDeleted()) && similar.size() < limit) {
+                    similar.add(new SimilarImage(summary, distances.get(summary.id())));
+                }
+            }
+        }
+        return similar;
+    }
+}
@@ -0,0 +1,384 @@
+package com.internship.photovault.service;
+
+import com.internship.photovault.entity.Image;
+import com.internship.photovault.repository.ImageRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+// Per-user multi-index hashing over perceptual hashes (see PerceptualHasher) for "find similar" and the
+// near-duplicate warning at upload. Each 64-bit hash is split into four 16-bit chunks with one sorted
+// table per chunk. Two hashes at most r bits apart differ in at most r / 4 bits in one of the chunks
+// (pigeonhole), so a search only looks up the chunk values within r / 4 bits of the query's in each table
+// and checks the full distance of what it finds there, a small fraction of the library.
+// Like TagIndexService the database stays the source of truth: indexes are built on first use, changes
+// are applied after their transaction commits, and each node keeps its own copy, rebuilt when a search
+// finds it behind the user's committed change counter (IndexVersions). Trashed images stay indexed,
+// callers filter them out.
+@Service
+public class SimilarityIndexService {
+
+    // widest search the chunk tables answer, past it matches stop looking alike anyway
+    public static final int MAX_DISTANCE = PerceptualHasher.BITS / 4;
+
+    private static final int TABLES = 4;
+    private static final int CHUNK_BITS = PerceptualHasher.BITS / TABLES;
+    private static final int MAX_BUILD_ATTEMPTS = 3;
+    private static final String INDEX_NAME = "similarity";
+    // new entries are scanned linearly until this many have piled up, then everything is re-sorted
+    static final int MAX_UNINDEXED = 1024;
+    private static final long REMOVED = -1;
+
+    // chunk masks by popcount: MASKS[r] holds every 16-bit mask of at most r bits
+    private static final int[][] MASKS = new int[MAX_DISTANCE / TABLES + 1][];
+
+    static {
+        for (int radius = 0; radius < MASKS.length; radius++) {
+            int within = radius;
+            MASKS[radius] = IntStream.range(0, 1 << CHUNK_BITS)
+                    .filter(mask -> Integer.bitCount(mask) <= within)
+                    .toArray();
+        }
+    }
+
+    // An indexed image and its distance to the query hash
+    public record Match(long imageId, int distance) {
+    }
+
+    // package-private for the unit tests, only used under its lock from this class
+    static final class HashIndex {
+        long[] hashes;
+        long[] ids;
+        // slots in use, removed ones included; [0, indexed) are in the chunk tables, the rest is scanned
+        int size;
+        int indexed;
+        int removed;
+        // per table: chunk values in ascending order and the slot each one belongs to
+        private final char[][] keys = new char[TABLES][];
+        private final int[][] slots = new int[TABLES][];
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        // committed change counter this copy reflects, moved on under the write lock
+        private volatile long version;
+
+        HashIndex(long[] hashes, long[] ids, int size) {
+            this.hashes = hashes;
+            this.ids = ids;
+            this.size = size;
+            reindex();
+        }
+
+        void add(long hash, long id) {
+            if (find(hash, id) >= 0) {
+                return;
+            }
+            if (size == hashes.length) {
+                hashes = Arrays.copyOf(hashes, Math.max(16, size * 2));
+                ids = Arrays.copyOf(ids, hashes.length);
+            }
+            hashes[size] = hash;
+            ids[size] = id;
+            size++;
+            if (size - indexed > MAX_UNINDEXED) {
+                reindex();
+            }
+        }
+
+        void remove(long hash, long id) {
+            int slot = find(hash, id);
+            if (slot < 0) {
+                return;
+            }
+            ids[slot] = REMOVED;
+            removed++;
+            if (removed > MAX_UNINDEXED && removed > size / 4) {
+                reindex();
+            }
+        }
+
+        // Returns the number of entries whose full distance was checked
+        int search(long hash, int maxDistance, List<Match> matches) {
+            int[] masks = MASKS[maxDistance / TABLES];
+            // a slot close in several chunks turns up in several tables
+            BitSet seen = new BitSet(indexed);
+            int examined = 0;
+            for (int table = 0; table < TABLES; table++) {
+                char[] tableKeys = keys[table];
+                int[] tableSlots = slots[table];
+                int key = chunk(hash, table);
+                for (int mask : masks) {
+                    char probe = (char) (key ^ mask);
+                    for (int i = lowerBound(tableKeys, indexed, probe); i < indexed && tableKeys[i] == probe; i++) {
+                        int slot = tableSlots[i];
+                        if (!seen.get(slot)) {
+                            seen.set(slot);
+                            examined++;
+                            check(slot, hash, maxDistance, matches);
+                        }
+                    }
+                }
+            }
+            for (int slot = indexed; slot < size; slot++) {
+                examined++;
+                check(slot, hash, maxDistance, matches);
+            }
+            return examined;
+        }
+
+        void check(int slot, long hash, int maxDistance, List<Match> matches) {
+            if (ids[slot] == REMOVED) {
+                return;
+            }
+            int distance = PerceptualHasher.distance(hash, hashes[slot]);
+            if (distance <= maxDistance) {
+                matches.add(new Match(ids[slot], distance));
+            }
+        }
+
+        int find(long hash, long id) {
+            char key = chunk(hash, 0);
+            for (int i = lowerBound(keys[0], indexed, key); i < indexed && keys[0][i] == key; i++) {
+                int slot = slots[0][i];
+                if (hashes[slot] == hash && ids[slot] == id) {
+                    return slot;
+                }
+            }
+            for (int slot = indexed; slot < size; slot++) {
+                if (hashes[slot] == hash && ids[slot] == id) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        // Drops removed entries and sorts every slot into the chunk tables, O(n log n)
+        void reindex() {
+            int live = 0;
+            for (int slot = 0; slot < size; slot++) {
+                if (ids[slot] != REMOVED) {
+                    hashes[live] = hashes[slot];
+                    ids[live] = ids[slot];
+                    live++;
+                }
+            }
+            size = live;
+            removed = 0;
+
+            // (chunk << 32 | slot) orders by chunk value with a primitive sort
+            long[] sortable = new long[size];
+            for (int table = 0; table < TABLES; table++) {
+                for (int slot = 0; slot < size; slot++) {
+                    sortable[slot] = ((long) chunk(hashes[slot], table) << 32) | slot;
+                }
+                Arrays.sort(sortable);
+                char[] tableKeys = new char[size];
+                int[] tableSlots = new int[size];
+                for (int i = 0; i < size; i++) {
+                    tableKeys[i] = (char) (sortable[i] >>> 32);
+                    tableSlots[i] = (int) sortable[i];
+                }
+                keys[table] = tableKeys;
+                slots[table] = tableSlots;
+            }
+            indexed = size;
+        }
+
+        static char chunk(long hash, int table) {
+            return (char) (hash >>> (table * CHUNK_BITS));
+        }
+
+        // First position in keys[0, length) holding a value >= key
+        static int lowerBound(char[] keys, int length, char key) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (keys[middle] < key) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    private final ImageRepository imageRepository;
+    private final IndexVersions indexVersions;
+    private final TransactionTemplate readTransaction;
+    private final Map<Long, HashIndex> indexes = new ConcurrentHashMap<>();
+    // bumped by every committed change, a build that overlaps one is redone
+    private final Map<Long, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final Timer buildTimer;
+    private final Timer queryTimer;
+    private final DistributionSummary examinedEntries;
+
+    public SimilarityIndexService(ImageRepository imageRepository,
+                                  IndexVersions indexVersions,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry) {
+        this.imageRepository = imageRepository;
+        this.indexVersions = indexVersions;
+        // in a transaction of its own even when a caller has one, so the build never sees uncommitted rows;
+        // the version and the hashes are read from the same snapshot
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.readTransaction.setReadOnly(true);
+
+        this.buildTimer = meterRegistry.timer("photovault.similarity.index.build");
+        this.queryTimer = meterRegistry.timer("photovault.similarity.index.query");
+        this.examinedEntries = DistributionSummary.builder("photovault.similarity.index.examined")
+                .description("Hashes compared per search")
+                .register(meterRegistry);
+        Gauge.builder("photovault.similarity.index.users", indexes, Map::size).register(meterRegistry);
+        Gauge.builder("photovault.similarity.index.entries", this, SimilarityIndexService::entryCount)
+                .register(meterRegistry);
+    }
+
+    // The user's images within maxDistance bits of hash, closest first, then newest first
+    public List<Match> findSimilar(Long userId, long hash, int maxDistance) {
+        if (maxDistance < 0 || maxDistance > MAX_DISTANCE) {
+            throw new IllegalArgumentException("maxDistance must be between 0 and " + MAX_DISTANCE);
+        }
+        HashIndex index = indexFor(userId);
+        long start = System.nanoTime();
+        List<Match> matches = new ArrayList<>();
+        index.lock.readLock().lock();
+        try {
+            examinedEntries.record(index.search(hash, maxDistance, matches));
+        } finally {
+            index.lock.readLock().unlock();
+            queryTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        matches.sort(Comparator.comparingInt(Match::distance)
+                .thenComparing(Comparator.comparingLong(Match::imageId).reversed()));
+        return matches;
+    }
+
+    // --- change notifications, applied once the calling transaction commits ---
+
+    // Images that could not be hashed are not indexed
+    public void imageSaved(Image image) {
+        if (image.getPerceptualHash() != null) {
+            imageHashed(image.getUser().getId(), image.getId(), image.getPerceptualHash());
+        }
+    }
+
+    public void imageHashed(Long userId, Long imageId, long hash) {
+        afterCommit(userId, index -> index.add(hash, imageId));
+    }
+
+    public void imagesRemoved(Collection<Image> images) {
+        Map<Long, List<long[]>> removedByUser = new HashMap<>();
+        for (Image image : images) {
+            if (image.getPerceptualHash() != null) {
+                removedByUser.computeIfAbsent(image.getUser().getId(), user -> new ArrayList<>())
+                        .add(new long[]{image.getPerceptualHash(), image.getId()});
+            }
+        }
+        removedByUser.forEach((userId, removed) ->
+                afterCommit(userId, index -> removed.forEach(entry -> index.remove(entry[0], entry[1]))));
+    }
+
+    // Drops a user's index, the next search rebuilds it from the database
+    public void invalidate(Long userId) {
+        generation(userId).incrementAndGet();
+        indexes.remove(userId);
+    }
+
+    private void afterCommit(Long userId, Consumer<HashIndex> change) {
+        indexVersions.afterCommit(INDEX_NAME, userId, version -> apply(userId, change, version));
+    }
+
+    private void apply(Long userId, Consumer<HashIndex> change, long version) {
+        generation(userId).incrementAndGet();
+        HashIndex index = indexes.get(userId);
+        if (index == null) {
+            // not built yet, the build will read the committed change
+            return;
+        }
+        index.lock.writeLock().lock();
+        try {
+            change.accept(index);
+            index.version = IndexVersions.advance(index.version, version);
+        } finally {
+            index.lock.writeLock().unlock();
+        }
+    }
+
+    // --- building ---
+
+    // The local copy while it is at the committed version, otherwise a fresh build
+    private HashIndex indexFor(Long userId) {
+        HashIndex index = indexes.get(userId);
+        if (index != null && index.version == indexVersions.current(INDEX_NAME, userId)) {
+            return index;
+        }
+        return build(userId);
+    }
+
+    // Published before the generation check: a change committed after that is applied to it directly,
+    // one committed while the rows were read makes the build start over
+    private HashIndex build(Long userId) {
+        AtomicLong generation = generation(userId);
+        for (int attempt = 1; ; attempt++) {
+            long startedAt = generation.get();
+            HashIndex index = buildTimer.record(() -> readTransaction.execute(status -> load(userId)));
+            indexes.put(userId, index);
+            if (generation.get() == startedAt) {
+                return index;
+            }
+            if (attempt == MAX_BUILD_ATTEMPTS) {
+                // still serves the search, dropped so the next one builds it again
+                indexes.remove(userId, index);
+                return index;
+            }
+        }
+    }
+
+    private HashIndex load(Long userId) {
+        long version = indexVersions.current(INDEX_NAME, userId);
+        List<Object[]> rows = imageRepository.findPerceptualHashes(userId);
+        long[] hashes = new long[Math.max(16, rows.size())];
+        long[] ids = new long[hashes.length];
+        for (int i = 0; i < rows.size(); i++) {
+            ids[i] = ((Number) rows.get(i)[0]).longValue();
+            hashes[i] = ((Number) rows.get(i)[1]).longValue();
+        }
+        HashIndex index = new HashIndex(hashes, ids, rows.size());
+        index.version = version;
+        return index;
+    }
+
+    private AtomicLong generation(Long userId) {
+        return generations.computeIfAbsent(userId, id -> new AtomicLong());
+    }
+
+    private long entryCount() {
+        long entries = 0;
+        for (HashIndex index : indexes.values()) {
+            entries += index.size - index.removed;
+        }
+        return entries;
+    }
+}
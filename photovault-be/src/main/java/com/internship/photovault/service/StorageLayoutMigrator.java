@@ -0,0 +1,321 @@
+package com.internship.photovault.service;
+
+import com.internship.photovault.entity.FileBlob;
+import com.internship.photovault.entity.Image;
+import com.internship.photovault.repository.FileBlobRepository;
+import com.internship.photovault.repository.ImageRepository;
+import com.internship.photovault.security.SystemContext;
+import com.internship.photovault.storage.FileSystemStorageBackend;
+import com.internship.photovault.storage.StorageLayout;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+// Moves files written before the fan-out layout from the storage root into their fan-out directory
+// while the application keeps serving. Only the filesystem backend ever had a flat layout.
+// Blobs and legacy uploads are walked in keyset batches; each batch moves its files and records the
+// fan-out key in file_path in one transaction, holding the blob's checksum lock (or the legacy image
+// row lock) so an upload or release of the same file waits for the move.
+// Lookups fall back to the root-level file, so a file is found before, during and after its move; a batch
+// that rolls back leaves moved files in place and the next pass records them.
+// A last pass removes the files of duplicate uploads that V12 recorded in orphaned_files.
+@Service
+@ConditionalOnProperty(name = "photovault.storage.type", havingValue = "filesystem", matchIfMissing = true)
+public class StorageLayoutMigrator {
+
+    private final FileSystemStorageBackend storage;
+    private final FileBlobRepository fileBlobRepository;
+    private final ImageRepository imageRepository;
+    private final ThumbnailService thumbnailService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxFilesPerSecond;
+
+    private final AtomicBoolean enabled;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    // set after a pass that found nothing left to move; new files are always written in the fan-out
+    private volatile boolean complete;
+    private final AtomicLong lastRunMoved = new AtomicLong();
+    private final AtomicLong lastRunCompletedAt = new AtomicLong();
+
+    private final Counter movedFiles;
+    private final Counter missingFiles;
+    private final Counter removedOrphans;
+    private final Counter batchFailures;
+
+    public StorageLayoutMigrator(FileSystemStorageBackend storage,
+                                 FileBlobRepository fileBlobRepository,
+                                 ImageRepository imageRepository,
+                                 ThumbnailService thumbnailService,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${photovault.storage.migration.enabled:true}") boolean enabled,
+                                 @Value("${photovault.storage.migration.batch-size:100}") int batchSize,
+                                 @Value("${photovault.storage.migration.max-files-per-second:50}") int maxFilesPerSecond) {
+        this.storage = storage;
+        this.fileBlobRepository = fileBlobRepository;
+        this.imageRepository = imageRepository;
+        this.thumbnailService = thumbnailService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxFilesPerSecond = maxFilesPerSecond;
+        this.enabled = new AtomicBoolean(enabled);
+
+        this.movedFiles = meterRegistry.counter("photovault.storage.migration.files", "outcome", "moved");
+        this.missingFiles = meterRegistry.counter("photovault.storage.migration.files", "outcome", "missing");
+        this.removedOrphans = meterRegistry.counter("photovault.storage.migration.files", "outcome", "orphan_removed");
+        this.batchFailures = meterRegistry.counter("photovault.storage.migration.failures");
+        Gauge.builder("photovault.storage.migration.running", running, flag -> flag.get() ? 1 : 0).register(meterRegistry);
+        Gauge.builder("photovault.storage.migration.complete", this, migrator -> migrator.complete ? 1 : 0).register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${photovault.storage.migration.initial-delay-ms:60000}",
+            fixedDelayString = "${photovault.storage.migration.interval-ms:3600000}")
+    public void scheduledMigration() {
+        if (!complete) {
+            migrate();
+        }
+    }
+
+    // Returns the number of files moved, 0 when disabled or when another run is in progress
+    public long migrate() {
+        if (!enabled.get() || !running.compareAndSet(false, true)) {
+            return 0;
+        }
+        try (SystemContext ignored = SystemContext.enter()) {
+            Pass blobs = runBatches(this::migrateBlobBatch);
+            Pass legacy = blobs.finished() ? runBatches(this::migrateLegacyBatch) : new Pass(0, false);
+            Pass orphans = legacy.finished() ? runBatches(this::removeOrphanBatch) : new Pass(0, false);
+            long moved = blobs.moved() + legacy.moved();
+
+            complete = orphans.finished() && moved == 0;
+            lastRunMoved.set(moved);
+            lastRunCompletedAt.set(Instant.now().getEpochSecond());
+            if (moved > 0) {
+                System.err.println("Storage layout migration moved " + moved + " files into the fan-out layout");
+            }
+            return moved;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private record Pass(long moved, boolean finished) {
+    }
+
+    private record BatchResult(int size, long lastId, List<String> migrated) {
+    }
+
+    private Pass runBatches(LongFunction<BatchResult> batchFunction) {
+        long afterId = 0;
+        long moved = 0;
+        while (enabled.get()) {
+            long startedAt = System.nanoTime();
+            BatchResult batch;
+            try {
+                long batchAfterId = afterId;
+                batch = transactionTemplate.execute(status -> batchFunction.apply(batchAfterId));
+            } catch (RuntimeException e) {
+                // stop here, the next scheduled run starts over and skips what is already done
+                batchFailures.increment();
+                System.err.println("Storage layout migration batch failed: " + e.getMessage());
+                return new Pass(moved, false);
+            }
+            if (batch == null || batch.size() == 0) {
+                return new Pass(moved, true);
+            }
+
+            // renditions are derived files, moved outside the transaction and without bookkeeping
+            batch.migrated().forEach(this::migrateRenditions);
+            moved += batch.migrated().size();
+            lastRunMoved.set(moved);
+            afterId = batch.lastId();
+            if (batch.size() < batchSize) {
+                return new Pass(moved, true);
+            }
+            if (!throttle(batch.migrated().size(), startedAt)) {
+                return new Pass(moved, false);
+            }
+        }
+        return new Pass(moved, false);
+    }
+
+    private BatchResult migrateBlobBatch(long afterId) {
+        List<FileBlob> blobs = fileBlobRepository.findBatchAfter(afterId, batchSize);
+        List<String> migrated = new ArrayList<>();
+        for (FileBlob blob : blobs) {
+            String storedFilename = blob.getStoredFilename();
+            String target = StorageLayout.keyFor(storedFilename);
+            if (target.equals(blob.getFilePath())) {
+                continue;
+            }
+            // held until commit, an acquire/release of the same content sees the file before or after the move
+            fileBlobRepository.lockChecksum(blob.getChecksumSha256());
+            if (moveToFanOut(target)) {
+                fileBlobRepository.updateFilePath(blob.getId(), target);
+                imageRepository.updateFilePathByBlob(blob.getId(), target);
+                migrated.add(storedFilename);
+            }
+        }
+        long lastId = blobs.isEmpty() ? afterId : blobs.get(blobs.size() - 1).getId();
+        return new BatchResult(blobs.size(), lastId, migrated);
+    }
+
+    private BatchResult migrateLegacyBatch(long afterId) {
+        List<Image> images = imageRepository.lockLegacyFilesAfter(afterId, batchSize);
+        List<String> migrated = new ArrayList<>();
+        for (Image image : images) {
+            String storedFilename = image.getStoredFilename();
+            String target = StorageLayout.keyFor(storedFilename);
+            if (target.equals(image.getFilePath())) {
+                continue;
+            }
+            if (moveToFanOut(target)) {
+                imageRepository.updateFilePath(image.getId(), target);
+                migrated.add(storedFilename);
+            }
+        }
+        long lastId = images.isEmpty() ? afterId : images.get(images.size() - 1).getId();
+        return new BatchResult(images.size(), lastId, migrated);
+    }
+
+    // Files no row points at since V12 merged duplicate uploads into one blob; the row goes once its file
+    // and renditions are gone, a rolled back batch only retries deletes that already happened
+    private BatchResult removeOrphanBatch(long afterId) {
+        List<Object[]> rows = fileBlobRepository.lockOrphanedFilesAfter(afterId, batchSize);
+        List<Long> ids = new ArrayList<>();
+        for (Object[] row : rows) {
+            ids.add(((Number) row[0]).longValue());
+            String storedFilename = (String) row[1];
+            // stored names are unique per upload, a name in use again is never removed
+            if (Boolean.TRUE.equals(row[2])) {
+                continue;
+            }
+            try {
+                storage.delete(StorageLayout.keyFor(storedFilename));
+                for (String key : thumbnailService.renditionKeys(storedFilename)) {
+                    storage.delete(key);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            removedOrphans.increment();
+        }
+        if (!ids.isEmpty()) {
+            fileBlobRepository.deleteOrphanedFiles(ids);
+        }
+        long lastId = ids.isEmpty() ? afterId : ids.get(ids.size() - 1);
+        return new BatchResult(rows.size(), lastId, List.of());
+    }
+
+    // True when the file is in the fan-out layout afterwards (moved now or by an earlier, unrecorded pass)
+    private boolean moveToFanOut(String key) {
+        Path flat = storage.legacyPath(key);
+        Path target = storage.path(key);
+        try {
+            Files.createDirectories(target.getParent());
+            if (!Files.exists(flat)) {
+                if (Files.exists(target)) {
+                    return true;
+                }
+                missingFiles.increment();
+                return false;
+            }
+            try {
+                Files.move(flat, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // same stored name means same content, the fan-out copy wins
+                Files.deleteIfExists(flat);
+            }
+            movedFiles.increment();
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Best effort: a rendition left in the root is still found there, or rebuilt on demand
+    private void migrateRenditions(String storedFilename) {
+        for (String key : thumbnailService.renditionKeys(storedFilename)) {
+            Path legacy = storage.legacyPath(key);
+            if (!Files.exists(legacy)) {
+                continue;
+            }
+            try {
+                Path target = storage.path(key);
+                Files.createDirectories(target.getParent());
+                Files.move(legacy, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                System.err.println("Failed to move thumbnail into the fan-out layout: " + e.getMessage());
+            }
+        }
+    }
+
+    // Sleeps so the batch averages at most maxFilesPerSecond; false when interrupted
+    private boolean throttle(int files, long startedAt) {
+        if (maxFilesPerSecond <= 0 || files == 0) {
+            return true;
+        }
+        long budgetNanos = TimeUnit.SECONDS.toNanos(files) / maxFilesPerSecond;
+        long remainingNanos = budgetNanos - (System.nanoTime() - startedAt);
+        if (remainingNanos <= 0) {
+            return true;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(remainingNanos);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled.get();
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled.set(enabled);
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled.get());
+        status.put("running", running.get());
+        status.put("complete", complete);
+        status.put("batchSize", batchSize);
+        status.put("maxFilesPerSecond", maxFilesPerSecond);
+        status.put("lastRunMoved", lastRunMoved.get());
+        long completedAt = lastRunCompletedAt.get();
+        status.put("lastRunCompletedAt", completedAt == 0 ? null : Instant.ofEpochSecond(completedAt).toString());
+        return status;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        enabled.set(false);
+    }
+}
@@ -0,0 +1,35 @@
+package com.internship.photovault.service;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Operator controls for the fan-out migration: GET /actuator/storagemigration for progress,
+// POST {"enabled": false} to pause it at the next batch (true resumes on the next scheduled run).
+// Needs "storagemigration" in management.endpoints.web.exposure.include, restricted to admins in SecurityConfig.
+@Component
+@ConditionalOnProperty(name = "photovault.storage.type", havingValue = "filesystem", matchIfMissing = true)
+@Endpoint(id = "storagemigration")
+public class StorageMigrationEndpoint {
+
+    private final StorageLayoutMigrator storageLayoutMigrator;
+
+    public StorageMigrationEndpoint(StorageLayoutMigrator storageLayoutMigrator) {
+        this.storageLayoutMigrator = storageLayoutMigrator;
+    }
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        return storageLayoutMigrator.getStatus();
+    }
+
+    @WriteOperation
+    public Map<String, Object> setEnabled(boolean enabled) {
+        storageLayoutMigrator.setEnabled(enabled);
+        return storageLayoutMigrator.getStatus();
+    }
+}
@@ -0,0 +1,414 @@
+package com.internship.photovault.service;
+
+import com.internship.photovault.entity.Image;
+import com.internship.photovault.repository.TagRepository;
+import com.internship.photovault.security.SystemContext;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+// Per-user compressed bitmaps (Roaring) of image ids: one per tag, plus the favorite, archived and
+// deleted flags. Tag filters (AND / OR / NOT) and facet counts become bitmap operations instead of
+// joins over image_tags.
+// The database stays the source of truth. Every change to tags or flags is applied here after its
+// transaction commits (ImageService, TagService, TrashPurgeService call in). A user's bitmaps are
+// built on first use and for everyone in the background at startup. Each node keeps its own copy and
+// checks it against the user's committed change counter (IndexVersions) on every query, a copy that
+// missed a change made through another instance is rebuilt.
+// Bitmaps hold 32-bit ints; ids beyond Integer.MAX_VALUE are rejected.
+@Service
+public class TagIndexService {
+
+    public enum Flag { FAVORITE, ARCHIVED, DELETED }
+
+    private static final int MAX_BUILD_ATTEMPTS = 3;
+    private static final String INDEX_NAME = "tags";
+
+    // Filter over one user's images; null flags match both values, empty tag sets are ignored
+    public record Filter(Set<String> allTags, Set<String> anyTags, Set<String> noTags,
+                         Boolean favorite, Boolean archived, Boolean deleted) {
+    }
+
+    // Matching ids newest first (ids are assigned in upload order), with per-tag counts over all matches
+    public record Result(long total, List<Long> ids, Long nextAfterId, Map<String, Long> facets) {
+    }
+
+    private static final class UserIndex {
+        private final RoaringBitmap all = new RoaringBitmap();
+        private final RoaringBitmap favorites = new RoaringBitmap();
+        private final RoaringBitmap archived = new RoaringBitmap();
+        private final RoaringBitmap deleted = new RoaringBitmap();
+        private final Map<Long, RoaringBitmap> byTag = new HashMap<>();
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        // committed change counter this copy reflects, moved on under the write lock
+        private volatile long version;
+
+        private RoaringBitmap flag(Flag flag) {
+            return switch (flag) {
+                case FAVORITE -> favorites;
+                case ARCHIVED -> archived;
+                case DELETED -> deleted;
+            };
+        }
+    }
+
+    private final TagRepository tagRepository;
+    private final IndexVersions indexVersions;
+    private final TransactionTemplate snapshotTransaction;
+    private final boolean warmOnStartup;
+    private final Map<Long, UserIndex> indexes = new ConcurrentHashMap<>();
+    // bumped by every committed change, a build that overlaps one is redone
+    private final Map<Long, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final Map<Long, String> tagNames = new ConcurrentHashMap<>();
+    private final Map<String, Long> tagIds = new ConcurrentHashMap<>();
+    private final Timer buildTimer;
+    private final Timer queryTimer;
+
+    public TagIndexService(TagRepository tagRepository,
+                           IndexVersions indexVersions,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${photovault.tags.index.warm-on-startup:true}") boolean warmOnStartup) {
+        this.tagRepository = tagRepository;
+        this.indexVersions = indexVersions;
+        // the version and both rebuild queries read the same snapshot, in a transaction of their own
+        // even when a caller has one
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTransaction.setReadOnly(true);
+        this.warmOnStartup = warmOnStartup;
+
+        this.buildTimer = meterRegistry.timer("photovault.tags.index.build");
+        this.queryTimer = meterRegistry.timer("photovault.tags.index.query");
+        Gauge.builder("photovault.tags.index.users", indexes, Map::size).register(meterRegistry);
+        Gauge.builder("photovault.tags.index.bytes", this, TagIndexService::sizeInBytes).register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!warmOnStartup) {
+            return;
+        }
+        Thread warmer = new Thread(() -> {
+            // builds every user's index, see SystemContext
+            try (SystemContext ignored = SystemContext.enter()) {
+                List<Long> userIds = tagRepository.findUserIdsWithImages();
+                userIds.forEach(this::indexFor);
+                System.err.println("Tag index built for " + userIds.size() + " users");
+            } catch (RuntimeException e) {
+                // users are then indexed on first use
+                System.err.println("Tag index warm-up failed: " + e.getMessage());
+            }
+        }, "tag-index-warmup");
+        warmer.setDaemon(true);
+        warmer.start();
+    }
+
+    public Result query(Long userId, Filter filter, Long afterId, int size) {
+        UserIndex index = indexFor(userId);
+        long start = System.nanoTime();
+        index.lock.readLock().lock();
+        try {
+            RoaringBitmap matches = index.all.clone();
+            applyFlag(matches, index.favorites, filter.favorite());
+            applyFlag(matches, index.archived, filter.archived());
+            applyFlag(matches, index.deleted, filter.deleted());
+
+            if (filter.allTags() != null) {
+                for (String name : filter.allTags()) {
+                    matches.and(tagBitmap(index, name));
+                }
+            }
+            if (filter.anyTags() != null && !filter.anyTags().isEmpty()) {
+                RoaringBitmap any = new RoaringBitmap();
+                for (String name : filter.anyTags()) {
+                    any.or(tagBitmap(index, name));
+                }
+                matches.and(any);
+            }
+            if (filter.noTags() != null) {
+                for (String name : filter.noTags()) {
+                    matches.andNot(tagBitmap(index, name));
+                }
+            }
+
+            // descending from just below the cursor, next is -1 once nothing is left
+            List<Long> ids = new ArrayList<>(size);
+            long next;
+            if (matches.isEmpty() || (afterId != null && afterId <= 0)) {
+                next = -1;
+            } else if (afterId == null) {
+                next = matches.last();
+            } else {
+                next = matches.previousValue((int) Math.min(afterId - 1, Integer.MAX_VALUE));
+            }
+            while (next >= 0 && ids.size() < size) {
+                ids.add(next);
+                next = next == 0 ? -1 : matches.previousValue((int) next - 1);
+            }
+            Long nextAfterId = next >= 0 ? ids.get(ids.size() - 1) : null;
+
+            return new Result(matches.getLongCardinality(), ids, nextAfterId, facets(index, matches));
+        } finally {
+            index.lock.readLock().unlock();
+            queryTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Tag name -> number of the user's images carrying it among those matching the flags
+    public Map<String, Long> tagCounts(Long userId, Boolean favorite, Boolean archived, Boolean deleted) {
+        UserIndex index = indexFor(userId);
+        index.lock.readLock().lock();
+        try {
+            RoaringBitmap matches = index.all.clone();
+            applyFlag(matches, index.favorites, favorite);
+            applyFlag(matches, index.archived, archived);
+            applyFlag(matches, index.deleted, deleted);
+            return facets(index, matches);
+        } finally {
+            index.lock.readLock().unlock();
+        }
+    }
+
+    public Long tagId(String name) {
+        return tagIds.get(name);
+    }
+
+    // --- change notifications, applied once the calling transaction commits ---
+
+    public void imageSaved(Image image) {
+        long id = image.getId();
+        boolean favorite = Boolean.TRUE.equals(image.getIsFavorite());
+        boolean archived = Boolean.TRUE.equals(image.getIsArchived());
+        boolean deleted = Boolean.TRUE.equals(image.getIsDeleted());
+        afterCommit(image.getUser().getId(), index -> {
+            int value = toInt(id);
+            index.all.add(value);
+            set(index.favorites, value, favorite);
+            set(index.archived, value, archived);
+            set(index.deleted, value, deleted);
+        });
+    }
+
+    public void flagChanged(Long userId, Collection<Long> imageIds, Flag flag, boolean value) {
+        List<Long> ids = List.copyOf(imageIds);
+        afterCommit(userId, index -> ids.forEach(id -> set(index.flag(flag), toInt(id), value)));
+    }
+
+    public void imagesRemoved(Long userId, Collection<Long> imageIds) {
+        List<Long> ids = List.copyOf(imageIds);
+        afterCommit(userId, index -> {
+            for (Long id : ids) {
+                int value = toInt(id);
+                index.all.remove(value);
+                index.favorites.remove(value);
+                index.archived.remove(value);
+                index.deleted.remove(value);
+                index.byTag.values().forEach(bitmap -> bitmap.remove(value));
+            }
+            index.byTag.values().removeIf(RoaringBitmap::isEmpty);
+        });
+    }
+
+    // pairs are (image id, tag id)
+    public void tagsAdded(Long userId, List<long[]> pairs, Map<Long, String> names) {
+        // nothing was inserted, nothing to version or apply
+        if (pairs.isEmpty()) {
+            return;
+        }
+        afterCommit(userId, index -> {
+            names.forEach(this::registerTag);
+            for (long[] pair : pairs) {
+                index.byTag.computeIfAbsent(pair[1], tag -> new RoaringBitmap()).add(toInt(pair[0]));
+            }
+        });
+    }
+
+    public void tagsRemoved(Long userId, List<long[]> pairs) {
+        if (pairs.isEmpty()) {
+            return;
+        }
+        afterCommit(userId, index -> {
+            for (long[] pair : pairs) {
+                RoaringBitmap bitmap = index.byTag.get(pair[1]);
+                if (bitmap != null) {
+                    bitmap.remove(toInt(pair[0]));
+                    if (bitmap.isEmpty()) {
+                        index.byTag.remove(pair[1]);
+                    }
+                }
+            }
+        });
+    }
+
+    // Drops a user's bitmaps, the next query rebuilds them from the database
+    public void invalidate(Long userId) {
+        generation(userId).incrementAndGet();
+        indexes.remove(userId);
+    }
+
+    private void afterCommit(Long userId, Consumer<UserIndex> change) {
+        indexVersions.afterCommit(INDEX_NAME, userId, version -> apply(userId, change, version));
+    }
+
+    private void apply(Long userId, Consumer<UserIndex> change, long version) {
+        generation(userId).incrementAndGet();
+        UserIndex index = indexes.get(userId);
+        if (index == null) {
+            // not built yet, the build will read the committed change
+            return;
+        }
+        index.lock.writeLock().lock();
+        try {
+            change.accept(index);
+            index.version = IndexVersions.advance(index.version, version);
+        } finally {
+            index.lock.writeLock().unlock();
+        }
+    }
+
+    // --- building ---
+
+    // The local copy while it is at the committed version, otherwise a fresh build
+    private UserIndex indexFor(Long userId) {
+        UserIndex index = indexes.get(userId);
+        if (index != null && index.version == indexVersions.current(INDEX_NAME, userId)) {
+            return index;
+        }
+        return build(userId);
+    }
+
+    // Published before the generation check: a change committed after that is applied to it directly,
+    // one committed while the snapshot was read makes the build start over
+    private UserIndex build(Long userId) {
+        AtomicLong generation = generation(userId);
+        for (int attempt = 1; ; attempt++) {
+            long startedAt = generation.get();
+            UserIndex index = buildTimer.record(() -> snapshotTransaction.execute(status -> load(userId)));
+            indexes.put(userId, index);
+            if (generation.get() == startedAt) {
+                return index;
+            }
+            if (attempt == MAX_BUILD_ATTEMPTS) {
+                // still serves the query, dropped so the next one builds it again
+                indexes.remove(userId, index);
+                return index;
+            }
+        }
+    }
+
+    private UserIndex load(Long userId) {
+        UserIndex index = new UserIndex();
+        index.version = indexVersions.current(INDEX_NAME, userId);
+        for (Object[] row : tagRepository.findImageFlags(userId)) {
+            int id = toInt(((Number) row[0]).longValue());
+            index.all.add(id);
+            set(index.favorites, id, Boolean.TRUE.equals(row[1]));
+            set(index.archived, id, Boolean.TRUE.equals(row[2]));
+            set(index.deleted, id, Boolean.TRUE.equals(row[3]));
+        }
+        for (Object[] row : tagRepository.findImageTags(userId)) {
+            long tagId = ((Number) row[1]).longValue();
+            registerTag(tagId, (String) row[2]);
+            index.byTag.computeIfAbsent(tagId, tag -> new RoaringBitmap()).add(toInt(((Number) row[0]).longValue()));
+        }
+        index.all.runOptimize();
+        index.byTag.values().forEach(RoaringBitmap::runOptimize);
+        return index;
+    }
+
+    private AtomicLong generation(Long userId) {
+        return generations.computeIfAbsent(userId, id -> new AtomicLong());
+    }
+
+    private void registerTag(Long id, String name) {
+        tagNames.put(id, name);
+        tagIds.put(name, id);
+    }
+
+    private RoaringBitmap tagBitmap(UserIndex index, String name) {
+        Long id = tagIds.get(name);
+        RoaringBitmap bitmap = id == null ? null : index.byTag.get(id);
+        return bitmap != null ? bitmap : new RoaringBitmap();
+    }
+
+    private Map<String, Long> facets(UserIndex index, RoaringBitmap matches) {
+        List<Map.Entry<String, Long>> counts = new ArrayList<>();
+        index.byTag.forEach((tagId, bitmap) -> {
+            long count = RoaringBitmap.andCardinality(matches, bitmap);
+            if (count > 0) {
+                counts.add(Map.entry(tagNames.getOrDefault(tagId, String.valueOf(tagId)), count));
+            }
+        });
+        // most used first, then by name
+        counts.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        Map<String, Long> facets = new LinkedHashMap<>();
+        counts.forEach(entry -> facets.put(entry.getKey(), entry.getValue()));
+        return facets;
+    }
+
+    private static void applyFlag(RoaringBitmap matches, RoaringBitmap flagged, Boolean value) {
+        if (value == null) {
+            return;
+        }
+        if (value) {
+            matches.and(flagged);
+        } else {
+            matches.andNot(flagged);
+        }
+    }
+
+    private static void set(RoaringBitmap bitmap, int id, boolean value) {
+        if (value) {
+            bitmap.add(id);
+        } else {
+            bitmap.remove(id);
+        }
+    }
+
+    private static int toInt(long id) {
+        if (id < 0 || id > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Image id out of range for the tag index: " + id);
+        }
+        return (int) id;
+    }
+
+    private long sizeInBytes() {
+        long bytes = 0;
+        for (UserIndex index : indexes.values()) {
+            index.lock.readLock().lock();
+            try {
+                bytes += index.all.getLongSizeInBytes() + index.favorites.getLongSizeInBytes()
+                        + index.archived.getLongSizeInBytes() + index.deleted.getLongSizeInBytes();
+                for (RoaringBitmap bitmap : index.byTag.values()) {
+                    bytes += bitmap.getLongSizeInBytes();
+                }
+            } finally {
+                index.lock.readLock().unlock();
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,167 @@
+package com.internship.photovault.service;
+
+import com.internship.photovault.dto.ImageSummary;
+import com.internship.photovault.entity.Tag;
+import com.internship.photovault.entity.User;
+import com.internship.photovault.repository.TagRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Tagging of a user's images and faceted browsing. Writes go to image_tags in one statement per
+// batch; reads (filters, facet counts) are answered by TagIndexService without touching the database,
+// apart from loading the summaries of the page being shown.
+@Service
+public class TagService {
+
+    private static final int MAX_TAG_LENGTH = 100;
+    private static final int MAX_TAGS_PER_REQUEST = 50;
+
+    // Result of a faceted query: one page of images plus tag counts over every match
+    public record FacetPage(List<ImageSummary> content, String nextCursor, boolean hasNext, long totalElements,
+                            Map<String, Long> facets) {
+    }
+
+    private final TagRepository tagRepository;
+    private final TagIndexService tagIndexService;
+    private final ImageService imageService;
+    private final AuditService auditService;
+    private final int maxBulkIds;
+
+    public TagService(TagRepository tagRepository,
+                      TagIndexService tagIndexService,
+                      ImageService imageService,
+                      AuditService auditService,
+                      @Value("${photovault.bulk.max-ids:1000}") int maxBulkIds) {
+        this.tagRepository = tagRepository;
+        this.tagIndexService = tagIndexService;
+        this.imageService = imageService;
+        this.auditService = auditService;
+        this.maxBulkIds = maxBulkIds;
+    }
+
+    // Adds and removes tags on a multi-selection; only owned images are touched (and, for adding, not trashed)
+    @Transactional
+    public Map<String, Object> updateTags(List<Long> ids, List<String> add, List<String> remove, User user) {
+        Set<Long> imageIds = ids == null ? new LinkedHashSet<>() : new LinkedHashSet<>(ids);
+        imageIds.remove(null);
+        if (imageIds.isEmpty()) {
+            throw new IllegalArgumentException("ids must not be empty");
+        }
+        if (imageIds.size() > maxBulkIds) {
+            throw new IllegalArgumentException("At most " + maxBulkIds + " images can be changed at once");
+        }
+        Set<String> toAdd = normalize(add);
+        Set<String> toRemove = normalize(remove);
+        if (toAdd.isEmpty() && toRemove.isEmpty()) {
+            throw new IllegalArgumentException("Nothing to add or remove");
+        }
+
+        Map<Long, List<String>> addedByImage = new LinkedHashMap<>();
+        Map<Long, List<String>> removedByImage = new LinkedHashMap<>();
+
+        if (!toAdd.isEmpty()) {
+            // tags are shared by name, the first user of a name creates it
+            toAdd.forEach(tagRepository::insertIfAbsent);
+            Map<Long, String> names = namesById(tagRepository.findByNameIn(toAdd));
+            List<long[]> pairs = toPairs(tagRepository.addImageTags(user.getId(), imageIds, names.keySet()));
+            pairs.forEach(pair -> addedByImage.computeIfAbsent(pair[0], id -> new ArrayList<>()).add(names.get(pair[1])));
+            tagIndexService.tagsAdded(user.getId(), pairs, names);
+        }
+        if (!toRemove.isEmpty()) {
+            Map<Long, String> names = namesById(tagRepository.findByNameIn(toRemove));
+            if (!names.isEmpty()) {
+                List<long[]> pairs = toPairs(tagRepository.removeImageTags(user.getId(), imageIds, names.keySet()));
+                pairs.forEach(pair -> removedByImage.computeIfAbsent(pair[0], id -> new ArrayList<>()).add(names.get(pair[1])));
+                tagIndexService.tagsRemoved(user.getId(), pairs);
+            }
+        }
+
+        // the native statements bypass Hibernate events, so the audit entries are recorded here
+        Set<Long> changed = new LinkedHashSet<>(addedByImage.keySet());
+        changed.addAll(removedByImage.keySet());
+        for (Long id : changed) {
+            Map<String, Object> newValues = new LinkedHashMap<>();
+            newValues.put("tagsAdded", addedByImage.getOrDefault(id, List.of()));
+            newValues.put("tagsRemoved", removedByImage.getOrDefault(id, List.of()));
+            auditService.recordAfterCommit(AuditService.UPDATE, "images", id, null, newValues);
+        }
+
+        return Map.of(
+                "requested", imageIds.size(),
+                "updated", changed.size(),
+                "added", addedByImage.values().stream().mapToInt(List::size).sum(),
+                "removed", removedByImage.values().stream().mapToInt(List::size).sum()
+        );
+    }
+
+    // Tag name -> image count for the user's images matching the flags, most used first
+    public Map<String, Long> getTagCounts(User user, Boolean favorite, Boolean archived, Boolean deleted) {
+        return tagIndexService.tagCounts(user.getId(), favorite, archived, deleted);
+    }
+
+    // Newest first, the cursor is the id of the last image of the previous page
+    public FacetPage browse(User user, TagIndexService.Filter filter, String cursor, int size) {
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                afterId = Long.valueOf(cursor);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+        TagIndexService.Filter normalized = new TagIndexService.Filter(normalize(filter.allTags()),
+                normalize(filter.anyTags()), normalize(filter.noTags()),
+                filter.favorite(), filter.archived(), filter.deleted());
+
+        TagIndexService.Result result = tagIndexService.query(user.getId(), normalized, afterId, size);
+        String nextCursor = result.nextAfterId() == null ? null : String.valueOf(result.nextAfterId());
+        return new FacetPage(imageService.getSummaries(result.ids()), nextCursor, nextCursor != null,
+                result.total(), result.facets());
+    }
+
+    // Tag names are trimmed, blank ones dropped
+    private static Set<String> normalize(Collection<String> names) {
+        Set<String> normalized = new LinkedHashSet<>();
+        if (names == null) {
+            return normalized;
+        }
+        for (String name : names) {
+            String tag = name == null ? "" : name.trim();
+            if (tag.isEmpty()) {
+                continue;
+            }
+            if (tag.length() > MAX_TAG_LENGTH) {
+                throw new IllegalArgumentException("Tag names must be at most " + MAX_TAG_LENGTH + " characters");
+            }
+            normalized.add(tag);
+        }
+        if (normalized.size() > MAX_TAGS_PER_REQUEST) {
+            throw new IllegalArgumentException("At most " + MAX_TAGS_PER_REQUEST + " tags per request");
+        }
+        return normalized;
+    }
+
+    private static Map<Long, String> namesById(List<Tag> tags) {
+        Map<Long, String> names = new HashMap<>();
+        tags.forEach(tag -> names.put(tag.getId(), tag.getName()));
+        return names;
+    }
+
+    private static List<long[]> toPairs(List<Object[]> rows) {
+        List<long[]> pairs = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            pairs.add(new long[]{((Number) row[0]).longValue(), ((Number) row[1]).longValue()});
+        }
+        return pairs;
+    }
+}
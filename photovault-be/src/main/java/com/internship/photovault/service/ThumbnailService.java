@@ -0,0 +1,282 @@
+package com.internship.photovault.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.internship.photovault.storage.StorageBackend;
+import com.internship.photovault.storage.StorageLayout;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Produces fixed-size JPEG renditions (longest edge = size) next to the stored original,
+// e.g. "<uuid>.png" -> "<uuid>_256.jpg", "<uuid>_1024.jpg", stored in the same StorageBackend under the
+// original's directory key. Renditions are encoded into a temp file on the local staging volume first.
+@Service
+public class ThumbnailService {
+
+    private static final String RENDITION_EXTENSION = ".jpg";
+
+    private final StorageBackend storageBackend;
+    private final Path stagingLocation;
+    private final int[] sizes;
+    private final float quality;
+
+    // one generation per original at a time, lazy requests join the running one
+    private final Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+    // originals whose generation failed, served without renditions until the entry expires instead of
+    // being decoded (and logged) again on every request
+    private final Cache<String, Boolean> failed;
+
+    public ThumbnailService(StorageBackend storageBackend,
+                            @Value("${DB_LOCATION}") String stagingLocationPath,
+                            @Value("${photovault.thumbnails.sizes:256,1024}") int[] sizes,
+                            @Value("${photovault.thumbnails.quality:0.82}") float quality,
+                            @Value("${photovault.thumbnails.threads:2}") int threads,
+                            @Value("${photovault.thumbnails.failure-ttl-seconds:600}") long failureTtlSeconds) {
+        this.storageBackend = storageBackend;
+        this.stagingLocation = Paths.get(stagingLocationPath).toAbsolutePath().normalize();
+        this.sizes = Arrays.stream(sizes).filter(size -> size > 0).sorted().distinct().toArray();
+        if (this.sizes.length == 0) {
+            throw new IllegalArgumentException("At least one thumbnail size must be configured");
+        }
+        this.quality = quality;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "thumbnail-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.failed = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofSeconds(Math.max(1, failureTtlSeconds)))
+                .build();
+        // decode/encode in memory instead of spilling to java.io.tmpdir
+        ImageIO.setUseCache(false);
+    }
+
+    // Smallest configured size that covers the requested edge, or the largest one
+    public int resolveSize(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return sizes[0];
+        }
+        for (int size : sizes) {
+            if (size >= requested) {
+                return size;
+            }
+        }
+        return sizes[sizes.length - 1];
+    }
+
+    // Kick off rendition generation for a freshly stored original without blocking the upload
+    public void scheduleRenditions(String storedFilename) {
+        // content-addressed originals may already have renditions from another upload
+        if (failed.getIfPresent(storedFilename) == null && !renditionExists(storedFilename, sizes[sizes.length - 1])) {
+            generate(storedFilename);
+        }
+    }
+
+    // Returns the rendition's storage key, building the renditions lazily for older images.
+    // Empty when the original cannot be decoded (e.g. WebP, which ImageIO cannot read), right away while
+    // an earlier failure for it is cached.
+    public Optional<String> getRendition(String storedFilename, Integer requestedSize) {
+        int size = resolveSize(requestedSize);
+        String rendition = renditionKey(storedFilename, size);
+        if (renditionExists(storedFilename, size)) {
+            return Optional.of(rendition);
+        }
+        if (failed.getIfPresent(storedFilename) != null) {
+            return Optional.empty();
+        }
+
+        try {
+            generate(storedFilename).join();
+        } catch (CompletionException e) {
+            System.err.println("Failed to generate thumbnails for " + storedFilename + ": " + e.getCause().getMessage());
+            return Optional.empty();
+        }
+        return renditionExists(storedFilename, size) ? Optional.of(rendition) : Optional.empty();
+    }
+
+    public void deleteRenditions(String storedFilename) {
+        failed.invalidate(storedFilename);
+        for (int size : sizes) {
+            try {
+                storageBackend.delete(renditionKey(storedFilename, size));
+            } catch (IOException e) {
+                System.err.println("Failed to delete thumbnail: " + e.getMessage());
+            }
+        }
+    }
+
+    // Storage keys of all configured renditions of an original
+    public List<String> renditionKeys(String storedFilename) {
+        return Arrays.stream(sizes).mapToObj(size -> renditionKey(storedFilename, size)).toList();
+    }
+
+    private CompletableFuture<Void> generate(String storedFilename) {
+        CompletableFuture<Void> created = new CompletableFuture<>();
+        CompletableFuture<Void> running = inFlight.putIfAbsent(storedFilename, created);
+        if (running != null) {
+            return running;
+        }
+
+        executor.execute(() -> {
+            try {
+                writeRenditions(storedFilename);
+                inFlight.remove(storedFilename, created);
+                created.complete(null);
+            } catch (Exception e) {
+                // cached before the waiters are released, a request right after them sees it
+                failed.put(storedFilename, Boolean.TRUE);
+                inFlight.remove(storedFilename, created);
+                created.completeExceptionally(e);
+            }
+        });
+        return created;
+    }
+
+    private void writeRenditions(String storedFilename) throws IOException {
+        String originalKey = StorageLayout.keyFor(storedFilename);
+
+        // Decode once, subsampled close to the largest rendition, then derive the smaller ones from it
+        BufferedImage source = decodeSubsampled(originalKey, sizes[sizes.length - 1]);
+        for (int i = sizes.length - 1; i >= 0; i--) {
+            source = scaleToFit(source, sizes[i]);
+            writeJpeg(source, renditionKey(storedFilename, sizes[i]));
+        }
+    }
+
+    private BufferedImage decodeSubsampled(String originalKey, int targetSize) throws IOException {
+        // Local originals are read with random access, remote ones streamed (ImageIO buffers what it seeks over)
+        Optional<Path> localFile = storageBackend.localFile(originalKey);
+        try (InputStream stream = localFile.isPresent() ? null : storageBackend.get(originalKey);
+             ImageInputStream input = localFile.isPresent()
+                     ? ImageIO.createImageInputStream(localFile.get().toFile())
+                     : ImageIO.createImageInputStream(stream)) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("Unsupported image format: " + StorageLayout.fileName(originalKey));
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int longestEdge = Math.max(reader.getWidth(0), reader.getHeight(0));
+                // keep at least 2x the target so the final resample still has detail to work with
+                int step = Math.max(1, longestEdge / (targetSize * 2));
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage scaleToFit(BufferedImage source, int size) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+
+        // halve progressively to avoid aliasing from a single large bilinear step
+        while (Math.max(width, height) > size * 2) {
+            width = Math.max(1, width / 2);
+            height = Math.max(1, height / 2);
+            source = draw(source, width, height);
+        }
+
+        double scale = Math.min(1.0, (double) size / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+        if (source.getType() == BufferedImage.TYPE_INT_RGB
+                && targetWidth == source.getWidth() && targetHeight == source.getHeight()) {
+            return source;
+        }
+        return draw(source, targetWidth, targetHeight);
+    }
+
+    // Always draws onto an opaque RGB canvas, JPEG has no alpha channel
+    private BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private void writeJpeg(BufferedImage image, String key) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        Path tempFile = Files.createTempFile(stagingLocation, "thumb-", ".tmp");
+        try {
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(tempFile.toFile())) {
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(quality);
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+                writer.setOutput(output);
+                writer.write(null, new IIOImage(image, null, null), param);
+            }
+            storageBackend.put(key, tempFile, "image/jpeg");
+        } finally {
+            writer.dispose();
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private String renditionKey(String storedFilename, int size) {
+        String baseName = storedFilename.contains(".")
+                ? storedFilename.substring(0, storedFilename.lastIndexOf('.'))
+                : storedFilename;
+        return StorageLayout.siblingKey(storedFilename, baseName + "_" + size + RENDITION_EXTENSION);
+    }
+
+    private boolean renditionExists(String storedFilename, int size) {
+        try {
+            return storageBackend.exists(renditionKey(storedFilename, size));
+        } catch (IOException e) {
+            System.err.println("Failed to look up thumbnail: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,33 @@
+package com.internship.photovault.service;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Operator controls for the trash purge: GET /actuator/trashpurge for progress,
+// POST {"enabled": false} to stop a running purge at the next chunk and skip scheduled runs.
+// Needs "trashpurge" in management.endpoints.web.exposure.include, restricted to admins in SecurityConfig.
+@Component
+@Endpoint(id = "trashpurge")
+public class TrashPurgeEndpoint {
+
+    private final TrashPurgeService trashPurgeService;
+
+    public TrashPurgeEndpoint(TrashPurgeService trashPurgeService) {
+        this.trashPurgeService = trashPurgeService;
+    }
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        return trashPurgeService.getStatus();
+    }
+
+    @WriteOperation
+    public Map<String, Object> setEnabled(boolean enabled) {
+        trashPurgeService.setEnabled(enabled);
+        return trashPurgeService.getStatus();
+    }
+}
@@ -0,0 +1,309 @@
+package com.internship.photovault.service;
+
+import com.internship.photovault.entity.FileBlob;
+import com.internship.photovault.entity.Image;
+import com.internship.photovault.repository.FileBlobRepository;
+import com.internship.photovault.repository.ImageRepository;
+import com.internship.photovault.security.SystemContext;
+import com.internship.photovault.service.UserImageStatsService.Delta;
+import com.internship.photovault.storage.StorageBackend;
+import com.internship.photovault.storage.StorageLayout;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Permanently deletes images that have been in the trash longer than the retention period.
+// Expired trash is walked in keyset chunks, each chunk is deleted in one transaction and its files
+// are removed on a small I/O pool once that transaction has committed.
+@Service
+public class TrashPurgeService {
+
+    private static final LocalDateTime KEYSET_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final ImageRepository imageRepository;
+    private final FileBlobRepository fileBlobRepository;
+    private final BlobStorageService blobStorageService;
+    private final ThumbnailService thumbnailService;
+    private final UserImageStatsService imageStatsService;
+    private final TagIndexService tagIndexService;
+    private final SimilarityIndexService similarityIndexService;
+    private final AuditService auditService;
+    private final TransactionTemplate transactionTemplate;
+    private final StorageBackend storageBackend;
+    private final Duration retention;
+    private final int batchSize;
+    private final ExecutorService ioExecutor;
+
+    // kill switch, checked before every chunk so a running purge stops at the next boundary
+    private final AtomicBoolean enabled;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicLong lastRunPurged = new AtomicLong();
+    private final AtomicLong lastRunCompletedAt = new AtomicLong();
+
+    private final Counter purgedImages;
+    private final Counter purgedBytes;
+    private final Counter deletedFiles;
+    private final Counter fileFailures;
+    private final Counter chunkFailures;
+    private final Timer runTimer;
+
+    public TrashPurgeService(ImageRepository imageRepository,
+                             FileBlobRepository fileBlobRepository,
+                             BlobStorageService blobStorageService,
+                             ThumbnailService thumbnailService,
+                             UserImageStatsService imageStatsService,
+                             AuditService auditService,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             StorageBackend storageBackend,
+                             TagIndexService tagIndexService,
+                             SimilarityIndexService similarityIndexService,
+                             @Value("${photovault.trash.purge.enabled:true}") boolean enabled,
+                             @Value("${photovault.trash.purge.retention-days:30}") int retentionDays,
+                             @Value("${photovault.trash.purge.batch-size:200}") int batchSize,
+                             @Value("${photovault.trash.purge.io-threads:4}") int ioThreads) {
+        this.imageRepository = imageRepository;
+        this.fileBlobRepository = fileBlobRepository;
+        this.blobStorageService = blobStorageService;
+        this.thumbnailService = thumbnailService;
+        this.imageStatsService = imageStatsService;
+        this.auditService = auditService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.storageBackend = storageBackend;
+        this.tagIndexService = tagIndexService;
+        this.similarityIndexService = similarityIndexService;
+        this.retention = Duration.ofDays(Math.max(0, retentionDays));
+        this.batchSize = Math.max(1, batchSize);
+        this.enabled = new AtomicBoolean(enabled);
+
+        AtomicInteger counter = new AtomicInteger();
+        this.ioExecutor = Executors.newFixedThreadPool(Math.max(1, ioThreads), runnable -> {
+            Thread thread = new Thread(runnable, "trash-purge-io-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.purgedImages = meterRegistry.counter("photovault.trash.purge.images");
+        this.purgedBytes = meterRegistry.counter("photovault.trash.purge.bytes");
+        this.deletedFiles = meterRegistry.counter("photovault.trash.purge.files");
+        this.fileFailures = meterRegistry.counter("photovault.trash.purge.failures", "stage", "file");
+        this.chunkFailures = meterRegistry.counter("photovault.trash.purge.failures", "stage", "chunk");
+        this.runTimer = meterRegistry.timer("photovault.trash.purge.duration");
+        Gauge.builder("photovault.trash.purge.running", running, flag -> flag.get() ? 1 : 0).register(meterRegistry);
+        Gauge.builder("photovault.trash.purge.enabled", this.enabled, flag -> flag.get() ? 1 : 0).register(meterRegistry);
+        Gauge.builder("photovault.trash.purge.last.purged", lastRunPurged, AtomicLong::get).register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${photovault.trash.purge.cron:0 0 4 * * *}")
+    public void scheduledPurge() {
+        purgeExpired();
+    }
+
+    // Returns the number of images removed, 0 when disabled or when another run is in progress
+    public long purgeExpired() {
+        if (!enabled.get() || !running.compareAndSet(false, true)) {
+            return 0;
+        }
+        try (SystemContext ignored = SystemContext.enter()) {
+            return runTimer.record(this::purgeChunks);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private long purgeChunks() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        LocalDateTime afterDeletedAt = KEYSET_START;
+        long afterId = 0;
+        long purged = 0;
+
+        while (enabled.get()) {
+            List<CompletableFuture<Void>> fileDeletions = new ArrayList<>();
+            ChunkResult chunk;
+            try {
+                LocalDateTime chunkAfterDeletedAt = afterDeletedAt;
+                long chunkAfterId = afterId;
+                chunk = transactionTemplate.execute(status ->
+                        purgeChunk(cutoff, chunkAfterDeletedAt, chunkAfterId, fileDeletions));
+            } catch (RuntimeException e) {
+                // rolled back, blob files were restored; stop and let the next run retry
+                chunkFailures.increment();
+                System.err.println("Trash purge chunk failed: " + e.getMessage());
+                break;
+            }
+            if (chunk == null || chunk.size() == 0) {
+                break;
+            }
+
+            // wait for this chunk's files before loading the next one, keeps the pending I/O bounded
+            CompletableFuture.allOf(fileDeletions.toArray(new CompletableFuture[0])).join();
+
+            purged += chunk.size();
+            purgedImages.increment(chunk.size());
+            purgedBytes.increment(chunk.bytes());
+            lastRunPurged.set(purged);
+            afterDeletedAt = chunk.lastDeletedAt();
+            afterId = chunk.lastId();
+            if (chunk.size() < batchSize) {
+                break;
+            }
+        }
+
+        lastRunPurged.set(purged);
+        lastRunCompletedAt.set(Instant.now().getEpochSecond());
+        if (purged > 0) {
+            System.err.println("Trash purge removed " + purged + " images deleted before " + cutoff);
+        }
+        return purged;
+    }
+
+    private record ChunkResult(int size, long bytes, LocalDateTime lastDeletedAt, long lastId) {
+    }
+
+    private ChunkResult purgeChunk(LocalDateTime cutoff, LocalDateTime afterDeletedAt, long afterId,
+                                   List<CompletableFuture<Void>> fileDeletions) {
+        List<Image> images = imageRepository.lockExpiredTrashAfter(cutoff, afterDeletedAt, afterId, batchSize);
+        if (images.isEmpty()) {
+            return new ChunkResult(0, 0, afterDeletedAt, afterId);
+        }
+
+        // file work queued here only runs once the chunk has committed
+        Executor trackedIo = task -> fileDeletions.add(runFileTask(task));
+
+        Map<Long, Long> referencesByBlob = new LinkedHashMap<>();
+        Map<Long, Delta> deltaByUser = new HashMap<>();
+        Map<Long, List<Long>> idsByUser = new HashMap<>();
+        List<String> legacyFiles = new ArrayList<>();
+        List<Long> ids = new ArrayList<>(images.size());
+        long bytes = 0;
+        for (Image image : images) {
+            ids.add(image.getId());
+            bytes += image.getFileSize() == null ? 0 : image.getFileSize();
+            deltaByUser.merge(image.getUser().getId(), Delta.of(image).negate(), Delta::plus);
+            idsByUser.computeIfAbsent(image.getUser().getId(), user -> new ArrayList<>()).add(image.getId());
+            if (image.getBlob() != null) {
+                // reading the id does not initialize the lazy proxy
+                referencesByBlob.merge(image.getBlob().getId(), 1L, Long::sum);
+            } else {
+                legacyFiles.add(image.getStoredFilename());
+            }
+        }
+        Image last = images.get(images.size() - 1);
+        ChunkResult result = new ChunkResult(images.size(), bytes, last.getDeletedAt(), last.getId());
+
+        // the images go first (the bulk DELETE runs immediately): a blob row released with its last
+        // reference below would otherwise still be referenced by images.blob_id, checked immediately.
+        // Collection counts stay as they are, trashed images stopped counting when they were trashed.
+        List<FileBlob> blobs = fileBlobRepository.findAllById(referencesByBlob.keySet());
+        imageRepository.deleteAllByIdIn(ids);
+        // one lock, decrement and (maybe) file removal per distinct content instead of per row
+        for (FileBlob blob : blobs) {
+            blobStorageService.release(blob, referencesByBlob.get(blob.getId()), trackedIo);
+        }
+        deltaByUser.forEach(imageStatsService::apply);
+        idsByUser.forEach(tagIndexService::imagesRemoved);
+        similarityIndexService.imagesRemoved(images);
+        // the bulk DELETE bypasses Hibernate events, so the audit entries are recorded here
+        for (Image image : images) {
+            Map<String, Object> oldValues = new LinkedHashMap<>();
+            oldValues.put("originalFilename", image.getOriginalFilename());
+            oldValues.put("deletedAt", String.valueOf(image.getDeletedAt()));
+            auditService.recordAfterCommit(AuditService.DELETE, "images", image.getId(), oldValues, null);
+        }
+
+        if (!legacyFiles.isEmpty()) {
+            afterCommit(() -> legacyFiles.forEach(storedFilename -> trackedIo.execute(() -> deleteLegacyFile(storedFilename))));
+        }
+        return result;
+    }
+
+    private CompletableFuture<Void> runFileTask(Runnable task) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                task.run();
+                deletedFiles.increment();
+            } catch (RuntimeException e) {
+                fileFailures.increment();
+                System.err.println("Trash purge failed to delete a file: " + e.getMessage());
+            }
+        }, ioExecutor);
+    }
+
+    // Legacy uploads own their file, same removal as ImageService#deletePermanently
+    private void deleteLegacyFile(String storedFilename) {
+        String key;
+        try {
+            key = StorageLayout.keyFor(storedFilename);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        try {
+            storageBackend.delete(key);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        thumbnailService.deleteRenditions(storedFilename);
+    }
+
+    private void afterCommit(Runnable callback) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                callback.run();
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled.get();
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled.set(enabled);
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled.get());
+        status.put("running", running.get());
+        status.put("retentionDays", retention.toDays());
+        status.put("batchSize", batchSize);
+        status.put("lastRunPurged", lastRunPurged.get());
+        long completedAt = lastRunCompletedAt.get();
+        status.put("lastRunCompletedAt", completedAt == 0 ? null : Instant.ofEpochSecond(completedAt).toString());
+        return status;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        enabled.set(false);
+        ioExecutor.shutdown();
+    }
+}
@@ -0,0 +1,126 @@
+package com.internship.photovault.service;
+
+import com.internship.photovault.entity.Image;
+import com.internship.photovault.entity.UserImageStats;
+import com.internship.photovault.repository.UserImageStatsRepository;
+import com.internship.photovault.security.SystemContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+// Keeps user_image_stats in step with the images table. Every mutation in ImageService applies the
+// difference it makes to the counters in its own transaction, a scheduled recount repairs any drift.
+@Service
+public class UserImageStatsService {
+
+    private final UserImageStatsRepository statsRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int reconcileBatchSize;
+
+    public UserImageStatsService(UserImageStatsRepository statsRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${photovault.stats.reconcile-batch-size:500}") int reconcileBatchSize) {
+        this.statsRepository = statsRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.reconcileBatchSize = Math.max(1, reconcileBatchSize);
+    }
+
+    // What one image contributes to its owner's counters, mirrors the predicates of the recount query
+    public record Delta(long active, long favorites, long archived, long trash, long bytes) {
+
+        public static final Delta ZERO = new Delta(0, 0, 0, 0, 0);
+
+        public static Delta of(Image image) {
+            return of(image.getIsFavorite(), image.getIsArchived(), image.getIsDeleted(), image.getFileSize());
+        }
+
+        public static Delta of(Boolean isFavorite, Boolean isArchived, Boolean isDeleted, Long fileSize) {
+            boolean notDeleted = Boolean.FALSE.equals(isDeleted);
+            return new Delta(
+                    notDeleted && Boolean.FALSE.equals(isArchived) ? 1 : 0,
+                    notDeleted && Boolean.TRUE.equals(isFavorite) ? 1 : 0,
+                    notDeleted && Boolean.TRUE.equals(isArchived) ? 1 : 0,
+                    Boolean.TRUE.equals(isDeleted) ? 1 : 0,
+                    fileSize == null ? 0 : fileSize);
+        }
+
+        public Delta plus(Delta other) {
+            return new Delta(active + other.active, favorites + other.favorites, archived + other.archived,
+                    trash + other.trash, bytes + other.bytes);
+        }
+
+        public Delta minus(Delta other) {
+            return plus(other.negate());
+        }
+
+        public Delta negate() {
+            return new Delta(-active, -favorites, -archived, -trash, -bytes);
+        }
+
+        public boolean isZero() {
+            return equals(ZERO);
+        }
+    }
+
+    // Joins the caller's transaction so the counters commit or roll back together with the image change
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void apply(Long userId, Delta delta) {
+        if (!delta.isZero()) {
+            statsRepository.applyDelta(userId, delta.active(), delta.favorites(), delta.archived(),
+                    delta.trash(), delta.bytes());
+        }
+    }
+
+    public UserImageStats getStats(Long userId) {
+        return statsRepository.findById(userId).orElseGet(() -> {
+            // users created before the stats table existed are counted once and tracked from then on
+            reconcile(userId);
+            return statsRepository.findById(userId).orElseThrow();
+        });
+    }
+
+    // Recounts one user, returns true when the stored counters had drifted
+    public boolean reconcile(Long userId) {
+        Boolean drifted = transactionTemplate.execute(status -> {
+            statsRepository.insertIfMissing(userId);
+            statsRepository.lockByUserId(userId);
+            return statsRepository.recount(userId) > 0;
+        });
+        return Boolean.TRUE.equals(drifted);
+    }
+
+    @Scheduled(cron = "${photovault.stats.reconcile-cron:0 30 3 * * *}")
+    public void reconcileAll() {
+        long afterId = 0;
+        int checked = 0;
+        int repaired = 0;
+        List<Long> userIds;
+        // counts every user's images, see SystemContext
+        try (SystemContext ignored = SystemContext.enter()) {
+            do {
+                userIds = statsRepository.findUserIdsAfter(afterId, reconcileBatchSize);
+                for (Long userId : userIds) {
+                    try {
+                        if (reconcile(userId)) {
+                            repaired++;
+                        }
+                    } catch (RuntimeException e) {
+                        System.err.println("Failed to reconcile image stats for user " + userId + ": " + e.getMessage());
+                    }
+                    checked++;
+                    afterId = userId;
+                }
+            } while (userIds.size() == reconcileBatchSize);
+        }
+
+        if (repaired > 0) {
+            System.err.println("Image stats reconciliation repaired " + repaired + " of " + checked + " users");
+        }
+    }
+}
@@ -1,12 +1,18 @@
 package com.internship.photovault.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.internship.photovault.entity.User;
 import com.internship.photovault.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.List;
 
 @Service
@@ -14,9 +20,25 @@ public class UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    // Resolved users by principal name, every image endpoint asks for the current user.
+    // Entries are only invalidated on the node that made the change: on other nodes a deactivated user
+    // keeps access, and an updated user is served stale, until the entry expires, at most
+    // photovault.user-cache.ttl-seconds (60s by default). Lower it if deactivation must apply sooner.
+    private final Cache<String, User> currentUserCache;
+
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                       MeterRegistry meterRegistry,
+                       @Value("${photovault.user-cache.max-size:10000}") long maxSize,
+                       @Value("${photovault.user-cache.ttl-seconds:60}") long ttlSeconds) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.currentUserCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        // hit/miss/eviction counters under cache.gets{cache="currentUsers"} etc.
+        CaffeineCacheMetrics.monitor(meterRegistry, currentUserCache, "currentUsers");
     }
 
     public User getCurrentUser() {
@@ -27,8 +49,14 @@ public class UserService {
         }
 
         String username = authentication.getName();
-        return userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found: " + username));
+        User user = currentUserCache.get(username, name -> userRepository.findByUsername(name).orElse(null));
+        if (user == null) {
+            throw new RuntimeException("User not found: " + username);
+        }
+        if (!Boolean.TRUE.equals(user.getIsActive())) {
+            throw new RuntimeException("User account is deactivated: " + username);
+        }
+        return user;
     }
 
     public User createUser(String username, String email, String password) {
@@ -76,13 +104,17 @@ public class UserService {
         }
 
         user.setEmail(email);
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        currentUserCache.invalidate(savedUser.getUsername());
+        return savedUser;
     }
 
     public void deactivateUser(Long id) {
         User user = findById(id);
         user.setIsActive(false);
         userRepository.save(user);
+        // takes effect on this node's next request; other nodes keep the cached user up to the TTL
+        currentUserCache.invalidate(user.getUsername());
     }
 
     public boolean validatePassword(String rawPassword, String encodedPassword) {
@@ -0,0 +1,170 @@
+package com.internship.photovault.service;
+
+import com.internship.photovault.security.SystemContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Write-behind view counting. A view only bumps an in-memory counter for its (image, user) pair;
+// the scheduled flush adds the accumulated counts to image_states in one JDBC batch.
+// Views recorded since the last flush are lost if the process dies, they are flushed on a normal shutdown.
+@Service
+public class ViewCountService implements SmartLifecycle {
+
+    // Adds n views and keeps the newest last_viewed; creates the row for first views.
+    // Images deleted since the view are skipped by the SELECT instead of failing the whole batch.
+    private static final String UPSERT_SQL = """
+            INSERT INTO image_states (image_id, user_id, view_count, last_viewed)
+            SELECT i.id, ?, ?, ? FROM images i WHERE i.id = ?
+            ON CONFLICT (image_id, user_id) DO UPDATE
+            SET view_count = COALESCE(image_states.view_count, 0) + EXCLUDED.view_count,
+                last_viewed = GREATEST(image_states.last_viewed, EXCLUDED.last_viewed)
+            """;
+
+    private record ViewKey(long imageId, long userId) {
+    }
+
+    private static final class ViewCounter {
+        private final LongAdder views = new LongAdder();
+        private final LongAccumulator lastViewed = new LongAccumulator(Math::max, 0);
+    }
+
+    private record PendingViews(ViewKey key, long views, long lastViewed) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<ViewKey, ViewCounter> counters = new ConcurrentHashMap<>();
+    // one flush at a time, the scheduled one and the shutdown one can overlap
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final Counter recorded;
+    private final Counter flushed;
+    private final Counter failed;
+
+    private volatile boolean running;
+
+    public ViewCountService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.recorded = meterRegistry.counter("photovault.views.recorded");
+        this.flushed = meterRegistry.counter("photovault.views.flushed");
+        this.failed = meterRegistry.counter("photovault.views.flush.failures");
+        Gauge.builder("photovault.views.pending.keys", counters, Map::size).register(meterRegistry);
+    }
+
+    public void recordView(Long imageId, Long userId) {
+        ViewKey key = new ViewKey(imageId, userId);
+        long now = System.currentTimeMillis();
+        recorded.increment();
+        while (true) {
+            ViewCounter counter = counters.computeIfAbsent(key, k -> new ViewCounter());
+            counter.lastViewed.accumulate(now);
+            counter.views.increment();
+            // the flush drops counters that stayed idle for a whole interval; if ours was dropped
+            // before the increment landed it is never read again, so count the view on the new one
+            if (counters.get(key) == counter) {
+                return;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${photovault.views.flush-interval-ms:5000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<PendingViews> pending = new ArrayList<>();
+            for (Map.Entry<ViewKey, ViewCounter> entry : counters.entrySet()) {
+                ViewCounter counter = entry.getValue();
+                long views = counter.views.sumThenReset();
+                long lastViewed = counter.lastViewed.getThenReset();
+                if (views > 0) {
+                    pending.add(new PendingViews(entry.getKey(), views, lastViewed));
+                } else {
+                    // removed only if still empty, see recordView
+                    counters.computeIfPresent(entry.getKey(), (key, current) -> current.views.sum() == 0 ? null : current);
+                }
+            }
+            if (!pending.isEmpty()) {
+                write(pending);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void write(List<PendingViews> pending) {
+        // same lock order in every flush, concurrent instances cannot deadlock on image_states rows
+        pending.sort(Comparator.comparingLong((PendingViews p) -> p.key().imageId())
+                .thenComparingLong(p -> p.key().userId()));
+        // In one transaction begun in the system context: the SELECT on images would otherwise match no rows
+        // under RLS and drop the views (see V28), and a failed batch is rolled back as a whole before the
+        // counts are put back for the retry.
+        try (SystemContext ignored = SystemContext.enter()) {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(UPSERT_SQL, pending, pending.size(), (statement, views) -> {
+                        statement.setLong(1, views.key().userId());
+                        statement.setLong(2, views.views());
+                        statement.setTimestamp(3, views.lastViewed() == 0 ? null : toTimestamp(views.lastViewed()));
+                        statement.setLong(4, views.key().imageId());
+                    }));
+            flushed.increment(pending.stream().mapToLong(PendingViews::views).sum());
+        } catch (RuntimeException e) {
+            failed.increment();
+            System.err.println("Failed to flush " + pending.size() + " view counters, retrying next interval: " + e.getMessage());
+            // put the counts back so the next flush retries them
+            for (PendingViews views : pending) {
+                ViewCounter counter = counters.computeIfAbsent(views.key(), k -> new ViewCounter());
+                counter.lastViewed.accumulate(views.lastViewed());
+                counter.views.add(views.views());
+            }
+        }
+    }
+
+    private static Timestamp toTimestamp(long epochMillis) {
+        return Timestamp.valueOf(LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault()));
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    // Last flush on shutdown so buffered views are not lost
+    @Override
+    public void stop() {
+        running = false;
+        flush();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // same phase as the audit writer: after in-flight requests, before the DataSource closes
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+}
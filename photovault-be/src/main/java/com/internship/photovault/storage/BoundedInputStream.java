@@ -0,0 +1,45 @@
+package com.internship.photovault.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Ends after length bytes of the delegate, which is closed with this stream
+class BoundedInputStream extends InputStream {
+
+    private final InputStream delegate;
+    private long remaining;
+
+    BoundedInputStream(InputStream delegate, long length) {
+        this.delegate = delegate;
+        this.remaining = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (remaining <= 0) {
+            return -1;
+        }
+        int b = delegate.read();
+        if (b >= 0) {
+            remaining--;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (remaining <= 0) {
+            return -1;
+        }
+        int read = delegate.read(buffer, offset, (int) Math.min(length, remaining));
+        if (read > 0) {
+            remaining -= read;
+        }
+        return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
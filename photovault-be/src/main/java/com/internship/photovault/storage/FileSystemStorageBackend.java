@@ -0,0 +1,121 @@
+package com.internship.photovault.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+// Objects as files under DB_LOCATION, "<root>/<key>". Files written before the fan-out layout sit
+// directly in the root until StorageLayoutMigrator moves them, so every lookup falls back to the
+// root-level file of the same name.
+@Component
+@ConditionalOnProperty(name = "photovault.storage.type", havingValue = "filesystem", matchIfMissing = true)
+public class FileSystemStorageBackend implements StorageBackend {
+
+    private final Path root;
+
+    public FileSystemStorageBackend(@Value("${DB_LOCATION}") String storageLocationPath) {
+        this.root = Paths.get(storageLocationPath).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public void put(String key, Path source, String contentType) throws IOException {
+        Path target = path(key);
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            // staged on another volume, copy next to the target first so readers never see a partial file
+            Path temp = Files.createTempFile(target.getParent(), "put-", ".tmp");
+            try {
+                Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                Files.deleteIfExists(source);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return Files.newInputStream(locate(key));
+    }
+
+    @Override
+    public InputStream getRange(String key, long offset, long length) throws IOException {
+        SeekableByteChannel channel = Files.newByteChannel(locate(key));
+        try {
+            channel.position(offset);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new BoundedInputStream(Channels.newInputStream(channel), length);
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        return Files.size(locate(key));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(locate(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(path(key));
+        Files.deleteIfExists(legacyPath(key));
+    }
+
+    @Override
+    public Optional<Path> localFile(String key) throws IOException {
+        Path file = locate(key);
+        if (!Files.exists(file)) {
+            throw new NoSuchFileException(key);
+        }
+        return Optional.of(file);
+    }
+
+    // File for key in the fan-out layout, where new objects are written
+    public Path path(String key) {
+        return inside(root.resolve(key));
+    }
+
+    // Root-level file of the same name, the layout before the fan-out
+    public Path legacyPath(String key) {
+        return inside(root.resolve(StorageLayout.fileName(key)));
+    }
+
+    // The fan-out file, or the legacy one when it has not been migrated yet. The fan-out file wins when
+    // neither exists, a migration move between the two checks is covered by looking at it first.
+    public Path locate(String key) {
+        Path path = path(key);
+        if (Files.exists(path)) {
+            return path;
+        }
+        Path legacy = legacyPath(key);
+        return Files.exists(legacy) ? legacy : path;
+    }
+
+    private Path inside(Path path) {
+        Path normalized = path.normalize();
+        if (!normalized.startsWith(root) || normalized.equals(root)) {
+            throw new IllegalArgumentException("Key escapes the storage location: " + path);
+        }
+        return normalized;
+    }
+}
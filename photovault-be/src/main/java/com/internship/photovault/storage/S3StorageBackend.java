@@ -0,0 +1,303 @@
+package com.internship.photovault.storage;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.checksums.RequestChecksumCalculation;
+import software.amazon.awssdk.core.checksums.ResponseChecksumValidation;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Objects in an S3-compatible bucket (AWS, MinIO, Ceph RGW, ...), "<prefix>/<key>".
+// One blocking client on a pooled Apache HTTP client is shared by all requests. Files up to the multipart
+// threshold go up in a single PUT, larger ones as a multipart upload whose parts are read straight from
+// the staged file and sent in parallel; a failed multipart upload is aborted so no parts are left behind.
+@Component
+@ConditionalOnProperty(name = "photovault.storage.type", havingValue = "s3")
+public class S3StorageBackend implements StorageBackend {
+
+    // S3 rejects parts below 5 MiB except for the last one
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    private static final long MB = 1024L * 1024;
+
+    private final S3Client s3;
+    private final String bucket;
+    private final String prefix;
+    private final long partSize;
+    private final long multipartThreshold;
+    private final ExecutorService partExecutor;
+
+    @Autowired
+    public S3StorageBackend(@Value("${photovault.storage.s3.bucket}") String bucket,
+                            @Value("${photovault.storage.s3.prefix:}") String prefix,
+                            @Value("${photovault.storage.s3.endpoint:}") String endpoint,
+                            @Value("${photovault.storage.s3.region:us-east-1}") String region,
+                            @Value("${photovault.storage.s3.path-style:true}") boolean pathStyle,
+                            @Value("${photovault.storage.s3.access-key:}") String accessKey,
+                            @Value("${photovault.storage.s3.secret-key:}") String secretKey,
+                            @Value("${photovault.storage.s3.max-connections:64}") int maxConnections,
+                            @Value("${photovault.storage.s3.part-size-mb:8}") int partSizeMb,
+                            @Value("${photovault.storage.s3.multipart-threshold-mb:16}") int multipartThresholdMb,
+                            @Value("${photovault.storage.s3.upload-concurrency:4}") int uploadConcurrency) {
+        this(buildClient(endpoint, region, pathStyle, accessKey, secretKey, maxConnections),
+                bucket, prefix, partSizeMb * MB, multipartThresholdMb * MB, uploadConcurrency);
+    }
+
+    // Any client, e.g. one whose endpoint points at a local in-process S3 stand-in
+    public S3StorageBackend(S3Client s3, String bucket, String prefix, long partSize, long multipartThreshold,
+                            int uploadConcurrency) {
+        if (bucket == null || bucket.isBlank()) {
+            throw new IllegalArgumentException("photovault.storage.s3.bucket must be set for the s3 storage backend");
+        }
+        this.s3 = s3;
+        this.bucket = bucket;
+        this.prefix = prefix == null ? "" : prefix.replaceAll("^/+|/+$", "");
+        this.partSize = Math.max(MIN_PART_SIZE, partSize);
+        this.multipartThreshold = Math.max(this.partSize, multipartThreshold);
+
+        AtomicInteger counter = new AtomicInteger();
+        this.partExecutor = Executors.newFixedThreadPool(Math.max(1, uploadConcurrency), runnable -> {
+            Thread thread = new Thread(runnable, "s3-part-upload-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static S3Client buildClient(String endpoint, String region, boolean pathStyle,
+                                        String accessKey, String secretKey, int maxConnections) {
+        AwsCredentialsProvider credentials = accessKey.isBlank()
+                ? DefaultCredentialsProvider.builder().build()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .forcePathStyle(pathStyle)
+                // checksums only where the API requires them, not every S3-compatible store accepts the newer defaults
+                .requestChecksumCalculation(RequestChecksumCalculation.WHEN_REQUIRED)
+                .responseChecksumValidation(ResponseChecksumValidation.WHEN_REQUIRED)
+                .httpClientBuilder(ApacheHttpClient.builder()
+                        .maxConnections(Math.max(1, maxConnections))
+                        .connectionTimeout(Duration.ofSeconds(5))
+                        .connectionAcquisitionTimeout(Duration.ofSeconds(10))
+                        .tcpKeepAlive(true));
+        if (!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder.build();
+    }
+
+    @Override
+    public void put(String key, Path source, String contentType) throws IOException {
+        try {
+            long size = Files.size(source);
+            if (size <= multipartThreshold) {
+                s3.putObject(PutObjectRequest.builder()
+                                .bucket(bucket)
+                                .key(objectKey(key))
+                                .contentType(contentType)
+                                .contentLength(size)
+                                .build(),
+                        RequestBody.fromFile(source));
+            } else {
+                multipartUpload(key, source, size, contentType);
+            }
+        } catch (SdkException e) {
+            throw new IOException("Failed to store " + key + ": " + e.getMessage(), e);
+        } finally {
+            Files.deleteIfExists(source);
+        }
+    }
+
+    private void multipartUpload(String key, Path source, long size, String contentType) throws IOException {
+        String objectKey = objectKey(key);
+        String uploadId = s3.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucket)
+                .key(objectKey)
+                .contentType(contentType)
+                .build()).uploadId();
+        try {
+            List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+            int partNumber = 1;
+            for (long offset = 0; offset < size; offset += partSize, partNumber++) {
+                long partOffset = offset;
+                long partLength = Math.min(partSize, size - offset);
+                int number = partNumber;
+                parts.add(CompletableFuture.supplyAsync(
+                        () -> uploadPart(objectKey, uploadId, number, source, partOffset, partLength), partExecutor));
+            }
+
+            List<CompletedPart> completed = new ArrayList<>(parts.size());
+            for (CompletableFuture<CompletedPart> part : parts) {
+                completed.add(part.join());
+            }
+            s3.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(objectKey)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completed).build())
+                    .build());
+        } catch (CompletionException | SdkException e) {
+            abortQuietly(objectKey, uploadId);
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw new IOException("Multipart upload of " + key + " failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    // The part body is re-opened from the file for every attempt, so SDK retries resend the same bytes
+    private CompletedPart uploadPart(String objectKey, String uploadId, int partNumber,
+                                     Path source, long offset, long length) {
+        String eTag = s3.uploadPart(UploadPartRequest.builder()
+                        .bucket(bucket)
+                        .key(objectKey)
+                        .uploadId(uploadId)
+                        .partNumber(partNumber)
+                        .contentLength(length)
+                        .build(),
+                RequestBody.fromContentProvider(() -> {
+                    try {
+                        return openRange(source, offset, length);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, length, "application/octet-stream")).eTag();
+        return CompletedPart.builder().partNumber(partNumber).eTag(eTag).build();
+    }
+
+    private static InputStream openRange(Path file, long offset, long length) throws IOException {
+        SeekableByteChannel channel = Files.newByteChannel(file);
+        try {
+            channel.position(offset);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new BoundedInputStream(Channels.newInputStream(channel), length);
+    }
+
+    private void abortQuietly(String objectKey, String uploadId) {
+        try {
+            s3.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(objectKey)
+                    .uploadId(uploadId)
+                    .build());
+        } catch (SdkException e) {
+            // the bucket's lifecycle rule for incomplete uploads cleans up after us
+            System.err.println("Failed to abort multipart upload " + uploadId + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        try {
+            return s3.getObject(GetObjectRequest.builder().bucket(bucket).key(objectKey(key)).build());
+        } catch (SdkException e) {
+            throw translate(key, e);
+        }
+    }
+
+    @Override
+    public InputStream getRange(String key, long offset, long length) throws IOException {
+        if (length <= 0) {
+            return InputStream.nullInputStream();
+        }
+        try {
+            return s3.getObject(GetObjectRequest.builder()
+                    .bucket(bucket)
+                    .key(objectKey(key))
+                    .range("bytes=" + offset + "-" + (offset + length - 1))
+                    .build());
+        } catch (SdkException e) {
+            throw translate(key, e);
+        }
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        try {
+            return s3.headObject(HeadObjectRequest.builder().bucket(bucket).key(objectKey(key)).build()).contentLength();
+        } catch (SdkException e) {
+            throw translate(key, e);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        try {
+            size(key);
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            s3.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(objectKey(key)).build());
+        } catch (SdkException e) {
+            throw translate(key, e);
+        }
+    }
+
+    private String objectKey(String key) {
+        return prefix.isEmpty() ? key : prefix + "/" + key;
+    }
+
+    // Missing objects surface like missing files, everything else as a plain I/O failure
+    private static IOException translate(String key, SdkException e) {
+        if (e instanceof NoSuchKeyException || (e instanceof S3Exception s3Exception && s3Exception.statusCode() == 404)) {
+            return new NoSuchFileException(key);
+        }
+        return new IOException("Storage request for " + key + " failed: " + e.getMessage(), e);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        partExecutor.shutdownNow();
+        s3.close();
+    }
+}
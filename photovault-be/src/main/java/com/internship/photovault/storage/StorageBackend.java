@@ -0,0 +1,33 @@
+package com.internship.photovault.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+// Where stored files (originals and renditions) live, addressed by object key (see StorageLayout).
+// The backend is picked with photovault.storage.type: "filesystem" (default, DB_LOCATION) or "s3".
+// A missing object is reported with java.nio.file.NoSuchFileException by get, getRange and size.
+public interface StorageBackend {
+
+    // Stores the local file under key and consumes it (moved or deleted), overwriting an existing object
+    void put(String key, Path source, String contentType) throws IOException;
+
+    InputStream get(String key) throws IOException;
+
+    // length bytes starting at offset, fewer when the object ends first
+    InputStream getRange(String key, long offset, long length) throws IOException;
+
+    long size(String key) throws IOException;
+
+    boolean exists(String key) throws IOException;
+
+    // No-op when the object does not exist
+    void delete(String key) throws IOException;
+
+    // The object as a local file, for zero-copy serving and random-access decoding.
+    // Empty for remote backends, callers fall back to get / getRange.
+    default Optional<Path> localFile(String key) throws IOException {
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,76 @@
+package com.internship.photovault.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+// Object keys for stored files. Keys fan out over two levels, "ab/cd/abcd1234....jpg", keyed on the
+// first four hex characters of the stored name (the SHA-256 for blobs, the UUID for legacy uploads),
+// so neither a directory on the local volume nor a bucket prefix grows unbounded.
+// Files derived from an original (renditions) share its directory key.
+public final class StorageLayout {
+
+    private static final int LEVELS = 2;
+    private static final int CHARS_PER_LEVEL = 2;
+
+    private StorageLayout() {
+    }
+
+    public static String keyFor(String name) {
+        return directoryKey(name) + "/" + validName(name);
+    }
+
+    // Key of name's sibling, e.g. a rendition next to its original
+    public static String siblingKey(String name, String siblingName) {
+        return directoryKey(name) + "/" + validName(siblingName);
+    }
+
+    public static String directoryKey(String name) {
+        String shard = shardKey(validName(name));
+        StringBuilder directory = new StringBuilder();
+        for (int level = 0; level < LEVELS; level++) {
+            if (level > 0) {
+                directory.append('/');
+            }
+            directory.append(shard, level * CHARS_PER_LEVEL, (level + 1) * CHARS_PER_LEVEL);
+        }
+        return directory.toString();
+    }
+
+    // Last segment of a key, the stored name itself
+    public static String fileName(String key) {
+        return key.substring(key.lastIndexOf('/') + 1);
+    }
+
+    private static String validName(String name) {
+        if (name == null || name.isEmpty() || name.equals(".") || name.contains("..")
+                || name.contains("/") || name.contains("\\")) {
+            throw new IllegalArgumentException("Invalid stored file name: " + name);
+        }
+        return name;
+    }
+
+    // Stored names start with hex (checksum or UUID); anything else is hashed so it still spreads evenly
+    private static String shardKey(String name) {
+        int length = LEVELS * CHARS_PER_LEVEL;
+        if (name.length() >= length && isHex(name, length)) {
+            return name.substring(0, length).toLowerCase();
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(name.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, length / 2);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static boolean isHex(String name, int length) {
+        for (int i = 0; i < length; i++) {
+            if (Character.digit(name.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
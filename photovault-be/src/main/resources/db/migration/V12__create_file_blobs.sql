@@ -0,0 +1,46 @@
+-- Content-addressed blob store: one physical file per checksum, shared across users
+CREATE TABLE file_blobs (
+        id BIGSERIAL PRIMARY KEY,
+        checksum_sha256 VARCHAR(64) UNIQUE NOT NULL,
+        stored_filename VARCHAR(255) NOT NULL,
+        file_path VARCHAR(500) NOT NULL,
+        file_size BIGINT NOT NULL,
+        content_type VARCHAR(100) NOT NULL,
+        ref_count BIGINT NOT NULL DEFAULT 0 CHECK (ref_count >= 0),
+        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+ALTER TABLE images ADD COLUMN blob_id BIGINT REFERENCES file_blobs(id);
+
+-- Adopt existing files, the oldest upload of each checksum becomes the shared blob.
+INSERT INTO file_blobs (checksum_sha256, stored_filename, file_path, file_size, content_type, ref_count)
+SELECT DISTINCT ON (checksum_sha256) checksum_sha256, stored_filename, file_path, file_size, content_type, 0
+FROM images
+WHERE checksum_sha256 IS NOT NULL
+ORDER BY checksum_sha256, id;
+
+-- Newer copies of the same bytes lose their only reference below. Their files are recorded here before
+-- the rows are repointed, StorageLayoutMigrator removes them from storage and then the row.
+CREATE TABLE orphaned_files (
+        id BIGSERIAL PRIMARY KEY,
+        stored_filename VARCHAR(255) UNIQUE NOT NULL,
+        recorded_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+INSERT INTO orphaned_files (stored_filename)
+SELECT DISTINCT i.stored_filename
+FROM images i
+JOIN file_blobs b ON b.checksum_sha256 = i.checksum_sha256
+WHERE i.stored_filename <> b.stored_filename;
+
+UPDATE images i
+SET blob_id = b.id, stored_filename = b.stored_filename, file_path = b.file_path
+FROM file_blobs b
+WHERE i.checksum_sha256 = b.checksum_sha256;
+
+UPDATE file_blobs b
+SET ref_count = (SELECT COUNT(*) FROM images i WHERE i.blob_id = b.id);
+
+-- Create performance indexes
+CREATE INDEX idx_images_blob_id ON images(blob_id);
+CREATE INDEX idx_images_user_checksum ON images(user_id, checksum_sha256);
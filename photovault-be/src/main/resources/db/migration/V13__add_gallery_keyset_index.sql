@@ -0,0 +1,5 @@
+-- Composite index serving the keyset-paginated gallery listing:
+-- WHERE user_id = ? AND is_deleted = false AND is_archived = false
+-- AND (upload_date, id) < (?, ?) ORDER BY upload_date DESC, id DESC
+CREATE INDEX idx_images_user_active_upload_date
+    ON images(user_id, is_deleted, is_archived, upload_date DESC, id DESC);
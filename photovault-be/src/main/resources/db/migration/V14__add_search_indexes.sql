@@ -0,0 +1,27 @@
+-- Indexed search over filenames and tag names.
+-- Trigram GIN indexes serve ILIKE '%term%' substring matches, the full-text index serves word matches
+-- in any order ("beach sunset" finds "IMG_sunset_at_the_beach.jpg").
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Filenames have no spaces, split on punctuation so each part becomes its own lexeme.
+-- Queries must call the same function for the expression index to be used.
+CREATE OR REPLACE FUNCTION photovault_filename_tsv(filename TEXT)
+    RETURNS tsvector
+    LANGUAGE SQL
+    IMMUTABLE
+    PARALLEL SAFE
+AS $$
+    SELECT to_tsvector('simple', regexp_replace(coalesce(filename, ''), '[^[:alnum:]]+', ' ', 'g'))
+$$;
+
+CREATE INDEX idx_images_original_filename_trgm
+    ON images USING GIN (original_filename gin_trgm_ops);
+
+CREATE INDEX idx_images_original_filename_tsv
+    ON images USING GIN (photovault_filename_tsv(original_filename));
+
+CREATE INDEX idx_tags_name_trgm
+    ON tags USING GIN (name gin_trgm_ops);
+
+-- Reverse lookup from a matched image to its tags is covered by the primary key,
+-- tag -> images by idx_image_tags_tag_id (V4).
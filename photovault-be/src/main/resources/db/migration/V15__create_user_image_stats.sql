@@ -0,0 +1,23 @@
+-- Per-user gallery counters, kept up to date by the application in the same transaction as the image change.
+-- Replaces four COUNT(*) queries per sidebar refresh with one primary-key lookup.
+CREATE TABLE user_image_stats (
+        user_id BIGINT PRIMARY KEY REFERENCES users(id) ON DELETE CASCADE,
+        active_count BIGINT NOT NULL DEFAULT 0,
+        favorite_count BIGINT NOT NULL DEFAULT 0,
+        archived_count BIGINT NOT NULL DEFAULT 0,
+        trash_count BIGINT NOT NULL DEFAULT 0,
+        total_bytes BIGINT NOT NULL DEFAULT 0,
+        updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Same predicates as the former ImageRepository count queries, total_bytes covers every stored image including trash
+INSERT INTO user_image_stats (user_id, active_count, favorite_count, archived_count, trash_count, total_bytes)
+SELECT u.id,
+       COUNT(i.id) FILTER (WHERE i.is_deleted = false AND i.is_archived = false),
+       COUNT(i.id) FILTER (WHERE i.is_favorite = true AND i.is_deleted = false),
+       COUNT(i.id) FILTER (WHERE i.is_archived = true AND i.is_deleted = false),
+       COUNT(i.id) FILTER (WHERE i.is_deleted = true),
+       COALESCE(SUM(i.file_size), 0)
+FROM users u
+LEFT JOIN images i ON i.user_id = u.id
+GROUP BY u.id;
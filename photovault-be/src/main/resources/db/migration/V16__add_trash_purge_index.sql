@@ -0,0 +1,8 @@
+-- Trash rows from before the soft delete trigger (V6) have no deleted_at, start their retention now
+UPDATE images SET deleted_at = COALESCE(updated_at, CURRENT_TIMESTAMP)
+WHERE is_deleted = TRUE AND deleted_at IS NULL;
+
+-- Serves the purge job's keyset walk: WHERE is_deleted = true AND deleted_at < ?
+-- AND (deleted_at, id) > (?, ?) ORDER BY deleted_at, id
+CREATE INDEX idx_images_trash_deleted_at
+    ON images(deleted_at, id) WHERE is_deleted = TRUE;
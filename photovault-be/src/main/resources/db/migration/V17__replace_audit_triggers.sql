@@ -0,0 +1,11 @@
+-- Auditing moves into the application (AuditService): only changed fields are recorded and rows are
+-- written in batches after commit, instead of two full row copies inside every UPDATE transaction.
+DROP TRIGGER IF EXISTS audit_images_trigger ON images;
+DROP TRIGGER IF EXISTS audit_users_trigger ON users;
+DROP TRIGGER IF EXISTS audit_collections_trigger ON collections;
+DROP TRIGGER IF EXISTS audit_image_states_trigger ON image_states;
+DROP FUNCTION IF EXISTS audit_trigger_function();
+
+-- The application allocates ids in blocks of 50 so batched inserts need no round trip per row
+ALTER SEQUENCE audit_logs_id_seq INCREMENT BY 50;
+SELECT setval('audit_logs_id_seq', COALESCE((SELECT MAX(id) FROM audit_logs), 0) + 50);
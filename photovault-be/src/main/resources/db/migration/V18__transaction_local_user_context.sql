@@ -0,0 +1,42 @@
+-- The user context is now set per transaction (set_config(..., true)) by the application, see
+-- UserContextJpaDialect. Outside such a transaction the setting is missing or empty, the policies
+-- then match no rows instead of failing on the ''::bigint cast.
+
+CREATE OR REPLACE FUNCTION current_app_user_id()
+RETURNS bigint AS $$
+    SELECT NULLIF(current_setting('app.current_user_id', true), '')::bigint;
+$$ LANGUAGE sql STABLE;
+
+DROP POLICY IF EXISTS images_user_policy ON images;
+CREATE POLICY images_user_policy ON images
+    FOR ALL TO PUBLIC
+    USING (user_id = current_app_user_id());
+
+DROP POLICY IF EXISTS images_admin_policy ON images;
+CREATE POLICY images_admin_policy ON images
+    FOR ALL TO PUBLIC
+    USING (
+        EXISTS (
+            SELECT 1 FROM users
+            WHERE id = current_app_user_id()
+            AND role = 'ADMIN'
+        )
+    );
+
+DROP POLICY IF EXISTS collections_user_policy ON collections;
+CREATE POLICY collections_user_policy ON collections
+    FOR ALL TO PUBLIC
+    USING (user_id = current_app_user_id());
+
+DROP POLICY IF EXISTS image_states_user_policy ON image_states;
+CREATE POLICY image_states_user_policy ON image_states
+    FOR ALL TO PUBLIC
+    USING (user_id = current_app_user_id());
+
+-- Transaction-local like the application path, a pooled connection never keeps another user's id
+CREATE OR REPLACE FUNCTION set_current_user_context(user_id bigint)
+RETURNS void AS $$
+BEGIN
+    PERFORM set_config('app.current_user_id', user_id::text, true);
+END;
+$$ LANGUAGE plpgsql;
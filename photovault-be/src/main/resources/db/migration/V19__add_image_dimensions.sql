@@ -0,0 +1,11 @@
+-- Header metadata captured at upload (see ImageMetadataExtractor), lets the gallery lay out tiles
+-- before any image has loaded. Existing rows stay NULL, the client falls back to its default tile.
+ALTER TABLE images ADD COLUMN width INTEGER;
+ALTER TABLE images ADD COLUMN height INTEGER;
+ALTER TABLE images ADD COLUMN orientation INTEGER;
+ALTER TABLE images ADD COLUMN taken_at TIMESTAMP;
+
+ALTER TABLE images ADD CONSTRAINT chk_images_dimensions
+    CHECK ((width IS NULL OR width > 0) AND (height IS NULL OR height > 0));
+ALTER TABLE images ADD CONSTRAINT chk_images_orientation
+    CHECK (orientation IS NULL OR orientation BETWEEN 1 AND 8);
@@ -0,0 +1,18 @@
+-- file_path now holds the storage key relative to the backend ("ab/cd/<stored name>"), not an absolute
+-- path on one node's disk. Paths already in the fan-out layout keep their last three segments; files
+-- still in the flat layout keep only their name until StorageLayoutMigrator moves them.
+UPDATE file_blobs
+SET file_path = regexp_replace(file_path, '^.*[/\\]([0-9a-f]{2})[/\\]([0-9a-f]{2})[/\\]([^/\\]+)$', '\1/\2/\3')
+WHERE file_path ~ '^([A-Za-z]:)?[/\\]' AND file_path ~ '[/\\][0-9a-f]{2}[/\\][0-9a-f]{2}[/\\][^/\\]+$';
+
+UPDATE file_blobs
+SET file_path = regexp_replace(file_path, '^.*[/\\]', '')
+WHERE file_path ~ '^([A-Za-z]:)?[/\\]';
+
+UPDATE images
+SET file_path = regexp_replace(file_path, '^.*[/\\]([0-9a-f]{2})[/\\]([0-9a-f]{2})[/\\]([^/\\]+)$', '\1/\2/\3')
+WHERE file_path ~ '^([A-Za-z]:)?[/\\]' AND file_path ~ '[/\\][0-9a-f]{2}[/\\][0-9a-f]{2}[/\\][^/\\]+$';
+
+UPDATE images
+SET file_path = regexp_replace(file_path, '^.*[/\\]', '')
+WHERE file_path ~ '^([A-Za-z]:)?[/\\]';
@@ -0,0 +1,20 @@
+-- Resumable uploads (see ResumableUploadService). Chunks have a fixed size per session, so a received
+-- chunk is just its index; the bytes themselves live in a staging file until the upload is finalized.
+CREATE TABLE upload_sessions (
+    id UUID PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    original_filename VARCHAR(255) NOT NULL,
+    content_type VARCHAR(100) NOT NULL,
+    total_size BIGINT NOT NULL CHECK (total_size > 0),
+    chunk_size INTEGER NOT NULL CHECK (chunk_size > 0),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_upload_sessions_updated_at ON upload_sessions(updated_at);
+
+CREATE TABLE upload_session_chunks (
+    session_id UUID NOT NULL REFERENCES upload_sessions(id) ON DELETE CASCADE,
+    chunk_index INTEGER NOT NULL CHECK (chunk_index >= 0),
+    PRIMARY KEY (session_id, chunk_index)
+);
@@ -0,0 +1,4 @@
+-- CRC-32 of the stored content, recorded at upload so ZIP exports can write STORED entries
+-- in a single pass. Existing blobs stay NULL until the same content is uploaded again;
+-- exports compute it on the fly for those.
+ALTER TABLE file_blobs ADD COLUMN crc32 BIGINT;
@@ -0,0 +1,13 @@
+-- Collection contents are listed newest-added first with keyset pagination on (added_at, image_id),
+-- and the listing's cover image is the first row of the same order.
+UPDATE collection_images SET added_at = CURRENT_TIMESTAMP WHERE added_at IS NULL;
+ALTER TABLE collection_images ALTER COLUMN added_at SET NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_collection_images_added
+    ON collection_images (collection_id, added_at DESC, image_id DESC);
+
+-- The primary key (collection_id, image_id) already serves lookups by collection
+DROP INDEX IF EXISTS idx_collection_images_collection_id;
+
+-- Deleting an image (trash purge) cascades into collection_images by image_id
+CREATE INDEX IF NOT EXISTS idx_collection_images_image_id ON collection_images (image_id);
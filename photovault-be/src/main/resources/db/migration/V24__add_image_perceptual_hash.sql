@@ -0,0 +1,12 @@
+-- 64-bit difference hash (dHash) of the decoded pixels, see PerceptualHasher. Unlike checksum_sha256 it
+-- survives resizing and recompression, so near-duplicates end up a few bits apart.
+-- NULL until computed: for rows from before this migration (backfilled by PerceptualHashBackfill) and for
+-- files ImageIO cannot decode (WebP).
+ALTER TABLE images ADD COLUMN dhash BIGINT;
+
+-- Set when hashing was tried and cannot succeed (undecodable or missing file), so neither the upload nor
+-- the backfill's next pass after a restart reads the file again. Clearing it queues the row once more.
+ALTER TABLE images ADD COLUMN dhash_attempted_at TIMESTAMP;
+
+-- Serves the backfill's keyset walk: WHERE dhash IS NULL AND dhash_attempted_at IS NULL AND id > ? ORDER BY id
+CREATE INDEX idx_images_dhash_pending ON images(id) WHERE dhash IS NULL AND dhash_attempted_at IS NULL;
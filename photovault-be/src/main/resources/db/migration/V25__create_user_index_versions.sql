@@ -0,0 +1,10 @@
+-- Change counters for the per-user in-memory indexes (TagIndexService, SimilarityIndexService).
+-- A transaction that changes what an index covers bumps the user's counter once; a node whose copy was
+-- built or last updated at an older version rebuilds it on the next query, so changes made through
+-- another instance show up there too.
+CREATE TABLE user_index_versions (
+        user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+        index_name VARCHAR(32) NOT NULL,
+        version BIGINT NOT NULL,
+        PRIMARY KEY (user_id, index_name)
+);
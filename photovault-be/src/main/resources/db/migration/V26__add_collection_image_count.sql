@@ -0,0 +1,13 @@
+-- Number of non-trashed images in each collection, kept up to date by the application in the same
+-- transaction as the membership or trash change (CollectionRepository). Replaces the per-row count over
+-- collection_images in the listing, which grew with the size of every listed collection.
+ALTER TABLE collections ADD COLUMN image_count BIGINT NOT NULL DEFAULT 0;
+
+-- Same predicate as the former LATERAL count
+UPDATE collections c SET image_count = counts.image_count
+FROM (SELECT ci.collection_id, count(*) AS image_count
+      FROM collection_images ci
+      JOIN images i ON i.id = ci.image_id
+      WHERE i.is_deleted = false
+      GROUP BY ci.collection_id) counts
+WHERE counts.collection_id = c.id;
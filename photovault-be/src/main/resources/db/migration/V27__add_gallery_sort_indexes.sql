@@ -0,0 +1,9 @@
+-- Keyset indexes for the other gallery orders ImageSort allows (filename, size), same shape as V13:
+-- WHERE user_id = ? AND is_deleted = false AND is_archived = false
+-- AND original_filename <= ? AND (original_filename < ? OR id < ?) ORDER BY original_filename DESC, id DESC
+-- Ascending orders read the same index backwards.
+CREATE INDEX IF NOT EXISTS idx_images_user_active_filename
+    ON images(user_id, is_deleted, is_archived, original_filename, id);
+
+CREATE INDEX IF NOT EXISTS idx_images_user_active_file_size
+    ON images(user_id, is_deleted, is_archived, file_size, id);
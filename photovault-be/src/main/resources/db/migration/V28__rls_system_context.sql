@@ -0,0 +1,28 @@
+-- Background jobs (trash purge, view count flush, stats reconciliation, hash backfill, storage layout
+-- migration, tag index warm-up) work across users and have no user context, so under the V18 policies
+-- they would see no rows once the application connects as a role that RLS applies to. They run inside
+-- SystemContext, whose transactions set app.system_context = 'on' (transaction-local, like the user
+-- context, see UserContextJpaDialect); these permissive policies let such transactions through.
+-- The setting is trusted exactly as far as app.current_user_id is: both are set by the application on
+-- its own connections. Deployments that want the split enforced by the database can instead run the
+-- jobs' connections as a BYPASSRLS role and drop these policies.
+
+CREATE OR REPLACE FUNCTION app_system_context()
+RETURNS boolean AS $$
+    SELECT COALESCE(current_setting('app.system_context', true) = 'on', false);
+$$ LANGUAGE sql STABLE;
+
+DROP POLICY IF EXISTS images_system_policy ON images;
+CREATE POLICY images_system_policy ON images
+    FOR ALL TO PUBLIC
+    USING (app_system_context());
+
+DROP POLICY IF EXISTS collections_system_policy ON collections;
+CREATE POLICY collections_system_policy ON collections
+    FOR ALL TO PUBLIC
+    USING (app_system_context());
+
+DROP POLICY IF EXISTS image_states_system_policy ON image_states;
+CREATE POLICY image_states_system_policy ON image_states
+    FOR ALL TO PUBLIC
+    USING (app_system_context());
@@ -0,0 +1,53 @@
+package com.internship.photovault.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ImageCursorTests {
+
+    @Test
+    void valuesSurviveTheRoundTrip() {
+        assertEquals(new ImageCursor(ImageSort.UPLOAD_DATE_DESC, LocalDateTime.of(2024, 5, 1, 10, 30), 42L),
+                roundTrip(new ImageCursor(ImageSort.UPLOAD_DATE_DESC, LocalDateTime.of(2024, 5, 1, 10, 30), 42L)));
+        assertEquals(new ImageCursor(ImageSort.SIZE_ASC, 1024L, 7L),
+                roundTrip(new ImageCursor(ImageSort.SIZE_ASC, 1024L, 7L)));
+        // separators inside a filename stay part of it
+        assertEquals(new ImageCursor(ImageSort.FILENAME_ASC, "a\nb.jpg", 3L),
+                roundTrip(new ImageCursor(ImageSort.FILENAME_ASC, "a\nb.jpg", 3L)));
+    }
+
+    @Test
+    void missingValueIsNotAFilename() {
+        ImageCursor missing = roundTrip(new ImageCursor(ImageSort.FILENAME_ASC, null, 5L));
+        assertNull(missing.value());
+        assertEquals(5L, missing.id());
+
+        assertEquals("null", roundTrip(new ImageCursor(ImageSort.FILENAME_ASC, "null", 5L)).value());
+        assertEquals("", roundTrip(new ImageCursor(ImageSort.FILENAME_DESC, "", 5L)).value());
+    }
+
+    @Test
+    void missingUploadDateDecodesToNull() {
+        assertNull(roundTrip(new ImageCursor(ImageSort.UPLOAD_DATE_ASC, null, 9L)).value());
+    }
+
+    @Test
+    void foreignOrBrokenCursorsAreRejected() {
+        String token = new ImageCursor(ImageSort.SIZE_DESC, 10L, 1L).encode();
+
+        assertThrows(IllegalArgumentException.class, () -> ImageCursor.decode(token, ImageSort.SIZE_ASC));
+        assertThrows(IllegalArgumentException.class, () -> ImageCursor.decode("not a cursor!", ImageSort.SIZE_ASC));
+        assertThrows(IllegalArgumentException.class,
+                () -> ImageCursor.decode(new ImageCursor(ImageSort.UPLOAD_DATE_DESC, "yesterday", 1L).encode(),
+                        ImageSort.UPLOAD_DATE_DESC));
+    }
+
+    private static ImageCursor roundTrip(ImageCursor cursor) {
+        return ImageCursor.decode(cursor.encode(), cursor.sort());
+    }
+}
@@ -0,0 +1,171 @@
+package com.internship.photovault.service;
+
+import com.internship.photovault.config.FileValidationConfig;
+import com.internship.photovault.entity.FileBlob;
+import com.internship.photovault.entity.Image;
+import com.internship.photovault.entity.User;
+import com.internship.photovault.repository.CollectionRepository;
+import com.internship.photovault.repository.FileBlobRepository;
+import com.internship.photovault.repository.ImageRepository;
+import com.internship.photovault.repository.UserRepository;
+import com.internship.photovault.storage.FileSystemStorageBackend;
+import com.internship.photovault.storage.StorageLayout;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Deleting the last image of a blob, permanently or by the trash purge. images.blob_id is a plain
+// foreign key, so the mocked blob row refuses to go while an image row referencing it is still there.
+class BlobReleaseOrderTests {
+
+    private static final long USER = 7;
+    private static final long BLOB = 3;
+    private static final String CHECKSUM = "0123456789abcdef";
+    private static final String STORED_FILENAME = CHECKSUM + ".jpg";
+
+    @TempDir
+    Path storage;
+
+    private final SynchronizingTransactionManager transactionManager = new SynchronizingTransactionManager();
+    private ImageRepository imageRepository;
+    private FileBlobRepository fileBlobRepository;
+    private BlobStorageService blobStorageService;
+    private FileSystemStorageBackend storageBackend;
+
+    // image rows in the "database" referencing the blob, flushed deletes only
+    private final Set<Long> imageRows = new HashSet<>();
+    private final Set<Long> pendingDeletes = new HashSet<>();
+    private boolean blobRowDeleted;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storageBackend = new FileSystemStorageBackend(storage.toString());
+        Path staged = Files.writeString(storage.resolve("staged"), "content");
+        storageBackend.put(StorageLayout.keyFor(STORED_FILENAME), staged, "image/jpeg");
+
+        imageRepository = mock(ImageRepository.class);
+        doAnswer(invocation -> pendingDeletes.add(((Image) invocation.getArgument(0)).getId()))
+                .when(imageRepository).delete(any(Image.class));
+        doAnswer(invocation -> {
+            imageRows.removeAll(pendingDeletes);
+            pendingDeletes.clear();
+            return null;
+        }).when(imageRepository).flush();
+        when(imageRepository.deleteAllByIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            imageRows.removeAll(ids);
+            return ids.size();
+        });
+
+        fileBlobRepository = mock(FileBlobRepository.class);
+        when(fileBlobRepository.decrementRefCount(eq(BLOB), anyLong())).thenReturn(1);
+        when(fileBlobRepository.deleteIfUnreferenced(BLOB)).thenAnswer(invocation -> {
+            if (!imageRows.isEmpty()) {
+                throw new DataIntegrityViolationException("images_blob_id_fkey");
+            }
+            blobRowDeleted = true;
+            return 1;
+        });
+        when(fileBlobRepository.findByChecksumSha256(CHECKSUM))
+                .thenAnswer(invocation -> blobRowDeleted ? Optional.empty() : Optional.of(blob()));
+        when(fileBlobRepository.findAllById(any())).thenAnswer(invocation -> List.of(blob()));
+
+        blobStorageService = new BlobStorageService(storageBackend, fileBlobRepository,
+                mock(ThumbnailService.class), transactionManager);
+    }
+
+    @Test
+    void deletingTheOnlyReferenceRemovesImageBlobAndFile() {
+        Image image = image(11, false);
+        imageRows.add(image.getId());
+        when(imageRepository.findById(image.getId())).thenReturn(Optional.of(image));
+        when(imageRepository.lockOwnedImageStates(eq(USER), anyCollection()))
+                .thenReturn(List.<Object[]>of(new Object[]{image.getId(), false, false, true, 100L}));
+        ImageService imageService = new ImageService(storage.toString(), imageRepository, new FileValidationConfig(),
+                mock(UserRepository.class), mock(ThumbnailService.class), blobStorageService,
+                mock(ExecutorService.class), transactionManager, mock(UserImageStatsService.class), 1000,
+                mock(AuditService.class), new SimpleMeterRegistry(), new ImageMetadataExtractor(), storageBackend,
+                mock(TagIndexService.class), mock(PerceptualHasher.class), mock(SimilarityIndexService.class),
+                mock(CollectionRepository.class));
+
+        new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> imageService.deletePermanently(image.getId(), user()));
+
+        assertTrue(imageRows.isEmpty());
+        assertTrue(blobRowDeleted);
+        assertFalse(storageBackend.exists(StorageLayout.keyFor(STORED_FILENAME)));
+    }
+
+    @Test
+    void purgeChunkHoldingTheLastReferencesRemovesImagesBlobAndFile() {
+        Image first = image(11, true);
+        Image second = image(12, true);
+        imageRows.addAll(List.of(first.getId(), second.getId()));
+        when(imageRepository.lockExpiredTrashAfter(any(), any(), anyLong(), anyInt()))
+                .thenReturn(List.of(first, second), List.of());
+        TrashPurgeService purgeService = new TrashPurgeService(imageRepository, fileBlobRepository, blobStorageService,
+                mock(ThumbnailService.class), mock(UserImageStatsService.class), mock(AuditService.class),
+                transactionManager, new SimpleMeterRegistry(), storageBackend, mock(TagIndexService.class),
+                mock(SimilarityIndexService.class), true, 30, 200, 1);
+
+        assertEquals(2, purgeService.purgeExpired());
+
+        assertTrue(imageRows.isEmpty());
+        assertTrue(blobRowDeleted);
+        assertFalse(storageBackend.exists(StorageLayout.keyFor(STORED_FILENAME)));
+    }
+
+    private Image image(long id, boolean trashed) {
+        Image image = new Image();
+        image.setId(id);
+        image.setUser(user());
+        image.setBlob(blob());
+        image.setStoredFilename(STORED_FILENAME);
+        image.setOriginalFilename("IMG_" + id + ".jpg");
+        image.setFileSize(100L);
+        image.setIsDeleted(trashed);
+        image.setDeletedAt(trashed ? LocalDateTime.now().minusDays(60) : null);
+        return image;
+    }
+
+    private static FileBlob blob() {
+        FileBlob blob = new FileBlob();
+        blob.setId(BLOB);
+        blob.setChecksumSha256(CHECKSUM);
+        blob.setStoredFilename(STORED_FILENAME);
+        return blob;
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId(USER);
+        return user;
+    }
+}
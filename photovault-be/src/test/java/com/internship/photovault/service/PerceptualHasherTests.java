@@ -0,0 +1,217 @@
+package com.internship.photovault.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.OptionalLong;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PerceptualHasherTests {
+
+    private final PerceptualHasher hasher = new PerceptualHasher();
+
+    // Stored pixels for each EXIF orientation are built from the upright picture with the transform the
+    // orientation undoes; hashing them with the tag must give the upright picture's hash
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 4, 5, 6, 7, 8})
+    void orientationIsAppliedBeforeHashing(int orientation) throws IOException {
+        BufferedImage upright = scene(180, 120, 1);
+        BufferedImage stored = switch (orientation) {
+            // mirrored horizontally
+            case 2 -> flipHorizontal(upright);
+            // rotated 180
+            case 3 -> flipVertical(flipHorizontal(upright));
+            // mirrored vertically
+            case 4 -> flipVertical(upright);
+            // mirrored along the main diagonal, its own inverse
+            case 5 -> transpose(upright);
+            // displayed after a clockwise turn, so stored turned counter-clockwise
+            case 6 -> rotateCounterClockwise(upright);
+            // mirrored along the anti-diagonal, its own inverse
+            case 7 -> flipVertical(flipHorizontal(transpose(upright)));
+            // displayed after a counter-clockwise turn, so stored turned clockwise
+            case 8 -> rotateClockwise(upright);
+            default -> upright;
+        };
+
+        long expected = hash(png(upright), 1);
+
+        assertEquals(expected, hash(png(stored), orientation));
+        if (orientation != 1) {
+            // the stored pixels alone do look different, the tag is what makes them match
+            assertNotEquals(expected, hash(png(stored), 1));
+        }
+    }
+
+    @Test
+    void missingOrientationMeansUpright() throws IOException {
+        byte[] image = png(scene(180, 120, 1));
+
+        assertEquals(hash(image, 1), hasher.hash(new ByteArrayInputStream(image), null).getAsLong());
+    }
+
+    @Test
+    void resizedRecompressedCopyStaysCloseWhileAnotherPictureDoesNot() throws IOException {
+        BufferedImage original = scene(1200, 900, 7);
+        long originalHash = hash(jpeg(original, 0.95f), 1);
+
+        long copyHash = hash(jpeg(resize(original, 400, 300), 0.5f), 1);
+        long otherHash = hash(jpeg(scene(1200, 900, 8), 0.95f), 1);
+
+        assertTrue(PerceptualHasher.distance(originalHash, copyHash) <= 5,
+                "copy is " + PerceptualHasher.distance(originalHash, copyHash) + " bits away");
+        assertTrue(PerceptualHasher.distance(originalHash, otherHash) > 16,
+                "unrelated picture is only " + PerceptualHasher.distance(originalHash, otherHash) + " bits away");
+    }
+
+    @Test
+    void losslessAndLossyCopiesOfTheSamePictureMatch() throws IOException {
+        BufferedImage original = scene(640, 480, 3);
+
+        assertTrue(PerceptualHasher.distance(hash(png(original), 1), hash(jpeg(original, 0.6f), 1)) <= 3);
+    }
+
+    @Test
+    void imagesSmallerThanTheGridAreNotHashed() throws IOException {
+        assertTrue(hasher.hash(new ByteArrayInputStream(png(scene(8, 8, 1))), 1).isEmpty());
+        // turned sideways the 9-pixel edge becomes the height, still too narrow
+        assertTrue(hasher.hash(new ByteArrayInputStream(png(scene(9, 8, 1))), 6).isEmpty());
+    }
+
+    @Test
+    void unknownFormatsAreNotHashed() throws IOException {
+        byte[] notAnImage = new byte[4096];
+        new Random(1).nextBytes(notAnImage);
+
+        assertTrue(hasher.hash(new ByteArrayInputStream(notAnImage), 1).isEmpty());
+    }
+
+    @Test
+    void distanceCountsDifferingBits() {
+        assertEquals(0, PerceptualHasher.distance(0x1234L, 0x1234L));
+        assertEquals(64, PerceptualHasher.distance(0L, -1L));
+        assertEquals(3, PerceptualHasher.distance(0b1011L, 0b0000L));
+    }
+
+    private long hash(byte[] image, int orientation) throws IOException {
+        OptionalLong hash = hasher.hash(new ByteArrayInputStream(image), orientation);
+        assertTrue(hash.isPresent());
+        return hash.getAsLong();
+    }
+
+    // Smooth seeded waves under a few seeded blobs: coarse structure in both directions like a photo,
+    // so neighbouring grid cells are rarely close in brightness, and nothing symmetric
+    private static BufferedImage scene(int width, int height, long seed) {
+        Random random = new Random(seed);
+        double fx = 2 + 4 * random.nextDouble();
+        double fy = 1 + 3 * random.nextDouble();
+        double phase = 2 * Math.PI * random.nextDouble();
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double u = (double) x / width;
+                double v = (double) y / height;
+                double wave = Math.sin(fx * u * Math.PI + phase) * Math.cos(fy * v * Math.PI);
+                int level = Math.max(0, Math.min(255, (int) (128 + 90 * wave + 30 * (u - v))));
+                image.setRGB(x, y, new Color(level, Math.max(0, level - 30), Math.min(255, level + 20)).getRGB());
+            }
+        }
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        for (int i = 0; i < 6; i++) {
+            g.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+            int w = width / 6 + random.nextInt(width / 4);
+            int h = height / 6 + random.nextInt(height / 4);
+            g.fillOval(random.nextInt(width) - w / 2, random.nextInt(height) - h / 2, w, h);
+        }
+        g.dispose();
+        return image;
+    }
+
+    private static BufferedImage resize(BufferedImage source, int width, int height) {
+        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = resized.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(source, 0, 0, width, height, null);
+        g.dispose();
+        return resized;
+    }
+
+    private static BufferedImage flipHorizontal(BufferedImage source) {
+        return remap(source, source.getWidth(), source.getHeight(),
+                (x, y) -> source.getRGB(source.getWidth() - 1 - x, y));
+    }
+
+    private static BufferedImage flipVertical(BufferedImage source) {
+        return remap(source, source.getWidth(), source.getHeight(),
+                (x, y) -> source.getRGB(x, source.getHeight() - 1 - y));
+    }
+
+    private static BufferedImage transpose(BufferedImage source) {
+        return remap(source, source.getHeight(), source.getWidth(), (x, y) -> source.getRGB(y, x));
+    }
+
+    // the bottom-left corner ends up top-left
+    private static BufferedImage rotateClockwise(BufferedImage source) {
+        return remap(source, source.getHeight(), source.getWidth(),
+                (x, y) -> source.getRGB(y, source.getHeight() - 1 - x));
+    }
+
+    // the top-right corner ends up top-left
+    private static BufferedImage rotateCounterClockwise(BufferedImage source) {
+        return remap(source, source.getHeight(), source.getWidth(),
+                (x, y) -> source.getRGB(source.getWidth() - 1 - y, x));
+    }
+
+    private interface Pixel {
+        int at(int x, int y);
+    }
+
+    private static BufferedImage remap(BufferedImage source, int width, int height, Pixel pixel) {
+        BufferedImage target = new BufferedImage(width, height, source.getType());
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                target.setRGB(x, y, pixel.at(x, y));
+            }
+        }
+        return target;
+    }
+
+    private static byte[] png(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private static byte[] jpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
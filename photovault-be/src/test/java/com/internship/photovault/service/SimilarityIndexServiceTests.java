@@ -0,0 +1,210 @@
+package com.internship.photovault.service;
+
+import com.internship.photovault.service.SimilarityIndexService.HashIndex;
+import com.internship.photovault.service.SimilarityIndexService.Match;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The multi-index hash table behind SimilarityIndexService, checked against a linear scan
+class SimilarityIndexServiceTests {
+
+    private static final Comparator<Match> ORDER = Comparator.comparingLong(Match::imageId)
+            .thenComparingInt(Match::distance);
+
+    @Test
+    void searchMatchesALinearScanForEveryRadius() {
+        Random random = new Random(42);
+        // clusters of near copies among unrelated hashes, so every radius has something to find
+        int count = 20_000;
+        long[] hashes = new long[count];
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            hashes[i] = i % 10 == 0 ? random.nextLong() : flip(hashes[i - i % 10], random.nextInt(17), random);
+            ids[i] = i + 1;
+        }
+        HashIndex index = new HashIndex(hashes.clone(), ids.clone(), count);
+
+        for (int radius = 0; radius <= SimilarityIndexService.MAX_DISTANCE; radius++) {
+            for (int query = 0; query < 25; query++) {
+                long near = hashes[random.nextInt(count)];
+                long hash = query % 2 == 0 ? near : flip(near, radius, random);
+                assertEquals(linearScan(hashes, ids, count, hash, radius), search(index, hash, radius),
+                        "radius " + radius);
+            }
+        }
+    }
+
+    // Two hashes r bits apart with the bits spread evenly agree to within r / 4 bits in their closest
+    // chunk, exactly the masks probed; one bit more than the search radius must not be found
+    @Test
+    void evenlySpreadDifferencesAreFoundAtTheEdgeOfTheRadius() {
+        Random random = new Random(7);
+        long[] hashes = new long[2000];
+        long[] ids = new long[2000];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = random.nextLong();
+            ids[i] = i + 1;
+        }
+        for (int radius = 0; radius <= SimilarityIndexService.MAX_DISTANCE; radius++) {
+            long query = random.nextLong();
+            long target = query ^ spreadBits(radius);
+            hashes[0] = target;
+            HashIndex index = new HashIndex(hashes.clone(), ids.clone(), hashes.length);
+
+            assertTrue(search(index, query, radius).contains(new Match(1, radius)), "radius " + radius);
+            if (radius > 0) {
+                assertTrue(search(index, query, radius - 1).stream().noneMatch(match -> match.imageId() == 1),
+                        "radius " + (radius - 1));
+            }
+        }
+    }
+
+    @Test
+    void searchOnlyExaminesAFractionOfALargeIndex() {
+        Random random = new Random(3);
+        int count = 100_000;
+        long[] hashes = new long[count];
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            hashes[i] = random.nextLong();
+            ids[i] = i + 1;
+        }
+        HashIndex index = new HashIndex(hashes, ids, count);
+
+        int examined = index.search(random.nextLong(), 8, new ArrayList<>());
+
+        assertTrue(examined < count / 20, examined + " of " + count + " examined");
+    }
+
+    @Test
+    void recentAdditionsAreScannedUntilTheTailIsReindexed() {
+        Random random = new Random(11);
+        HashIndex index = new HashIndex(new long[16], new long[16], 0);
+        List<long[]> entries = new ArrayList<>();
+        for (int i = 1; i <= SimilarityIndexService.MAX_UNINDEXED; i++) {
+            long hash = random.nextLong();
+            index.add(hash, i);
+            entries.add(new long[]{hash, i});
+        }
+        assertEquals(0, index.indexed);
+        assertEquals(SimilarityIndexService.MAX_UNINDEXED, index.size);
+        for (long[] entry : entries) {
+            assertTrue(search(index, entry[0], 0).contains(new Match(entry[1], 0)));
+        }
+
+        index.add(random.nextLong(), SimilarityIndexService.MAX_UNINDEXED + 1);
+
+        assertEquals(index.size, index.indexed);
+        for (long[] entry : entries) {
+            assertTrue(search(index, entry[0], 0).contains(new Match(entry[1], 0)));
+        }
+    }
+
+    @Test
+    void removedEntriesDisappearAndAreCompactedAway() {
+        Random random = new Random(5);
+        int count = 4000;
+        long[] hashes = new long[count];
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            hashes[i] = random.nextLong();
+            ids[i] = i + 1;
+        }
+        HashIndex index = new HashIndex(hashes.clone(), ids.clone(), count);
+
+        // the threshold is more than MAX_UNINDEXED and more than a quarter of the slots
+        int toRemove = Math.max(SimilarityIndexService.MAX_UNINDEXED, count / 4);
+        for (int i = 0; i < toRemove; i++) {
+            long removedId = ids[i];
+            index.remove(hashes[i], removedId);
+            assertTrue(search(index, hashes[i], 0).stream().noneMatch(match -> match.imageId() == removedId));
+        }
+        assertEquals(toRemove, index.removed);
+        assertEquals(count, index.size);
+
+        index.remove(hashes[toRemove], ids[toRemove]);
+
+        assertEquals(0, index.removed);
+        assertEquals(count - toRemove - 1, index.size);
+        assertEquals(index.size, index.indexed);
+        long[] liveHashes = Arrays.copyOfRange(hashes, toRemove + 1, count);
+        long[] liveIds = Arrays.copyOfRange(ids, toRemove + 1, count);
+        for (int query = 0; query < 20; query++) {
+            long hash = flip(hashes[random.nextInt(count)], 6, random);
+            assertEquals(linearScan(liveHashes, liveIds, liveIds.length, hash, 12), search(index, hash, 12));
+        }
+    }
+
+    @Test
+    void addingTheSameEntryTwiceKeepsOneCopy() {
+        long hash = 0x0123_4567_89AB_CDEFL;
+        HashIndex index = new HashIndex(new long[]{hash}, new long[]{1}, 1);
+
+        // indexed copy, then one in the scanned tail
+        index.add(hash, 1);
+        index.add(hash, 2);
+        index.add(hash, 2);
+
+        assertEquals(2, index.size);
+        assertEquals(List.of(new Match(1, 0), new Match(2, 0)), search(index, hash, 0));
+    }
+
+    @Test
+    void removingAnUnknownEntryChangesNothing() {
+        long hash = 0x0F0F_0F0F_0F0F_0F0FL;
+        HashIndex index = new HashIndex(new long[]{hash}, new long[]{1}, 1);
+
+        index.remove(hash, 2);
+        index.remove(~hash, 1);
+
+        assertEquals(0, index.removed);
+        assertEquals(List.of(new Match(1, 0)), search(index, hash, 0));
+    }
+
+    private static List<Match> search(HashIndex index, long hash, int radius) {
+        List<Match> matches = new ArrayList<>();
+        index.search(hash, radius, matches);
+        matches.sort(ORDER);
+        return matches;
+    }
+
+    private static List<Match> linearScan(long[] hashes, long[] ids, int count, long hash, int radius) {
+        Set<Long> seen = new HashSet<>();
+        List<Match> matches = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int distance = PerceptualHasher.distance(hash, hashes[i]);
+            if (distance <= radius && seen.add(ids[i])) {
+                matches.add(new Match(ids[i], distance));
+            }
+        }
+        matches.sort(ORDER);
+        return matches;
+    }
+
+    private static long flip(long hash, int bits, Random random) {
+        long flipped = hash;
+        while (PerceptualHasher.distance(hash, flipped) < bits) {
+            flipped ^= 1L << random.nextInt(64);
+        }
+        return flipped;
+    }
+
+    // radius bits, dealt round-robin over the four 16-bit chunks
+    private static long spreadBits(int radius) {
+        long mask = 0;
+        for (int bit = 0; bit < radius; bit++) {
+            mask |= 1L << ((bit % 4) * 16 + bit / 4);
+        }
+        return mask;
+    }
+}
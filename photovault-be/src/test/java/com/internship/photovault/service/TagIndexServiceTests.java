@@ -0,0 +1,359 @@
+package com.internship.photovault.service;
+
+import com.internship.photovault.entity.Image;
+import com.internship.photovault.entity.User;
+import com.internship.photovault.repository.TagRepository;
+import com.internship.photovault.repository.UserIndexVersionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// TagIndexService over a mocked TagRepository; filters are checked against a plain scan of the same rows
+class TagIndexServiceTests {
+
+    private static final long USER = 7;
+    private static final String[] TAGS = {"beach", "family", "sunset", "dog", "city", "night"};
+
+    private TagRepository tagRepository;
+    private UserIndexVersionRepository versionRepository;
+    private TagIndexService tagIndexService;
+
+    // id -> {favorite, archived, deleted} and id -> tag names, what the database holds
+    private final Map<Long, boolean[]> flags = new LinkedHashMap<>();
+    private final Map<Long, Set<String>> tags = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        tagRepository = mock(TagRepository.class);
+        versionRepository = mock(UserIndexVersionRepository.class);
+        when(tagRepository.findImageFlags(USER)).thenAnswer(invocation -> flagRows());
+        when(tagRepository.findImageTags(USER)).thenAnswer(invocation -> tagRows());
+        tagIndexService = new TagIndexService(tagRepository, new IndexVersions(versionRepository),
+                new NoOpTransactionManager(), new SimpleMeterRegistry(), false);
+    }
+
+    @Test
+    void tagAndFlagFiltersMatchAPlainScan() {
+        randomLibrary(600, 1);
+        Random random = new Random(2);
+        Boolean[] flagValues = {null, true, false};
+
+        for (int i = 0; i < 300; i++) {
+            TagIndexService.Filter filter = new TagIndexService.Filter(randomTags(random), randomTags(random),
+                    randomTags(random), flagValues[random.nextInt(3)], flagValues[random.nextInt(3)],
+                    flagValues[random.nextInt(3)]);
+            List<Long> expected = scan(filter);
+
+            TagIndexService.Result result = tagIndexService.query(USER, filter, null, 10_000);
+
+            assertEquals(expected, result.ids(), filter.toString());
+            assertEquals(expected.size(), result.total());
+            assertEquals(facets(expected), result.facets(), filter.toString());
+        }
+    }
+
+    @Test
+    void allAnyAndNoneCombine() {
+        image(1, false, false, false, "beach", "sunset");
+        image(2, true, false, false, "beach");
+        image(3, false, true, false, "sunset", "dog");
+        image(4, false, false, true, "beach", "dog");
+        image(5, true, false, false);
+
+        assertEquals(List.of(1L), ids(filter(Set.of("beach", "sunset"), null, null, null, null, null)));
+        assertEquals(List.of(4L, 3L, 2L, 1L), ids(filter(null, Set.of("beach", "dog"), null, null, null, null)));
+        assertEquals(List.of(5L, 3L), ids(filter(null, null, Set.of("beach"), null, null, null)));
+        assertEquals(List.of(2L), ids(filter(Set.of("beach"), null, Set.of("sunset"), null, null, false)));
+        assertEquals(List.of(5L, 2L), ids(filter(null, null, null, true, null, null)));
+        assertEquals(List.of(3L), ids(filter(null, Set.of("dog"), null, null, true, false)));
+        assertEquals(List.of(4L), ids(filter(null, null, null, null, null, true)));
+        // an unknown tag matches nothing when required and everything when excluded
+        assertEquals(List.of(), ids(filter(Set.of("mountain"), null, null, null, null, null)));
+        assertEquals(List.of(5L, 4L, 3L, 2L, 1L), ids(filter(null, null, Set.of("mountain"), null, null, null)));
+    }
+
+    @Test
+    void facetsCountTagsAmongTheMatchesMostUsedFirst() {
+        image(1, false, false, false, "beach", "sunset");
+        image(2, true, false, false, "beach");
+        image(3, true, false, false, "sunset", "dog");
+
+        assertEquals(List.of(Map.entry("beach", 2L), Map.entry("sunset", 2L), Map.entry("dog", 1L)),
+                List.copyOf(tagIndexService.tagCounts(USER, null, null, null).entrySet()));
+        assertEquals(Map.of("beach", 1L, "sunset", 1L, "dog", 1L), tagIndexService.tagCounts(USER, true, null, null));
+    }
+
+    @Test
+    void cursorWalksEveryMatchNewestFirst() {
+        randomLibrary(500, 3);
+        TagIndexService.Filter filter = filter(null, Set.of("beach", "dog"), null, null, null, false);
+        List<Long> expected = scan(filter);
+
+        List<Long> walked = new ArrayList<>();
+        Long afterId = null;
+        int pages = 0;
+        do {
+            TagIndexService.Result page = tagIndexService.query(USER, filter, afterId, 7);
+            walked.addAll(page.ids());
+            afterId = page.nextAfterId();
+            pages++;
+        } while (afterId != null);
+
+        assertEquals(expected, walked);
+        assertEquals((expected.size() + 6) / 7, pages);
+    }
+
+    @Test
+    void cursorStartsBelowAnyAfterId() {
+        image(10, false, false, false);
+        image(20, false, false, false);
+        image(30, false, false, false);
+        TagIndexService.Filter all = filter(null, null, null, null, null, null);
+
+        // an id that is not in the set, one past the end, and the lowest match
+        assertEquals(List.of(20L, 10L), tagIndexService.query(USER, all, 25L, 10).ids());
+        assertEquals(List.of(30L, 20L), tagIndexService.query(USER, all, 1000L, 2).ids());
+        assertEquals(20L, tagIndexService.query(USER, all, 1000L, 2).nextAfterId());
+        assertEquals(List.of(), tagIndexService.query(USER, all, 10L, 10).ids());
+        assertEquals(List.of(), tagIndexService.query(USER, all, 0L, 10).ids());
+        // a page that ends exactly on the last match has no next cursor
+        assertEquals(List.of(10L), tagIndexService.query(USER, all, 11L, 1).ids());
+        assertNull(tagIndexService.query(USER, all, 11L, 1).nextAfterId());
+    }
+
+    @Test
+    void changesOutsideATransactionApplyToTheBuiltIndex() {
+        image(1, false, false, false, "beach");
+        image(2, false, false, false);
+        tagIndexService.query(USER, filter(null, null, null, null, null, null), null, 10);
+
+        tagIndexService.tagsAdded(USER, List.<long[]>of(new long[]{2, tagId("beach")}), Map.of());
+        tagIndexService.flagChanged(USER, List.of(1L), TagIndexService.Flag.FAVORITE, true);
+        Image saved = new Image();
+        saved.setId(3L);
+        saved.setUser(user());
+        saved.setIsDeleted(true);
+        tagIndexService.imageSaved(saved);
+        tagIndexService.imagesRemoved(USER, List.of(2L));
+
+        assertEquals(List.of(1L), ids(filter(Set.of("beach"), null, null, null, null, null)));
+        assertEquals(List.of(1L), ids(filter(null, null, null, true, null, null)));
+        assertEquals(List.of(3L), ids(filter(null, null, null, null, null, true)));
+        // built once, everything after that was applied in place
+        verify(tagRepository, times(1)).findImageFlags(USER);
+    }
+
+    // A change that commits while the snapshot is read may be missing from it, the build starts over
+    @Test
+    void buildOverlappingAChangeIsRedone() {
+        image(1, false, false, false);
+        AtomicInteger loads = new AtomicInteger();
+        when(tagRepository.findImageFlags(USER)).thenAnswer(invocation -> {
+            List<Object[]> rows = flagRows();
+            if (loads.incrementAndGet() == 1) {
+                // committed after the first snapshot was taken
+                flags.get(1L)[0] = true;
+                tagIndexService.flagChanged(USER, List.of(1L), TagIndexService.Flag.FAVORITE, true);
+            }
+            return rows;
+        });
+
+        assertEquals(List.of(1L), ids(filter(null, null, null, true, null, null)));
+        assertEquals(2, loads.get());
+        // the second build was clean and stays
+        ids(filter(null, null, null, null, null, null));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void buildThatNeverSettlesServesTheQueryAndIsDropped() {
+        image(1, false, false, false);
+        AtomicInteger loads = new AtomicInteger();
+        when(tagRepository.findImageFlags(USER)).thenAnswer(invocation -> {
+            loads.incrementAndGet();
+            tagIndexService.flagChanged(USER, List.of(1L), TagIndexService.Flag.ARCHIVED, false);
+            return flagRows();
+        });
+
+        assertEquals(List.of(1L), ids(filter(null, null, null, null, null, null)));
+        assertEquals(3, loads.get());
+
+        ids(filter(null, null, null, null, null, null));
+        assertEquals(6, loads.get());
+    }
+
+    // Another node committed a change: the counter moved on without this node applying anything
+    @Test
+    void indexBehindTheCommittedVersionIsRebuilt() {
+        image(1, false, false, false);
+        when(versionRepository.findIndexVersion(anyLong(), anyString())).thenReturn(4L);
+        assertEquals(List.of(), ids(filter(null, null, null, true, null, null)));
+        ids(filter(null, null, null, true, null, null));
+        verify(tagRepository, times(1)).findImageFlags(USER);
+
+        flags.get(1L)[0] = true;
+        when(versionRepository.findIndexVersion(anyLong(), anyString())).thenReturn(5L);
+
+        assertEquals(List.of(1L), ids(filter(null, null, null, true, null, null)));
+        verify(tagRepository, times(2)).findImageFlags(USER);
+    }
+
+    // Statements that changed no rows leave the counter alone, other nodes keep their copies
+    @Test
+    void emptyTagChangesDoNotBumpTheVersion() {
+        when(versionRepository.bumpIndexVersion(anyLong(), anyString())).thenReturn(1L);
+        TransactionTemplate transaction = new TransactionTemplate(new SynchronizingTransactionManager());
+
+        transaction.executeWithoutResult(status -> {
+            tagIndexService.tagsAdded(USER, List.of(), Map.of());
+            tagIndexService.tagsRemoved(USER, List.of());
+        });
+        verify(versionRepository, never()).bumpIndexVersion(anyLong(), anyString());
+
+        transaction.executeWithoutResult(status ->
+                tagIndexService.tagsAdded(USER, List.of(new long[]{1, 100}), Map.of(100L, "beach")));
+        verify(versionRepository, times(1)).bumpIndexVersion(USER, "tags");
+    }
+
+    @Test
+    void advancingOnlyFollowsTheNextVersion() {
+        assertEquals(5, IndexVersions.advance(4, 5));
+        // already in the snapshot the copy was built from
+        assertEquals(5, IndexVersions.advance(5, 5));
+        assertEquals(6, IndexVersions.advance(6, 5));
+        // a version in between was committed elsewhere, the copy stays behind
+        assertEquals(4, IndexVersions.advance(4, 6));
+        assertEquals(4, IndexVersions.advance(4, IndexVersions.UNVERSIONED));
+    }
+
+    // --- fixtures ---
+
+    private void image(long id, boolean favorite, boolean archived, boolean deleted, String... names) {
+        flags.put(id, new boolean[]{favorite, archived, deleted});
+        tags.put(id, Set.of(names));
+    }
+
+    private void randomLibrary(int count, long seed) {
+        Random random = new Random(seed);
+        long id = 0;
+        for (int i = 0; i < count; i++) {
+            id += 1 + random.nextInt(3);
+            List<String> names = new ArrayList<>();
+            for (String tag : TAGS) {
+                if (random.nextInt(3) == 0) {
+                    names.add(tag);
+                }
+            }
+            image(id, random.nextInt(4) == 0, random.nextInt(5) == 0, random.nextInt(6) == 0,
+                    names.toArray(String[]::new));
+        }
+    }
+
+    private List<Object[]> flagRows() {
+        List<Object[]> rows = new ArrayList<>();
+        flags.forEach((id, values) -> rows.add(new Object[]{id, values[0], values[1], values[2]}));
+        return rows;
+    }
+
+    private List<Object[]> tagRows() {
+        List<Object[]> rows = new ArrayList<>();
+        tags.forEach((id, names) -> names.forEach(name -> rows.add(new Object[]{id, tagId(name), name})));
+        return rows;
+    }
+
+    private static long tagId(String name) {
+        return List.of(TAGS).indexOf(name) + 100;
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId(USER);
+        return user;
+    }
+
+    private static TagIndexService.Filter filter(Set<String> all, Set<String> any, Set<String> none,
+                                                 Boolean favorite, Boolean archived, Boolean deleted) {
+        return new TagIndexService.Filter(all, any, none, favorite, archived, deleted);
+    }
+
+    private List<Long> ids(TagIndexService.Filter filter) {
+        return tagIndexService.query(USER, filter, null, 1000).ids();
+    }
+
+    private static Set<String> randomTags(Random random) {
+        return switch (random.nextInt(4)) {
+            case 0 -> null;
+            case 1 -> Set.of();
+            case 2 -> Set.of(TAGS[random.nextInt(TAGS.length)]);
+            default -> Set.of(TAGS[random.nextInt(3)], TAGS[3 + random.nextInt(3)]);
+        };
+    }
+
+    // --- the same filter as a scan over the fixture rows ---
+
+    private List<Long> scan(TagIndexService.Filter filter) {
+        Predicate<Long> matches = id -> {
+            boolean[] values = flags.get(id);
+            Set<String> names = tags.get(id);
+            return flagMatches(filter.favorite(), values[0])
+                    && flagMatches(filter.archived(), values[1])
+                    && flagMatches(filter.deleted(), values[2])
+                    && (filter.allTags() == null || names.containsAll(filter.allTags()))
+                    && (filter.anyTags() == null || filter.anyTags().isEmpty()
+                        || filter.anyTags().stream().anyMatch(names::contains))
+                    && (filter.noTags() == null || filter.noTags().stream().noneMatch(names::contains));
+        };
+        return flags.keySet().stream().filter(matches).sorted((a, b) -> Long.compare(b, a)).toList();
+    }
+
+    private Map<String, Long> facets(List<Long> ids) {
+        Map<String, Long> counts = new HashMap<>();
+        ids.forEach(id -> tags.get(id).forEach(name -> counts.merge(name, 1L, Long::sum)));
+        return counts;
+    }
+
+    private static boolean flagMatches(Boolean wanted, boolean value) {
+        return wanted == null || wanted == value;
+    }
+
+    // The snapshot template only needs somewhere to begin and end
+    private static final class NoOpTransactionManager implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.internship.photovault.service;
+
+import com.internship.photovault.entity.Tag;
+import com.internship.photovault.entity.User;
+import com.internship.photovault.repository.TagRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+// TagService.updateTags over mocked collaborators; which rows change is decided by the statements,
+// the service must pass the caller on and only report what they returned
+class TagServiceTests {
+
+    private static final long USER = 7;
+
+    private TagRepository tagRepository;
+    private TagIndexService tagIndexService;
+    private AuditService auditService;
+    private TagService tagService;
+
+    @BeforeEach
+    void setUp() {
+        tagRepository = mock(TagRepository.class);
+        tagIndexService = mock(TagIndexService.class);
+        auditService = mock(AuditService.class);
+        tagService = new TagService(tagRepository, tagIndexService, mock(ImageService.class), auditService, 3);
+        when(tagRepository.findByNameIn(anyCollection())).thenReturn(List.of(tag(100, "beach"), tag(101, "dog")));
+    }
+
+    // Images 2 (someone else's) and 3 (trashed) are left out by the insert, nothing is reported for them
+    @Test
+    void onlyRowsTheInsertReturnedAreIndexedAndAudited() {
+        when(tagRepository.addImageTags(eq(USER), anyCollection(), anyCollection()))
+                .thenReturn(rows(new long[]{1, 100}, new long[]{1, 101}));
+
+        Map<String, Object> result = tagService.updateTags(List.of(1L, 2L, 3L), List.of(" beach ", "dog"), null, user());
+
+        assertEquals(Map.of("requested", 3, "updated", 1, "added", 2, "removed", 0), result);
+        verify(tagRepository).addImageTags(eq(USER), eq(Set.of(1L, 2L, 3L)), eq(Set.of(100L, 101L)));
+        ArgumentCaptor<List<long[]>> pairs = ArgumentCaptor.captor();
+        verify(tagIndexService).tagsAdded(eq(USER), pairs.capture(), anyMap());
+        assertEquals(2, pairs.getValue().size());
+        assertArrayEquals(new long[]{1, 100}, pairs.getValue().get(0));
+        assertArrayEquals(new long[]{1, 101}, pairs.getValue().get(1));
+        verify(auditService).recordAfterCommit(eq(AuditService.UPDATE), eq("images"), eq(1L), isNull(), any());
+        verify(auditService, never()).recordAfterCommit(anyString(), anyString(), eq(2L), any(), any());
+        verify(auditService, never()).recordAfterCommit(anyString(), anyString(), eq(3L), any(), any());
+    }
+
+    @Test
+    void nothingReturnedMeansNothingChanged() {
+        when(tagRepository.addImageTags(anyLong(), anyCollection(), anyCollection())).thenReturn(List.of());
+
+        Map<String, Object> result = tagService.updateTags(List.of(2L), List.of("beach"), null, user());
+
+        assertEquals(Map.of("requested", 1, "updated", 0, "added", 0, "removed", 0), result);
+        verify(tagIndexService).tagsAdded(eq(USER), eq(List.of()), anyMap());
+        verifyNoInteractions(auditService);
+    }
+
+    @Test
+    void removalIsScopedToTheCallerAndReportsWhatWasDeleted() {
+        when(tagRepository.removeImageTags(eq(USER), anyCollection(), anyCollection()))
+                .thenReturn(rows(new long[]{4, 101}));
+
+        Map<String, Object> result = tagService.updateTags(List.of(4L, 5L), null, List.of("dog"), user());
+
+        assertEquals(Map.of("requested", 2, "updated", 1, "added", 0, "removed", 1), result);
+        verify(tagRepository).removeImageTags(eq(USER), eq(Set.of(4L, 5L)), anyCollection());
+        verify(tagIndexService).tagsRemoved(eq(USER), any());
+        verify(tagRepository, never()).addImageTags(anyLong(), anyCollection(), anyCollection());
+    }
+
+    // The service trusts the statements to filter by owner and trash; no database here to run them on
+    @Test
+    void statementsOnlyTouchTheCallersImages() throws NoSuchMethodException {
+        String add = TagRepository.class.getMethod("addImageTags", Long.class, Collection.class, Collection.class)
+                .getAnnotation(Query.class).value();
+        String remove = TagRepository.class.getMethod("removeImageTags", Long.class, Collection.class, Collection.class)
+                .getAnnotation(Query.class).value();
+
+        assertTrue(add.contains("i.user_id = :userId"), add);
+        assertTrue(add.contains("i.is_deleted = false"), add);
+        assertTrue(remove.contains("i.user_id = :userId"), remove);
+    }
+
+    @Test
+    void invalidRequestsAreRejectedBeforeAnyWrite() {
+        assertThrows(IllegalArgumentException.class, () -> tagService.updateTags(null, List.of("beach"), null, user()));
+        assertThrows(IllegalArgumentException.class,
+                () -> tagService.updateTags(Collections.singletonList(null), List.of("beach"), null, user()));
+        assertThrows(IllegalArgumentException.class,
+                () -> tagService.updateTags(List.of(1L, 2L, 3L, 4L), List.of("beach"), null, user()));
+        assertThrows(IllegalArgumentException.class,
+                () -> tagService.updateTags(List.of(1L), List.of(" ", ""), List.of(), user()));
+        assertThrows(IllegalArgumentException.class,
+                () -> tagService.updateTags(List.of(1L), List.of("x".repeat(101)), null, user()));
+        List<String> tooMany = new ArrayList<>();
+        for (int i = 0; i < 51; i++) {
+            tooMany.add("tag" + i);
+        }
+        assertThrows(IllegalArgumentException.class, () -> tagService.updateTags(List.of(1L), tooMany, null, user()));
+
+        verify(tagRepository, never()).insertIfAbsent(anyString());
+        verifyNoInteractions(tagIndexService, auditService);
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId(USER);
+        return user;
+    }
+
+    private static Tag tag(long id, String name) {
+        Tag tag = new Tag();
+        tag.setId(id);
+        tag.setName(name);
+        return tag;
+    }
+
+    private static List<Object[]> rows(long[]... pairs) {
+        List<Object[]> rows = new ArrayList<>();
+        for (long[] pair : pairs) {
+            rows.add(new Object[]{pair[0], pair[1]});
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,59 @@
+package com.internship.photovault.service;
+
+import com.internship.photovault.storage.FileSystemStorageBackend;
+import com.internship.photovault.storage.StorageBackend;
+import com.internship.photovault.storage.StorageLayout;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+// Originals that cannot be decoded are tried once; until the failure expires requests get the fallback
+// without another decode
+class ThumbnailServiceTests {
+
+    private static final String STORED_FILENAME = "0123456789abcdef.jpg";
+
+    @TempDir
+    Path root;
+
+    @Test
+    void undecodableOriginalIsNotDecodedAgainOnEveryRequest() throws IOException {
+        StorageBackend storage = spy(new FileSystemStorageBackend(root.toString()));
+        Path original = root.resolve(StorageLayout.keyFor(STORED_FILENAME));
+        Files.createDirectories(original.getParent());
+        Files.writeString(original, "not an image");
+        ThumbnailService thumbnails = new ThumbnailService(storage, root.toString(), new int[]{256}, 0.8f, 1, 600);
+
+        assertEquals(Optional.empty(), thumbnails.getRendition(STORED_FILENAME, 256));
+        assertEquals(Optional.empty(), thumbnails.getRendition(STORED_FILENAME, 256));
+        thumbnails.scheduleRenditions(STORED_FILENAME);
+
+        verify(storage, times(1)).localFile(StorageLayout.keyFor(STORED_FILENAME));
+        assertTrue(Files.isRegularFile(original));
+    }
+
+    @Test
+    void deletingTheRenditionsForgetsTheFailure() throws IOException {
+        StorageBackend storage = spy(new FileSystemStorageBackend(root.toString()));
+        Path original = root.resolve(StorageLayout.keyFor(STORED_FILENAME));
+        Files.createDirectories(original.getParent());
+        Files.writeString(original, "not an image");
+        ThumbnailService thumbnails = new ThumbnailService(storage, root.toString(), new int[]{256}, 0.8f, 1, 600);
+
+        thumbnails.getRendition(STORED_FILENAME, 256);
+        thumbnails.deleteRenditions(STORED_FILENAME);
+        thumbnails.getRendition(STORED_FILENAME, 256);
+
+        verify(storage, times(2)).localFile(StorageLayout.keyFor(STORED_FILENAME));
+    }
+}
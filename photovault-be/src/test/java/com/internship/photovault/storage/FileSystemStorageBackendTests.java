@@ -0,0 +1,52 @@
+package com.internship.photovault.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileSystemStorageBackendTests extends StorageBackendContractTests {
+
+    @TempDir
+    Path root;
+
+    @Override
+    StorageBackend createBackend() {
+        return new FileSystemStorageBackend(root.toString());
+    }
+
+    @Test
+    void objectsAreWrittenInTheFanOutLayout() throws IOException {
+        backend.put(KEY, stage(randomBytes(100, 10)), "image/jpeg");
+
+        assertTrue(Files.isRegularFile(root.resolve(KEY)));
+        assertEquals(root.resolve(KEY), backend.localFile(KEY).orElseThrow());
+    }
+
+    @Test
+    void legacyRootLevelFilesAreStillFound() throws IOException {
+        byte[] data = randomBytes(2000, 11);
+        Files.write(root.resolve(StorageLayout.fileName(KEY)), data);
+
+        assertTrue(backend.exists(KEY));
+        assertArrayEquals(data, read(backend.get(KEY)));
+        assertArrayEquals(Arrays.copyOfRange(data, 100, 200), read(backend.getRange(KEY, 100, 100)));
+
+        backend.delete(KEY);
+        assertFalse(backend.exists(KEY));
+    }
+
+    @Test
+    void keysCannotEscapeTheRoot() {
+        assertThrows(IllegalArgumentException.class, () -> backend.get("../outside.jpg"));
+    }
+}
@@ -0,0 +1,192 @@
+package com.internship.photovault.storage;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.NoSuchUploadException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// In-process stand-in for the handful of S3 calls S3StorageBackend makes: objects and pending
+// multipart uploads live in maps, missing keys answer 404 like a real bucket.
+// failPart makes the upload of that part number fail once, to exercise the abort path.
+class InMemoryS3Client implements S3Client {
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+
+    private record StoredObject(byte[] data, String contentType) {
+    }
+
+    final Map<String, StoredObject> objects = new ConcurrentHashMap<>();
+    final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+    private final Map<String, String> uploadContentTypes = new ConcurrentHashMap<>();
+    final AtomicInteger createdUploads = new AtomicInteger();
+    final AtomicInteger abortedUploads = new AtomicInteger();
+    final AtomicInteger uploadedParts = new AtomicInteger();
+    volatile int failPart = -1;
+
+    byte[] object(String bucket, String key) {
+        StoredObject object = objects.get(bucket + "/" + key);
+        return object == null ? null : object.data();
+    }
+
+    String contentType(String bucket, String key) {
+        StoredObject object = objects.get(bucket + "/" + key);
+        return object == null ? null : object.contentType();
+    }
+
+    @Override
+    public PutObjectResponse putObject(PutObjectRequest request, RequestBody body) {
+        objects.put(request.bucket() + "/" + request.key(), new StoredObject(read(body), request.contentType()));
+        return PutObjectResponse.builder().eTag("\"single\"").build();
+    }
+
+    @Override
+    public ResponseInputStream<GetObjectResponse> getObject(GetObjectRequest request) {
+        byte[] data = require(request.bucket(), request.key());
+        if (request.range() != null) {
+            Matcher matcher = RANGE.matcher(request.range());
+            if (!matcher.matches()) {
+                throw S3Exception.builder().statusCode(400).message("Bad range " + request.range()).build();
+            }
+            int first = Integer.parseInt(matcher.group(1));
+            int last = Math.min(Integer.parseInt(matcher.group(2)), data.length - 1);
+            if (first >= data.length) {
+                throw S3Exception.builder().statusCode(416).message("Range not satisfiable").build();
+            }
+            data = Arrays.copyOfRange(data, first, last + 1);
+        }
+        GetObjectResponse response = GetObjectResponse.builder().contentLength((long) data.length).build();
+        return new ResponseInputStream<>(response, AbortableInputStream.create(new ByteArrayInputStream(data)));
+    }
+
+    @Override
+    public HeadObjectResponse headObject(HeadObjectRequest request) {
+        byte[] data = object(request.bucket(), request.key());
+        if (data == null) {
+            // HEAD has no body, so a real bucket answers a plain 404 rather than NoSuchKey
+            throw S3Exception.builder().statusCode(404).message("Not Found").build();
+        }
+        return HeadObjectResponse.builder().contentLength((long) data.length).build();
+    }
+
+    @Override
+    public DeleteObjectResponse deleteObject(DeleteObjectRequest request) {
+        objects.remove(request.bucket() + "/" + request.key());
+        return DeleteObjectResponse.builder().build();
+    }
+
+    @Override
+    public CreateMultipartUploadResponse createMultipartUpload(CreateMultipartUploadRequest request) {
+        String uploadId = "upload-" + createdUploads.incrementAndGet();
+        uploads.put(uploadId, new ConcurrentSkipListMap<>());
+        if (request.contentType() != null) {
+            uploadContentTypes.put(uploadId, request.contentType());
+        }
+        return CreateMultipartUploadResponse.builder().uploadId(uploadId).build();
+    }
+
+    @Override
+    public UploadPartResponse uploadPart(UploadPartRequest request, RequestBody body) {
+        Map<Integer, byte[]> parts = uploads.get(request.uploadId());
+        if (parts == null) {
+            throw NoSuchUploadException.builder().statusCode(404).message("No such upload").build();
+        }
+        if (request.partNumber() == failPart) {
+            failPart = -1;
+            throw S3Exception.builder().statusCode(500).message("Injected part failure").build();
+        }
+        byte[] data = read(body);
+        if (request.contentLength() != null && request.contentLength() != data.length) {
+            throw S3Exception.builder().statusCode(400).message("Content length mismatch").build();
+        }
+        parts.put(request.partNumber(), data);
+        uploadedParts.incrementAndGet();
+        return UploadPartResponse.builder().eTag("\"part-" + request.partNumber() + "\"").build();
+    }
+
+    @Override
+    public CompleteMultipartUploadResponse completeMultipartUpload(CompleteMultipartUploadRequest request) {
+        Map<Integer, byte[]> parts = uploads.remove(request.uploadId());
+        if (parts == null) {
+            throw NoSuchUploadException.builder().statusCode(404).message("No such upload").build();
+        }
+        ByteArrayOutputStream assembled = new ByteArrayOutputStream();
+        int expected = 1;
+        for (CompletedPart part : request.multipartUpload().parts()) {
+            byte[] data = parts.get(part.partNumber());
+            if (part.partNumber() != expected++ || data == null
+                    || !("\"part-" + part.partNumber() + "\"").equals(part.eTag())) {
+                throw S3Exception.builder().statusCode(400).message("Invalid part " + part.partNumber()).build();
+            }
+            assembled.writeBytes(data);
+        }
+        objects.put(request.bucket() + "/" + request.key(),
+                new StoredObject(assembled.toByteArray(), uploadContentTypes.remove(request.uploadId())));
+        return CompleteMultipartUploadResponse.builder().build();
+    }
+
+    @Override
+    public AbortMultipartUploadResponse abortMultipartUpload(AbortMultipartUploadRequest request) {
+        uploads.remove(request.uploadId());
+        uploadContentTypes.remove(request.uploadId());
+        abortedUploads.incrementAndGet();
+        return AbortMultipartUploadResponse.builder().build();
+    }
+
+    @Override
+    public String serviceName() {
+        return "s3";
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private byte[] require(String bucket, String key) {
+        byte[] data = object(bucket, key);
+        if (data == null) {
+            throw NoSuchKeyException.builder().statusCode(404).message("The specified key does not exist.").build();
+        }
+        return data;
+    }
+
+    private static byte[] read(RequestBody body) {
+        try (InputStream in = body.contentStreamProvider().newStream()) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.internship.photovault.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class S3StorageBackendTests extends StorageBackendContractTests {
+
+    private static final String BUCKET = "photos";
+    private static final long PART_SIZE = 5L * 1024 * 1024;
+
+    private InMemoryS3Client s3;
+
+    // parts at the 5 MiB minimum, anything above one part goes multipart
+    @Override
+    StorageBackend createBackend() {
+        s3 = new InMemoryS3Client();
+        return new S3StorageBackend(s3, BUCKET, "/originals/", PART_SIZE, PART_SIZE, 3);
+    }
+
+    @AfterEach
+    void shutDownBackend() {
+        ((S3StorageBackend) backend).shutdown();
+    }
+
+    @Test
+    void objectsLiveUnderThePrefix() throws IOException {
+        byte[] data = randomBytes(100, 20);
+        backend.put(KEY, stage(data), "image/jpeg");
+
+        assertArrayEquals(data, s3.object(BUCKET, "originals/" + KEY));
+        assertEquals("image/jpeg", s3.contentType(BUCKET, "originals/" + KEY));
+        assertTrue(backend.localFile(KEY).isEmpty());
+    }
+
+    @Test
+    void smallFilesGoUpInASinglePut() throws IOException {
+        backend.put(KEY, stage(randomBytes((int) PART_SIZE, 21)), "image/jpeg");
+
+        assertEquals(0, s3.createdUploads.get());
+    }
+
+    @Test
+    void largeFilesAreAssembledFromParallelParts() throws IOException {
+        // two full parts and a short last one
+        byte[] data = randomBytes((int) (2 * PART_SIZE + 12345), 22);
+        Path source = stage(data);
+
+        backend.put(KEY, source, "image/png");
+
+        assertFalse(Files.exists(source));
+        assertEquals(1, s3.createdUploads.get());
+        assertEquals(3, s3.uploadedParts.get());
+        assertEquals(0, s3.abortedUploads.get());
+        assertTrue(s3.uploads.isEmpty());
+        assertArrayEquals(data, s3.object(BUCKET, "originals/" + KEY));
+        assertEquals("image/png", s3.contentType(BUCKET, "originals/" + KEY));
+        assertArrayEquals(Arrays.copyOfRange(data, (int) PART_SIZE - 10, (int) PART_SIZE + 10),
+                read(backend.getRange(KEY, PART_SIZE - 10, 20)));
+    }
+
+    @Test
+    void failedMultipartUploadIsAbortedAndNothingIsStored() throws IOException {
+        s3.failPart = 2;
+        Path source = stage(randomBytes((int) (2 * PART_SIZE + 1), 23));
+
+        IOException e = assertThrows(IOException.class, () -> backend.put(KEY, source, "image/jpeg"));
+
+        assertTrue(e.getMessage().contains("Multipart upload"), e.getMessage());
+        assertEquals(1, s3.abortedUploads.get());
+        assertTrue(s3.uploads.isEmpty());
+        assertNull(s3.object(BUCKET, "originals/" + KEY));
+        assertFalse(backend.exists(KEY));
+        // the staged file is consumed even when storing fails
+        assertFalse(Files.exists(source));
+    }
+
+    @Test
+    void aMissingSourceFailsBeforeAnythingIsSent() throws IOException {
+        Path source = stage(randomBytes((int) (PART_SIZE + 1), 24));
+        Files.delete(source);
+
+        assertThrows(IOException.class, () -> backend.put(KEY, source, "image/jpeg"));
+
+        assertEquals(0, s3.createdUploads.get());
+        assertNull(s3.object(BUCKET, "originals/" + KEY));
+    }
+
+    @Test
+    void aMissingBucketIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new S3StorageBackend(new InMemoryS3Client(), " ", "", PART_SIZE, PART_SIZE, 1));
+    }
+}
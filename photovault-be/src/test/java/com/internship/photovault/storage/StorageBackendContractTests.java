@@ -0,0 +1,143 @@
+package com.internship.photovault.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// What every StorageBackend promises (see StorageBackend), run against each implementation
+abstract class StorageBackendContractTests {
+
+    static final String KEY = StorageLayout.keyFor("0123456789abcdef.jpg");
+
+    @TempDir
+    Path staging;
+
+    StorageBackend backend;
+
+    abstract StorageBackend createBackend() throws IOException;
+
+    @BeforeEach
+    void setUpBackend() throws IOException {
+        backend = createBackend();
+    }
+
+    @Test
+    void putStoresTheFileAndConsumesIt() throws IOException {
+        byte[] data = randomBytes(70_000, 1);
+        Path source = stage(data);
+
+        backend.put(KEY, source, "image/jpeg");
+
+        assertFalse(Files.exists(source));
+        assertTrue(backend.exists(KEY));
+        assertEquals(data.length, backend.size(KEY));
+        assertArrayEquals(data, read(backend.get(KEY)));
+    }
+
+    @Test
+    void putOverwritesAnExistingObject() throws IOException {
+        backend.put(KEY, stage(randomBytes(1000, 1)), "image/jpeg");
+        byte[] replacement = randomBytes(500, 2);
+
+        backend.put(KEY, stage(replacement), "image/jpeg");
+
+        assertArrayEquals(replacement, read(backend.get(KEY)));
+        assertEquals(replacement.length, backend.size(KEY));
+    }
+
+    @Test
+    void getRangeReturnsTheRequestedSlice() throws IOException {
+        byte[] data = randomBytes(10_000, 3);
+        backend.put(KEY, stage(data), "image/jpeg");
+
+        assertArrayEquals(Arrays.copyOfRange(data, 0, 1), read(backend.getRange(KEY, 0, 1)));
+        assertArrayEquals(Arrays.copyOfRange(data, 1234, 5678), read(backend.getRange(KEY, 1234, 5678 - 1234)));
+        assertArrayEquals(Arrays.copyOfRange(data, 9990, 10_000), read(backend.getRange(KEY, 9990, 10)));
+    }
+
+    @Test
+    void getRangePastTheEndReturnsFewerBytes() throws IOException {
+        byte[] data = randomBytes(1000, 4);
+        backend.put(KEY, stage(data), "image/jpeg");
+
+        assertArrayEquals(Arrays.copyOfRange(data, 900, 1000), read(backend.getRange(KEY, 900, 500)));
+    }
+
+    @Test
+    void emptyRangeIsEmpty() throws IOException {
+        backend.put(KEY, stage(randomBytes(100, 5)), "image/jpeg");
+
+        assertEquals(0, read(backend.getRange(KEY, 10, 0)).length);
+    }
+
+    @Test
+    void deleteRemovesTheObject() throws IOException {
+        backend.put(KEY, stage(randomBytes(100, 6)), "image/jpeg");
+
+        backend.delete(KEY);
+
+        assertFalse(backend.exists(KEY));
+        assertThrows(NoSuchFileException.class, () -> backend.get(KEY));
+    }
+
+    @Test
+    void deleteOfAMissingObjectIsANoOp() throws IOException {
+        backend.delete(KEY);
+
+        assertFalse(backend.exists(KEY));
+    }
+
+    @Test
+    void missingObjectsAreReportedAsNoSuchFile() throws IOException {
+        assertFalse(backend.exists(KEY));
+        assertThrows(NoSuchFileException.class, () -> backend.get(KEY));
+        assertThrows(NoSuchFileException.class, () -> backend.getRange(KEY, 0, 10));
+        assertThrows(NoSuchFileException.class, () -> backend.size(KEY));
+    }
+
+    @Test
+    void keysAreIndependent() throws IOException {
+        String otherKey = StorageLayout.keyFor("fedcba9876543210.png");
+        byte[] first = randomBytes(300, 7);
+        byte[] second = randomBytes(400, 8);
+        backend.put(KEY, stage(first), "image/jpeg");
+        backend.put(otherKey, stage(second), "image/png");
+
+        backend.delete(KEY);
+
+        assertFalse(backend.exists(KEY));
+        assertArrayEquals(second, read(backend.get(otherKey)));
+    }
+
+    Path stage(byte[] data) throws IOException {
+        Path file = Files.createTempFile(staging, "upload-", ".tmp");
+        Files.write(file, data);
+        return file;
+    }
+
+    static byte[] read(InputStream in) throws IOException {
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+
+    static byte[] randomBytes(int length, long seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}